@@ -0,0 +1,167 @@
+package book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import model.Board;
+import model.FileRank;
+import model.King;
+import model.Move;
+import model.Utils.PieceType;
+
+/**
+ * An opening book in Polyglot's .bin format: entries of 16 big-endian bytes, a 64-bit position key,
+ * a 16-bit move, a 16-bit weight and 32 bits of learning data that are not used, sorted by key.
+ * The file is memory mapped and binary searched in place, nothing of it is copied onto the heap,
+ * so a lookup only touches the few pages it reads.
+ *
+ */
+public class PolyglotBook implements Closeable {
+
+	private static final int ENTRY_SIZE = 16;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer entries;
+	private final int count;
+
+	/**
+	 * Constructor for a book read from a given file
+	 * @param path path of the .bin file
+	 * @throws IOException if the file cannot be mapped or is not a whole number of entries
+	 */
+	public PolyglotBook(Path path) throws IOException{
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		long size = channel.size();
+		if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE){
+			channel.close();
+			throw new IOException("Not a Polyglot book: " + path);
+		}
+		this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		this.count = (int) (size / ENTRY_SIZE);
+	}
+
+	/**
+	 * Returns the number of entries of the book
+	 * @return the number of entries
+	 */
+	public int size(){
+		return count;
+	}
+
+	/**
+	 * Picks a book move for the position on a board, each move being picked in proportion to its weight
+	 * @param board board holding the position
+	 * @param random source of the random choice
+	 * @return the move, packed as by Move, Move.NONE if the position is not in the book
+	 * or none of its moves is legal on the board
+	 */
+	public int probe(Board board, Random random){
+		long key = PolyglotKey.compute(board);
+		int first = find(key);
+		int total = 0;
+		for (int i = first; i < count && entries.getLong(i * ENTRY_SIZE) == key; i++){
+			if (toMove(board, i) != Move.NONE){
+				total += getWeight(i);
+			}
+		}
+		if (total == 0){
+			return Move.NONE;
+		}
+		int pick = random.nextInt(total);
+		for (int i = first; i < count && entries.getLong(i * ENTRY_SIZE) == key; i++){
+			int move = toMove(board, i);
+			if (move == Move.NONE){
+				continue;
+			}
+			pick -= getWeight(i);
+			if (pick < 0){
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * Returns the book move with the highest weight for the position on a board
+	 * @param board board holding the position
+	 * @return the move, packed as by Move, Move.NONE if the position is not in the book
+	 */
+	public int best(Board board){
+		long key = PolyglotKey.compute(board);
+		int best = Move.NONE;
+		int bestWeight = -1;
+		for (int i = find(key); i < count && entries.getLong(i * ENTRY_SIZE) == key; i++){
+			int move = toMove(board, i);
+			if (move != Move.NONE && getWeight(i) > bestWeight){
+				best = move;
+				bestWeight = getWeight(i);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the first entry with a key equal to or greater than a given key
+	 * Keys are compared unsigned, as the book is sorted
+	 * @param key the key
+	 * @return index of the entry, size() if every key is smaller
+	 */
+	private int find(long key){
+		int low = 0;
+		int high = count;
+		while (low < high){
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(entries.getLong(mid * ENTRY_SIZE), key) < 0){
+				low = mid + 1;
+			}else{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the weight of an entry
+	 * @param index index of the entry
+	 * @return the weight, from 0 to 65535
+	 */
+	private int getWeight(int index){
+		return entries.getShort(index * ENTRY_SIZE + 10) & 0xFFFF;
+	}
+
+	/**
+	 * Converts the move of an entry to a legal move on a board
+	 * Polyglot writes castling as the King capturing its own Rook, it is turned into the King's two-square move
+	 * @param board board holding the position of the entry
+	 * @param index index of the entry
+	 * @return the move, packed as by Move, Move.NONE if it is not legal on the board
+	 */
+	private int toMove(Board board, int index){
+		int book = entries.getShort(index * ENTRY_SIZE + 8) & 0xFFFF;
+		int to = book & 63;
+		int from = (book >>> 6) & 63;
+		int promotion = (book >>> 12) & 7;
+		FileRank fromFR = board.getFileRankAt(from);
+		if (fromFR.getCurrentPiece() instanceof King && Math.abs((to & 7) - (from & 7)) > 1 && (to >>> 3) == (from >>> 3)){
+			to = from + (to > from ? 2 : -2);
+		}
+		FileRank toFR = board.getFileRankAt(to);
+		if (promotion > 4 || !board.isLegal(fromFR, toFR)){
+			return Move.NONE;
+		}
+		return Move.encode(from, to, promotion == 0 ? null : PieceType.values()[promotion]);
+	}
+
+	/**
+	 * Closes the file, the book must not be used afterwards
+	 */
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+}
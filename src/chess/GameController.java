@@ -0,0 +1,253 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.Board;
+import model.Fen;
+import model.FileRank;
+import model.Move;
+import model.Pawn;
+import model.Player;
+import model.Utils.Color;
+import model.Utils.PieceType;
+import pgn.PgnGame;
+
+/**
+ * Runs one game: checks and plays the moves of both sides, handles draw offers and resignations,
+ * and decides when the game is over. Nothing is read or printed, every command returns what happened
+ * and listeners are told about each event, so any number of games can be played in one process,
+ * by a console, a server or a self-play loop.
+ *
+ */
+public class GameController {
+
+	private final String startFen;
+	private final Board board;
+	private final List<GameListener> listeners;
+	private int[] moves;
+	private int plies;
+	private volatile String result;
+
+	/**
+	 * Constructor for a game from the standard starting position
+	 */
+	public GameController(){
+		this(Fen.START_POSITION);
+	}
+
+	/**
+	 * Constructor for a game from a given position
+	 * @param startFen the position in Forsyth-Edwards Notation
+	 * @throws IllegalArgumentException if the FEN string is malformed
+	 */
+	public GameController(String startFen){
+		this.startFen = startFen;
+		this.board = Fen.load(startFen, false);
+		this.listeners = new ArrayList<GameListener>();
+		this.moves = new int[64];
+		this.result = PgnGame.UNFINISHED;
+	}
+
+	/**
+	 * Adds a listener to be told about the events of the game
+	 * @param listener the listener
+	 */
+	public void addListener(GameListener listener){
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener
+	 * @param listener the listener
+	 */
+	public void removeListener(GameListener listener){
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the board the game is played on, which must not be changed other than through the controller
+	 * @return the board
+	 */
+	public Board getBoard(){
+		return board;
+	}
+
+	/**
+	 * Returns the side to move
+	 * @return the color of the side to move
+	 */
+	public Color getSideToMove(){
+		return board.getSideToMove();
+	}
+
+	/**
+	 * Returns the result of the game
+	 * @return PgnGame.WHITE_WINS, BLACK_WINS, DRAW or UNFINISHED
+	 */
+	public String getResult(){
+		return result;
+	}
+
+	/**
+	 * Returns whether or not the game is over
+	 * @return true if the game has a result, false otherwise
+	 */
+	public boolean isOver(){
+		return !result.equals(PgnGame.UNFINISHED);
+	}
+
+	/**
+	 * Returns the number of moves played
+	 * @return the number of moves played by both sides
+	 */
+	public int getPlies(){
+		return plies;
+	}
+
+	/**
+	 * Returns a move played
+	 * @param ply index of the move, 0 for the first move of the game
+	 * @return the move, packed as by Move
+	 */
+	public int getMove(int ply){
+		return moves[ply];
+	}
+
+	/**
+	 * Plays a move of the side to move
+	 * @param from FileRank moved from
+	 * @param to FileRank moved to
+	 * @param promotion piece a Pawn reaching the last rank is promoted to (Q, R, B or N), 0 for a Queen
+	 * @return ILLEGAL if the move was not played, otherwise CHECKMATE, STALEMATE, CHECK or MOVE
+	 */
+	public GameEvent play(FileRank from, FileRank to, char promotion){
+		if (isOver() || from == null || to == null || !board.isLegal(from, to)){
+			return fire(GameEvent.ILLEGAL, Move.NONE);
+		}
+		PieceType promoted = null;
+		if (from.getCurrentPiece() instanceof Pawn && (to.getRank() == 1 || to.getRank() == 8)){
+			promotion = promotion == 0 ? 'Q' : Character.toUpperCase(promotion);
+			if ("NBRQ".indexOf(promotion) < 0){
+				return fire(GameEvent.ILLEGAL, Move.NONE);
+			}
+			promoted = PieceType.values()["PNBRQ".indexOf(promotion)];
+		}else{
+			promotion = 0;
+		}
+		Color us = board.getSideToMove();
+		int move = Move.encode(from.getSquare(), to.getSquare(), promoted);
+		board.makeMove(from, to, promotion);
+		if (plies == moves.length){
+			moves = Arrays.copyOf(moves, plies * 2);
+		}
+		moves[plies++] = move;
+		// A draw offered by the other side lapses once this side has moved instead of accepting it
+		opponent(us).setDraw(false);
+		fire(GameEvent.MOVE, move);
+
+		Color them = board.getSideToMove();
+		boolean check = board.isKingAttacked(them);
+		if (!board.getMoveGenerator().hasLegalMove()){
+			if (check){
+				result = us == Color.WHITE ? PgnGame.WHITE_WINS : PgnGame.BLACK_WINS;
+				return fire(GameEvent.CHECKMATE, move);
+			}
+			result = PgnGame.DRAW;
+			return fire(GameEvent.STALEMATE, move);
+		}
+		return check ? fire(GameEvent.CHECK, move) : GameEvent.MOVE;
+	}
+
+	/**
+	 * Offers a draw on behalf of the side to move, the offer stands until that side's next move has been answered
+	 * @return DRAW_OFFER, or ILLEGAL if the game is over
+	 */
+	public GameEvent offerDraw(){
+		if (isOver()){
+			return fire(GameEvent.ILLEGAL, Move.NONE);
+		}
+		board.getPlayer(board.getSideToMove()).setDraw(true);
+		return fire(GameEvent.DRAW_OFFER, Move.NONE);
+	}
+
+	/**
+	 * Accepts the draw offered by the other side
+	 * @return DRAW, or ILLEGAL if no draw was offered or the game is over
+	 */
+	public GameEvent acceptDraw(){
+		if (isOver() || !opponent(board.getSideToMove()).getDraw()){
+			return fire(GameEvent.ILLEGAL, Move.NONE);
+		}
+		result = PgnGame.DRAW;
+		return fire(GameEvent.DRAW, Move.NONE);
+	}
+
+	/**
+	 * Returns whether the side to move could claim a draw, under the fifty-move rule
+	 * or because the position occurred for the third time
+	 * @return true if a draw can be claimed, false otherwise
+	 */
+	public boolean canClaimDraw(){
+		return board.getHalfmoveClock() >= 100 || board.getRepetitions() >= 2;
+	}
+
+	/**
+	 * Ends the game in a draw without an offer, as an arbiter would under the fifty-move rule or on a threefold repetition
+	 * @return DRAW, or ILLEGAL if the game is over
+	 */
+	public GameEvent adjudicateDraw(){
+		if (isOver()){
+			return fire(GameEvent.ILLEGAL, Move.NONE);
+		}
+		result = PgnGame.DRAW;
+		return fire(GameEvent.DRAW, Move.NONE);
+	}
+
+	/**
+	 * Resigns the game on behalf of the side to move
+	 * @return RESIGNATION, or ILLEGAL if the game is over
+	 */
+	public GameEvent resign(){
+		if (isOver()){
+			return fire(GameEvent.ILLEGAL, Move.NONE);
+		}
+		result = board.getSideToMove() == Color.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+		return fire(GameEvent.RESIGNATION, Move.NONE);
+	}
+
+	/**
+	 * Returns the game played so far in Portable Game Notation
+	 * @return the game with its moves and result
+	 */
+	public PgnGame toPgn(){
+		List<Integer> played = new ArrayList<Integer>(plies);
+		for (int i = 0; i < plies; i++){
+			played.add(moves[i]);
+		}
+		return PgnGame.fromMoves(startFen, played, result);
+	}
+
+	/**
+	 * Returns the player of the other color
+	 * @param color color of a side
+	 * @return the player of the other side
+	 */
+	private Player opponent(Color color){
+		return board.getPlayer(color == Color.WHITE ? Color.BLACK : Color.WHITE);
+	}
+
+	/**
+	 * Tells every listener about an event
+	 * @param event the event
+	 * @param move the move that caused it, Move.NONE if there is none
+	 * @return the event
+	 */
+	private GameEvent fire(GameEvent event, int move){
+		for (int i = 0; i < listeners.size(); i++){
+			listeners.get(i).gameEvent(event, move);
+		}
+		return event;
+	}
+}
@@ -0,0 +1,48 @@
+package chess;
+
+/**
+ * Things that can happen in a game run by a GameController
+ *
+ */
+public enum GameEvent {
+
+	/**
+	 * A move was played
+	 */
+	MOVE,
+
+	/**
+	 * A move was rejected because it is not legal, or a command was given that cannot be carried out
+	 */
+	ILLEGAL,
+
+	/**
+	 * A move put the King of the side to move in check
+	 */
+	CHECK,
+
+	/**
+	 * A move checkmated the side to move, the game is over
+	 */
+	CHECKMATE,
+
+	/**
+	 * A move left the side to move without a legal move while not in check, the game is drawn
+	 */
+	STALEMATE,
+
+	/**
+	 * The side to move offered a draw, which the other side may accept on its turn
+	 */
+	DRAW_OFFER,
+
+	/**
+	 * A draw offer was accepted or the game was adjudicated a draw, the game is over
+	 */
+	DRAW,
+
+	/**
+	 * The side to move resigned, the game is over
+	 */
+	RESIGNATION
+}
@@ -0,0 +1,15 @@
+package chess;
+
+/**
+ * Receives the events of a game run by a GameController
+ *
+ */
+public interface GameListener {
+
+	/**
+	 * Called every time something happens in the game, a move that gives check is reported as MOVE and then CHECK
+	 * @param event what happened
+	 * @param move the move that caused the event, packed as by model.Move, Move.NONE if there is none
+	 */
+	void gameEvent(GameEvent event, int move);
+}
@@ -0,0 +1,108 @@
+package eval;
+
+import model.Attacks;
+import model.Bitboards;
+import model.Board;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * A hand-written evaluation: material, piece-square tables, pawn structure and King safety,
+ * tapered between middlegame and endgame values by the material left on the board.
+ * Material and piece-square values are kept up to date by an IncrementalScore as moves are made and taken back,
+ * and pawn structure scores are reused from a PawnCache, so an evaluation mostly looks at the squares around the Kings.
+ *
+ */
+public class ClassicEvaluator implements Evaluator {
+
+	private static final int SHIELD_NEAR = 12;
+	private static final int SHIELD_FAR = 6;
+	private static final int OPEN_FILE = -15;
+	private static final int[] ZONE_ATTACKS = {0, 0, 5, 12, 22, 35, 50, 70, 95, 120, 150, 180, 210, 240};
+
+	private Board board;
+	private IncrementalScore score;
+	private PawnCache pawnCache;
+
+	/**
+	 * Constructor for an evaluator of a given board
+	 * @param board board to evaluate
+	 */
+	public ClassicEvaluator(Board board){
+		this.board = board;
+		this.score = new IncrementalScore(board);
+		this.pawnCache = new PawnCache();
+	}
+
+	@Override
+	public void detach(){
+		score.detach();
+	}
+
+	/**
+	 * Returns the cache of pawn structure scores, for its hit rate
+	 * @return the pawn cache of this evaluator
+	 */
+	public PawnCache getPawnCache(){
+		return pawnCache;
+	}
+
+	@Override
+	public int evaluate(){
+		Bitboards bitboards = board.getBitboards();
+		int pawns = pawnCache.probe(board.getPawnKey(),
+				bitboards.getPieces(Color.WHITE, PieceType.PAWN), bitboards.getPieces(Color.BLACK, PieceType.PAWN));
+		int middlegame = score.getMiddlegame() + PawnStructure.middlegame(pawns)
+				+ kingSafety(bitboards, Color.WHITE) - kingSafety(bitboards, Color.BLACK);
+		int endgame = score.getEndgame() + PawnStructure.endgame(pawns);
+		int phase = score.getPhase();
+		int total = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+		return board.getSideToMove() == Color.WHITE ? total : -total;
+	}
+
+	@Override
+	public Evaluator forBoard(Board board){
+		return board == this.board ? this : new ClassicEvaluator(board);
+	}
+
+	/**
+	 * Scores the safety of a King in the middlegame: the Pawns sheltering it, open files next to it
+	 * and how many times the opponent attacks the squares around it
+	 * @param bitboards bitboards of the board
+	 * @param color color of the King
+	 * @return the score from the point of view of the King's color
+	 */
+	private static int kingSafety(Bitboards bitboards, Color color){
+		int king = bitboards.getKingSquare(color);
+		if (king == 64){
+			return 0;
+		}
+		Color them = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long pawns = bitboards.getPieces(color, PieceType.PAWN);
+		int file = king & 7;
+		int rank = king >>> 3;
+		int forward = color == Color.WHITE ? 1 : -1;
+		int safety = 0;
+		for (int f = Math.max(0, file - 1); f <= Math.min(7, file + 1); f++){
+			long column = 0x0101010101010101L << f;
+			if ((pawns & column) == 0){
+				safety += OPEN_FILE;
+				continue;
+			}
+			int near = rank + forward;
+			int far = rank + 2 * forward;
+			if (near >= 0 && near < 8 && (pawns & (1L << (near * 8 + f))) != 0){
+				safety += SHIELD_NEAR;
+			}else if (far >= 0 && far < 8 && (pawns & (1L << (far * 8 + f))) != 0){
+				safety += SHIELD_FAR;
+			}
+		}
+		int attacks = 0;
+		long zone = Attacks.kingAttacks(king);
+		while (zone != 0){
+			attacks += bitboards.getAttackerCount(Long.numberOfTrailingZeros(zone), them);
+			zone &= zone - 1;
+		}
+		return safety - ZONE_ATTACKS[Math.min(attacks, ZONE_ATTACKS.length - 1)];
+	}
+}
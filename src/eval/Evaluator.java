@@ -0,0 +1,30 @@
+package eval;
+
+import model.Board;
+
+/**
+ * Scores the position on a board. Each evaluator belongs to one board and may follow its moves
+ * to keep part of the score up to date, so a search on several boards needs one evaluator per board.
+ *
+ */
+public interface Evaluator {
+
+	/**
+	 * Scores the position on the evaluator's board
+	 * @return the score in centipawns from the point of view of the side to move
+	 */
+	int evaluate();
+
+	/**
+	 * Returns an evaluator of the same kind for another board
+	 * @param board board to evaluate
+	 * @return this evaluator if it already belongs to the board, a new one otherwise
+	 */
+	Evaluator forBoard(Board board);
+
+	/**
+	 * Stops following the board, for an evaluator that is no longer used while the board lives on
+	 * Does nothing for an evaluator that does not follow the board's moves
+	 */
+	void detach();
+}
@@ -0,0 +1,95 @@
+package eval;
+
+import model.Bitboards;
+import model.Board;
+import model.BoardListener;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * The material and piece-square score of a board, kept up to date as pieces are placed and taken off
+ * instead of being added up at every evaluation. Moves, captures, promotions and moves taken back
+ * all reach it as the pieces they add and remove.
+ *
+ */
+public class IncrementalScore implements BoardListener {
+
+	private Board board;
+	private int[] middlegame;
+	private int[] endgame;
+	private int phase;
+
+	/**
+	 * Constructor for the score of a given board, adds up the pieces already on it and follows its changes
+	 * @param board board to score
+	 */
+	public IncrementalScore(Board board){
+		this.board = board;
+		middlegame = new int[Color.values().length];
+		endgame = new int[Color.values().length];
+		Bitboards bitboards = board.getBitboards();
+		for (Color color : Color.values()){
+			for (PieceType type : PieceType.values()){
+				long pieces = bitboards.getPieces(color, type);
+				while (pieces != 0){
+					pieceAdded(color, type, Long.numberOfTrailingZeros(pieces));
+					pieces &= pieces - 1;
+				}
+			}
+		}
+		board.addListener(this);
+	}
+
+	/**
+	 * Returns the board that is scored
+	 * @return the board
+	 */
+	public Board getBoard(){
+		return board;
+	}
+
+	@Override
+	public void pieceAdded(Color color, PieceType type, int square){
+		middlegame[color.ordinal()] += PieceSquareTables.middlegame(color, type, square);
+		endgame[color.ordinal()] += PieceSquareTables.endgame(color, type, square);
+		phase += PieceSquareTables.PHASE[type.ordinal()];
+	}
+
+	@Override
+	public void pieceRemoved(Color color, PieceType type, int square){
+		middlegame[color.ordinal()] -= PieceSquareTables.middlegame(color, type, square);
+		endgame[color.ordinal()] -= PieceSquareTables.endgame(color, type, square);
+		phase -= PieceSquareTables.PHASE[type.ordinal()];
+	}
+
+	/**
+	 * Returns the middlegame score
+	 * @return the score in centipawns from White's point of view
+	 */
+	public int getMiddlegame(){
+		return middlegame[Color.WHITE.ordinal()] - middlegame[Color.BLACK.ordinal()];
+	}
+
+	/**
+	 * Returns the endgame score
+	 * @return the score in centipawns from White's point of view
+	 */
+	public int getEndgame(){
+		return endgame[Color.WHITE.ordinal()] - endgame[Color.BLACK.ordinal()];
+	}
+
+	/**
+	 * Returns the game phase, from MAX_PHASE with all of the pieces on the board down to 0 with only Kings and Pawns
+	 * @return the game phase
+	 */
+	public int getPhase(){
+		return Math.min(phase, PieceSquareTables.MAX_PHASE);
+	}
+
+	/**
+	 * Stops following the board
+	 */
+	public void detach(){
+		board.removeListener(this);
+	}
+}
@@ -0,0 +1,45 @@
+package eval;
+
+import model.Bitboards;
+import model.Board;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Scores a position by material alone, counted from the bitboards.
+ * Much weaker than the ClassicEvaluator but cheaper, useful to generate games quickly or to test a search.
+ *
+ */
+public class MaterialEvaluator implements Evaluator {
+
+	private Board board;
+
+	/**
+	 * Constructor for an evaluator of a given board
+	 * @param board board to evaluate
+	 */
+	public MaterialEvaluator(Board board){
+		this.board = board;
+	}
+
+	@Override
+	public int evaluate(){
+		Bitboards bitboards = board.getBitboards();
+		int score = 0;
+		for (PieceType type : PieceType.values()){
+			score += PieceSquareTables.MATERIAL[type.ordinal()] * (Long.bitCount(bitboards.getPieces(Color.WHITE, type))
+					- Long.bitCount(bitboards.getPieces(Color.BLACK, type)));
+		}
+		return board.getSideToMove() == Color.WHITE ? score : -score;
+	}
+
+	@Override
+	public Evaluator forBoard(Board board){
+		return board == this.board ? this : new MaterialEvaluator(board);
+	}
+
+	@Override
+	public void detach(){
+		// Material is counted from the bitboards, nothing follows the board
+	}
+}
@@ -0,0 +1,215 @@
+package eval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * The quantised weights of an efficiently updatable neural network, read from a file.
+ * The network has 768 inputs, one for each color, piece type and square seen from one side,
+ * a hidden layer that is computed once for each side, and a single output.
+ *
+ * The file is little endian: the magic number "C48N", a version, the size of the hidden layer,
+ * then the input weights (int16, 768 x hidden, input-major), the hidden biases (int16, hidden),
+ * the output weights (int16, 2 x hidden, the side to move's half first) and the output bias (int32).
+ * Hidden values are clipped to [0, QA] and output weights are scaled by QB.
+ *
+ */
+public class Network {
+
+	public static final int MAGIC = 0x4E383443;
+	public static final int VERSION = 1;
+	public static final int INPUTS = 768;
+	public static final int QA = 255;
+	public static final int QB = 64;
+	public static final int SCALE = 400;
+
+	private final int hidden;
+	private final short[] inputWeights;
+	private final short[] hiddenBiases;
+	private final short[] outputWeights;
+	private final int outputBias;
+
+	/**
+	 * Constructor for a network with given weights
+	 * @param hidden size of the hidden layer
+	 * @param inputWeights input weights, INPUTS x hidden
+	 * @param hiddenBiases hidden biases
+	 * @param outputWeights output weights, 2 x hidden
+	 * @param outputBias output bias
+	 * @throws IllegalArgumentException if the arrays do not match the size of the hidden layer
+	 */
+	public Network(int hidden, short[] inputWeights, short[] hiddenBiases, short[] outputWeights, int outputBias){
+		if (hidden <= 0 || inputWeights.length != INPUTS * hidden || hiddenBiases.length != hidden || outputWeights.length != 2 * hidden){
+			throw new IllegalArgumentException("Network weights do not match a hidden layer of " + hidden);
+		}
+		this.hidden = hidden;
+		this.inputWeights = inputWeights;
+		this.hiddenBiases = hiddenBiases;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+	}
+
+	/**
+	 * Reads a network from a file
+	 * @param path path of the weights file
+	 * @return the network
+	 * @throws IOException if the file cannot be read or is not a network file
+	 */
+	public static Network load(Path path) throws IOException{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			ByteBuffer header = read(channel, 12);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION){
+				throw new IOException("Not a network file: " + path);
+			}
+			int hidden = header.getInt();
+			if (hidden <= 0 || hidden > 1 << 16 || channel.size() != 12 + 2L * (INPUTS * hidden + 3 * hidden) + 4){
+				throw new IOException("Truncated or corrupt network file: " + path);
+			}
+			ByteBuffer data = read(channel, (int) (channel.size() - 12));
+			short[] inputWeights = new short[INPUTS * hidden];
+			short[] hiddenBiases = new short[hidden];
+			short[] outputWeights = new short[2 * hidden];
+			data.asShortBuffer().get(inputWeights);
+			data.position(data.position() + 2 * inputWeights.length);
+			data.asShortBuffer().get(hiddenBiases);
+			data.position(data.position() + 2 * hiddenBiases.length);
+			data.asShortBuffer().get(outputWeights);
+			data.position(data.position() + 2 * outputWeights.length);
+			return new Network(hidden, inputWeights, hiddenBiases, outputWeights, data.getInt());
+		}
+	}
+
+	/**
+	 * Writes the network to a file in the format read by load
+	 * @param path path of the weights file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path path) throws IOException{
+		ByteBuffer data = ByteBuffer.allocate(12 + 2 * (inputWeights.length + hiddenBiases.length + outputWeights.length) + 4)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		data.putInt(MAGIC).putInt(VERSION).putInt(hidden);
+		for (short w : inputWeights){
+			data.putShort(w);
+		}
+		for (short b : hiddenBiases){
+			data.putShort(b);
+		}
+		for (short w : outputWeights){
+			data.putShort(w);
+		}
+		data.putInt(outputBias);
+		data.flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)){
+			while (data.hasRemaining()){
+				channel.write(data);
+			}
+		}
+	}
+
+	/**
+	 * Reads a number of bytes from the current position of a channel
+	 * @param channel channel to read from
+	 * @param length number of bytes
+	 * @return a little endian buffer holding the bytes
+	 * @throws IOException if the channel ends first
+	 */
+	private static ByteBuffer read(FileChannel channel, int length) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer) < 0){
+				throw new IOException("Unexpected end of network file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Returns the input a piece activates, seen from one side
+	 * Each side sees its own pieces first and the board from its own end, so both halves share the same weights
+	 * @param perspective side the board is seen from
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square of the piece
+	 * @return the index of the input
+	 */
+	public static int feature(Color perspective, Color color, PieceType type, int square){
+		int side = color == perspective ? 0 : 1;
+		int relative = perspective == Color.WHITE ? square : square ^ 56;
+		return (side * 6 + type.ordinal()) * 64 + relative;
+	}
+
+	/**
+	 * Returns the size of the hidden layer
+	 * @return the number of hidden values computed for each side
+	 */
+	public int getHidden(){
+		return hidden;
+	}
+
+	/**
+	 * Sets an accumulator to the hidden biases
+	 * @param accumulator accumulator of one side
+	 */
+	void reset(short[] accumulator){
+		System.arraycopy(hiddenBiases, 0, accumulator, 0, hidden);
+	}
+
+	/**
+	 * Adds the weights of an input to an accumulator
+	 * @param accumulator accumulator of one side
+	 * @param feature index of the input
+	 */
+	void add(short[] accumulator, int feature){
+		int offset = feature * hidden;
+		for (int i = 0; i < hidden; i++){
+			accumulator[i] += inputWeights[offset + i];
+		}
+	}
+
+	/**
+	 * Takes the weights of an input away from an accumulator
+	 * @param accumulator accumulator of one side
+	 * @param feature index of the input
+	 */
+	void subtract(short[] accumulator, int feature){
+		int offset = feature * hidden;
+		for (int i = 0; i < hidden; i++){
+			accumulator[i] -= inputWeights[offset + i];
+		}
+	}
+
+	/**
+	 * Computes the output of the network from the accumulators of both sides
+	 * @param us accumulator of the side to move
+	 * @param them accumulator of the other side
+	 * @return the score in centipawns from the point of view of the side to move
+	 */
+	int output(short[] us, short[] them){
+		long sum = 0;
+		for (int i = 0; i < hidden; i++){
+			sum += clip(us[i]) * outputWeights[i];
+		}
+		for (int i = 0; i < hidden; i++){
+			sum += clip(them[i]) * outputWeights[hidden + i];
+		}
+		return (int) ((sum + outputBias) * SCALE / (QA * QB));
+	}
+
+	/**
+	 * Clips a hidden value to [0, QA]
+	 * @param value the value
+	 * @return the clipped value
+	 */
+	private static int clip(short value){
+		return value < 0 ? 0 : (value > QA ? QA : value);
+	}
+}
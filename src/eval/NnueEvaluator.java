@@ -0,0 +1,85 @@
+package eval;
+
+import model.Bitboards;
+import model.Board;
+import model.BoardListener;
+import model.Utils.Color;
+import model.Utils.PieceType;
+import search.Search;
+
+/**
+ * Scores a position with an efficiently updatable neural network.
+ * The first layer of the network is kept in one accumulator per side: placing or taking off a piece
+ * adds or subtracts one column of weights, so making and taking back a move costs a few column updates
+ * and only the small output layer is computed at each evaluation.
+ *
+ */
+public class NnueEvaluator implements Evaluator, BoardListener {
+
+	/**
+	 * Largest score the network may give, below every tablebase win and mate score of the search,
+	 * so that no evaluation is ever taken for one
+	 */
+	public static final int MAX_SCORE = Search.TB_WIN - Search.MAX_PLY;
+
+	private Network network;
+	private Board board;
+	private short[][] accumulators;
+
+	/**
+	 * Constructor for an evaluator of a given board, fills the accumulators from the pieces on it and follows its changes
+	 * @param network network to evaluate with, may be shared by any number of evaluators
+	 * @param board board to evaluate
+	 */
+	public NnueEvaluator(Network network, Board board){
+		this.network = network;
+		this.board = board;
+		accumulators = new short[Color.values().length][network.getHidden()];
+		for (short[] accumulator : accumulators){
+			network.reset(accumulator);
+		}
+		Bitboards bitboards = board.getBitboards();
+		for (Color color : Color.values()){
+			for (PieceType type : PieceType.values()){
+				long pieces = bitboards.getPieces(color, type);
+				while (pieces != 0){
+					pieceAdded(color, type, Long.numberOfTrailingZeros(pieces));
+					pieces &= pieces - 1;
+				}
+			}
+		}
+		board.addListener(this);
+	}
+
+	@Override
+	public void pieceAdded(Color color, PieceType type, int square){
+		for (Color perspective : Color.values()){
+			network.add(accumulators[perspective.ordinal()], Network.feature(perspective, color, type, square));
+		}
+	}
+
+	@Override
+	public void pieceRemoved(Color color, PieceType type, int square){
+		for (Color perspective : Color.values()){
+			network.subtract(accumulators[perspective.ordinal()], Network.feature(perspective, color, type, square));
+		}
+	}
+
+	@Override
+	public int evaluate(){
+		Color us = board.getSideToMove();
+		Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+		int score = network.output(accumulators[us.ordinal()], accumulators[them.ordinal()]);
+		return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+	}
+
+	@Override
+	public Evaluator forBoard(Board board){
+		return board == this.board ? this : new NnueEvaluator(network, board);
+	}
+
+	@Override
+	public void detach(){
+		board.removeListener(this);
+	}
+}
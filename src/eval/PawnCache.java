@@ -0,0 +1,98 @@
+package eval;
+
+/**
+ * A bounded cache of pawn structure scores, indexed by the pawn key of a board.
+ * The pawn structure changes far less often than the rest of the position, so most evaluations
+ * of a search find their pawn score here instead of computing it again.
+ * Entries are replaced whenever another structure maps to the same slot.
+ * A cache is not shared between threads, each evaluator has its own.
+ *
+ */
+public class PawnCache {
+
+	/**
+	 * Default number of entries
+	 */
+	public static final int DEFAULT_ENTRIES = 1 << 14;
+
+	private long[] keys;
+	private int[] scores;
+	private int mask;
+	private long probes;
+	private long hits;
+
+	/**
+	 * Constructor for a cache with the default number of entries
+	 */
+	public PawnCache(){
+		this(DEFAULT_ENTRIES);
+	}
+
+	/**
+	 * Constructor for a cache with a given number of entries
+	 * An empty entry has key 0, the key of a position without Pawns, whose score is also 0
+	 * @param entries number of entries, rounded down to a power of two
+	 */
+	public PawnCache(int entries){
+		int size = Integer.highestOneBit(Math.max(1, entries));
+		keys = new long[size];
+		scores = new int[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Returns the pawn structure score of a position, computing and storing it if it is not in the cache
+	 * @param key pawn key of the position
+	 * @param white bitboard of the White Pawns
+	 * @param black bitboard of the Black Pawns
+	 * @return the packed score from White's point of view, as by PawnStructure
+	 */
+	public int probe(long key, long white, long black){
+		probes++;
+		int index = (int) key & mask;
+		if (keys[index] == key){
+			hits++;
+			return scores[index];
+		}
+		int score = PawnStructure.evaluate(white, black);
+		keys[index] = key;
+		scores[index] = score;
+		return score;
+	}
+
+	/**
+	 * Removes every entry and resets the counters
+	 */
+	public void clear(){
+		for (int i = 0; i < keys.length; i++){
+			keys[i] = 0L;
+			scores[i] = 0;
+		}
+		probes = 0;
+		hits = 0;
+	}
+
+	/**
+	 * Returns the number of lookups since the cache was created or cleared
+	 * @return the number of lookups
+	 */
+	public long getProbes(){
+		return probes;
+	}
+
+	/**
+	 * Returns the number of lookups that found their score in the cache
+	 * @return the number of hits
+	 */
+	public long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Returns the share of lookups that found their score in the cache
+	 * @return the hit rate between 0 and 1, 0 if there were no lookups
+	 */
+	public double getHitRate(){
+		return probes == 0 ? 0.0 : (double) hits / probes;
+	}
+}
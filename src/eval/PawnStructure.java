@@ -0,0 +1,116 @@
+package eval;
+
+/**
+ * Scores the pawn structure of a position from the Pawns alone: doubled, isolated and passed Pawns.
+ * Middlegame and endgame scores are packed into one int, the endgame half in the upper 16 bits,
+ * so that both can be added up and stored together.
+ *
+ */
+public class PawnStructure {
+
+	private static final int DOUBLED_MIDDLEGAME = -10;
+	private static final int DOUBLED_ENDGAME = -20;
+	private static final int ISOLATED_MIDDLEGAME = -10;
+	private static final int ISOLATED_ENDGAME = -15;
+	private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+	private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 90, 130, 0};
+
+	private static final long FILE_A = 0x0101010101010101L;
+	private static final long[] FILES = new long[8];
+	private static final long[] ADJACENT_FILES = new long[8];
+	private static final long[] WHITE_PASSED_MASK = new long[64];
+	private static final long[] BLACK_PASSED_MASK = new long[64];
+
+	static {
+		for (int file = 0; file < 8; file++){
+			FILES[file] = FILE_A << file;
+		}
+		for (int file = 0; file < 8; file++){
+			ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+		}
+		for (int square = 0; square < 64; square++){
+			int file = square & 7;
+			int rank = square >>> 3;
+			long span = FILES[file] | ADJACENT_FILES[file];
+			// Squares ahead of the Pawn on its own and the adjacent files, from each side's point of view
+			WHITE_PASSED_MASK[square] = rank == 7 ? 0L : span & (-1L << ((rank + 1) * 8));
+			BLACK_PASSED_MASK[square] = rank == 0 ? 0L : span & ((1L << (rank * 8)) - 1);
+		}
+	}
+
+	/**
+	 * Packs a middlegame and an endgame score into one int
+	 * @param middlegame middlegame score
+	 * @param endgame endgame score
+	 * @return the packed score
+	 */
+	public static int pack(int middlegame, int endgame){
+		return (endgame << 16) + middlegame;
+	}
+
+	/**
+	 * Returns the middlegame half of a packed score
+	 * @param packed packed score
+	 * @return the middlegame score
+	 */
+	public static int middlegame(int packed){
+		return (short) packed;
+	}
+
+	/**
+	 * Returns the endgame half of a packed score
+	 * @param packed packed score
+	 * @return the endgame score
+	 */
+	public static int endgame(int packed){
+		return (packed + 0x8000) >> 16;
+	}
+
+	/**
+	 * Scores the Pawns of both colors
+	 * @param white bitboard of the White Pawns
+	 * @param black bitboard of the Black Pawns
+	 * @return the packed score from White's point of view
+	 */
+	public static int evaluate(long white, long black){
+		return score(white, black, true) - score(black, white, false);
+	}
+
+	/**
+	 * Scores the Pawns of one color
+	 * @param own bitboard of the Pawns to score
+	 * @param other bitboard of the opposing Pawns
+	 * @param white whether the Pawns to score are White
+	 * @return the packed score from the point of view of the Pawns' color
+	 */
+	private static int score(long own, long other, boolean white){
+		int middlegame = 0;
+		int endgame = 0;
+		for (int file = 0; file < 8; file++){
+			int count = Long.bitCount(own & FILES[file]);
+			if (count == 0){
+				continue;
+			}
+			if (count > 1){
+				middlegame += DOUBLED_MIDDLEGAME * (count - 1);
+				endgame += DOUBLED_ENDGAME * (count - 1);
+			}
+			if ((own & ADJACENT_FILES[file]) == 0){
+				middlegame += ISOLATED_MIDDLEGAME * count;
+				endgame += ISOLATED_ENDGAME * count;
+			}
+		}
+		long pawns = own;
+		while (pawns != 0){
+			int square = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			long mask = white ? WHITE_PASSED_MASK[square] : BLACK_PASSED_MASK[square];
+			if ((other & mask) == 0){
+				int rank = white ? square >>> 3 : 7 - (square >>> 3);
+				middlegame += PASSED_MIDDLEGAME[rank];
+				endgame += PASSED_ENDGAME[rank];
+			}
+		}
+		return pack(middlegame, endgame);
+	}
+}
@@ -0,0 +1,158 @@
+package eval;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Material values and piece-square tables, for the middlegame and the endgame.
+ * The tables are written from White's point of view with rank 8 first, as a board is usually drawn,
+ * and are mirrored for Black. The values a piece is looked up with already include its material.
+ *
+ */
+public class PieceSquareTables {
+
+	/**
+	 * Material value of each piece type in centipawns, indexed by PieceType ordinal
+	 */
+	public static final int[] MATERIAL = {100, 320, 330, 500, 900, 0};
+
+	/**
+	 * Weight of each piece type in the game phase, indexed by PieceType ordinal
+	 */
+	public static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+
+	/**
+	 * Game phase with all of the pieces on the board, anything less is tapered towards the endgame
+	 */
+	public static final int MAX_PHASE = 24;
+
+	private static final int[] PAWN = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 10,  10,  20,  30,  30,  20,  10,  10,
+		  5,   5,  10,  25,  25,  10,   5,   5,
+		  0,   0,   0,  20,  20,   0,   0,   0,
+		  5,  -5, -10,   0,   0, -10,  -5,   5,
+		  5,  10,  10, -20, -20,  10,  10,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0,
+	};
+
+	private static final int[] PAWN_ENDGAME = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 80,  80,  80,  80,  80,  80,  80,  80,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 30,  30,  30,  30,  30,  30,  30,  30,
+		 15,  15,  15,  15,  15,  15,  15,  15,
+		  5,   5,   5,   5,   5,   5,   5,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  0,   0,   0,   0,   0,   0,   0,   0,
+	};
+
+	private static final int[] KNIGHT = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20,   0,   0,   0,   0, -20, -40,
+		-30,   0,  10,  15,  15,  10,   0, -30,
+		-30,   5,  15,  20,  20,  15,   5, -30,
+		-30,   0,  15,  20,  20,  15,   0, -30,
+		-30,   5,  10,  15,  15,  10,   5, -30,
+		-40, -20,   0,   5,   5,   0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50,
+	};
+
+	private static final int[] BISHOP = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,  10,  10,   5,   0, -10,
+		-10,   5,   5,  10,  10,   5,   5, -10,
+		-10,   0,  10,  10,  10,  10,   0, -10,
+		-10,  10,  10,  10,  10,  10,  10, -10,
+		-10,   5,   0,   0,   0,   0,   5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20,
+	};
+
+	private static final int[] ROOK = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  5,  10,  10,  10,  10,  10,  10,   5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		  0,   0,   0,   5,   5,   0,   0,   0,
+	};
+
+	private static final int[] QUEEN = {
+		-20, -10, -10,  -5,  -5, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,   5,   5,   5,   0, -10,
+		 -5,   0,   5,   5,   5,   5,   0,  -5,
+		  0,   0,   5,   5,   5,   5,   0,  -5,
+		-10,   5,   5,   5,   5,   5,   0, -10,
+		-10,   0,   5,   0,   0,   0,   0, -10,
+		-20, -10, -10,  -5,  -5, -10, -10, -20,
+	};
+
+	private static final int[] KING = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		 20,  20,   0,   0,   0,   0,  20,  20,
+		 20,  30,  10,   0,   0,  10,  30,  20,
+	};
+
+	private static final int[] KING_ENDGAME = {
+		-50, -40, -30, -20, -20, -30, -40, -50,
+		-30, -20, -10,   0,   0, -10, -20, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -30,   0,   0,   0,   0, -30, -30,
+		-50, -30, -30, -30, -30, -30, -30, -50,
+	};
+
+	private static final int[][][] MIDDLEGAME = build(new int[][]{PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING});
+	private static final int[][][] ENDGAME = build(new int[][]{PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME});
+
+	/**
+	 * Builds the lookup tables of both colors from tables written from White's point of view, adding the material
+	 * @param tables table of each piece type, indexed by PieceType ordinal
+	 * @return values indexed by Color ordinal, PieceType ordinal and square
+	 */
+	private static int[][][] build(int[][] tables){
+		int[][][] values = new int[Color.values().length][PieceType.values().length][64];
+		for (int type = 0; type < tables.length; type++){
+			for (int square = 0; square < 64; square++){
+				// Square 0 is a1, the bottom left of the written table
+				values[Color.WHITE.ordinal()][type][square] = MATERIAL[type] + tables[type][square ^ 56];
+				values[Color.BLACK.ordinal()][type][square] = MATERIAL[type] + tables[type][square];
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the middlegame value of a piece on a square, including its material
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square of the piece
+	 * @return the value in centipawns, from the point of view of the piece's color
+	 */
+	public static int middlegame(Color color, PieceType type, int square){
+		return MIDDLEGAME[color.ordinal()][type.ordinal()][square];
+	}
+
+	/**
+	 * Returns the endgame value of a piece on a square, including its material
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square of the piece
+	 * @return the value in centipawns, from the point of view of the piece's color
+	 */
+	public static int endgame(Color color, PieceType type, int square){
+		return ENDGAME[color.ordinal()][type.ordinal()][square];
+	}
+}
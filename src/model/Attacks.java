@@ -0,0 +1,263 @@
+package model;
+
+import model.Utils.Color;
+
+/**
+ * A utility class that computes the squares attacked by a piece as a bitboard.
+ * Bit n of a bitboard is set when square n is attacked, where squares are numbered
+ * from 0 (a1) to 63 (h8) as returned by FileRank.getSquare()
+ * 
+ * Every attack is looked up in a table filled once when the class is loaded. Knight, King and Pawn
+ * attacks only depend on the square. Rook and Bishop attacks also depend on the pieces in the way, and
+ * are found with magic bitboards: the occupied squares on the piece's rays are multiplied by a magic number
+ * chosen so that the top bits of the product index a table of every possible set of attacks.
+ *
+ */
+public class Attacks {
+
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_B = FILE_A << 1;
+	public static final long FILE_G = FILE_A << 6;
+	public static final long FILE_H = FILE_A << 7;
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_8 = RANK_1 << 56;
+
+	private static final long[] ROOK_MAGICS = {
+		0x2180022080104000L, 0x0040100040002000L, 0x2100102000084100L, 0x0100042010000900L,
+		0x0E00082031060024L, 0x0100010004000208L, 0x0200020004008108L, 0x0200004204002081L,
+		0x1098800880204000L, 0x1004402010004000L, 0x0000808020001000L, 0x2201001000082103L,
+		0x2802802800801C00L, 0x0000808004000200L, 0x02040048142A0110L, 0x400200004400A201L,
+		0x2808248000804004L, 0x8810004000402000L, 0x0000808010002002L, 0x0000808008001002L,
+		0x4002020004201008L, 0x1000808004000200L, 0x0098040001181230L, 0x0010020001009844L,
+		0x0000802080004000L, 0x0040008180402008L, 0x3220001010040201L, 0x0002001200204009L,
+		0x1104080080800400L, 0x2420040080020080L, 0x0020010080800200L, 0x8101124200090284L,
+		0x0400408102002200L, 0x0410402000401000L, 0x0100820042001022L, 0x0881002009001000L,
+		0x1054040080800801L, 0x8204020080800400L, 0x0022800200808100L, 0x200000A852000401L,
+		0x0840802040028004L, 0x0020200050084001L, 0x8108102001010041L, 0x4008001000210100L,
+		0x0414004080080800L, 0x8401000204010008L, 0x0240010002008080L, 0x0802008420420001L,
+		0x0080410030800500L, 0x02400050012008C0L, 0xC030080401200220L, 0x0050000800440040L,
+		0x8C04910008000500L, 0x0080800200040080L, 0x2080104201480400L, 0x0108004104008200L,
+		0x0000210840148001L, 0x20C0400224108501L, 0x0422000820821242L, 0x0002500104486101L,
+		0x1401000208001005L, 0x8262003B10080402L, 0x00000C88102A0904L, 0x0002002294010142L
+	};
+
+	private static final long[] BISHOP_MAGICS = {
+		0x01101408080460A9L, 0x4C10010200920862L, 0x4041040080802001L, 0x1024240080882220L,
+		0x2101104100400001L, 0x2040822062124041L, 0x800108D004200480L, 0xA183024104A01001L,
+		0x0001084284040408L, 0x0002200A02220222L, 0x0000410440808090L, 0x1080044400800004L,
+		0x4100640420140010L, 0x1180211008044000L, 0x8804010108224180L, 0x840009004D04A010L,
+		0x0004800920040400L, 0x3042100870040880L, 0x0008061000401020L, 0x0008110404200800L,
+		0x9002000C12024000L, 0x0211014809080224L, 0xA004400222022008L, 0x2218260044040400L,
+		0x0020040209310410L, 0x0282C20008100410L, 0x000802000C012600L, 0x8001041068020020L,
+		0x0A00404104010040L, 0x0208088101B00400L, 0x0028005426160204L, 0x0821021000404400L,
+		0x4044A02000E88210L, 0x5000941406115011L, 0x0000140214100081L, 0x8200200800450810L,
+		0x8824010010640040L, 0x0010408200002200L, 0x090418204706012CL, 0x03308100420D0401L,
+		0x00041404C000048AL, 0x0001010120001004L, 0x0801040422004406L, 0x0AC480C208022482L,
+		0xC300080100401400L, 0x0040090202800409L, 0x0020024400400100L, 0x8C44080048430102L,
+		0x1002220220040400L, 0x0040804808840800L, 0x1000020900880000L, 0x2900000084040408L,
+		0x0081144010410008L, 0x2000405002108002L, 0x1DA0891010809082L, 0x4002100522009200L,
+		0xA611010800820940L, 0x0003802082301000L, 0x209084A044040401L, 0x0000000220411082L,
+		0x1006A10484608210L, 0x0000840890101890L, 0x0400420801240080L, 0x4008101088050020L
+	};
+
+	private static final long[] KNIGHT = new long[64];
+	private static final long[] KING = new long[64];
+	private static final long[][] PAWN = new long[2][64];
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] ROOK_OFFSETS = new int[64];
+	private static final long[] ROOK_TABLE;
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	private static final long[] BISHOP_TABLE;
+
+	private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+	static {
+		for (int square = 0; square < 64; square++){
+			long b = 1L << square;
+			long l1 = (b >>> 1) & ~FILE_H;
+			long l2 = (b >>> 2) & ~(FILE_G | FILE_H);
+			long r1 = (b << 1) & ~FILE_A;
+			long r2 = (b << 2) & ~(FILE_A | FILE_B);
+			long h1 = l1 | r1;
+			long h2 = l2 | r2;
+			KNIGHT[square] = (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+			long row = b | l1 | r1;
+			KING[square] = (row | (row << 8) | (row >>> 8)) & ~b;
+			PAWN[Color.WHITE.ordinal()][square] = ((b << 7) & ~FILE_H) | ((b << 9) & ~FILE_A);
+			PAWN[Color.BLACK.ordinal()][square] = ((b >>> 9) & ~FILE_H) | ((b >>> 7) & ~FILE_A);
+		}
+		ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS);
+		BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+	}
+
+	/**
+	 * Returns the squares a Knight attacks from a given square
+	 * @param square square the Knight is on
+	 * @return bitboard of attacked squares
+	 */
+	public static long knightAttacks(int square){
+		return KNIGHT[square];
+	}
+
+	/**
+	 * Returns the squares a King attacks from a given square
+	 * @param square square the King is on
+	 * @return bitboard of attacked squares
+	 */
+	public static long kingAttacks(int square){
+		return KING[square];
+	}
+
+	/**
+	 * Returns the squares a Pawn of the given color attacks diagonally from a given square
+	 * @param color color of the Pawn
+	 * @param square square the Pawn is on
+	 * @return bitboard of attacked squares
+	 */
+	public static long pawnAttacks(Color color, int square){
+		return PAWN[color.ordinal()][square];
+	}
+
+	/**
+	 * Returns the squares a Rook attacks from a given square
+	 * Each ray stops at, and includes, the first occupied square
+	 * @param square square the Rook is on
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares
+	 */
+	public static long rookAttacks(int square, long occupied){
+		return ROOK_TABLE[ROOK_OFFSETS[square]
+				+ (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares a Bishop attacks from a given square
+	 * Each ray stops at, and includes, the first occupied square
+	 * @param square square the Bishop is on
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares
+	 */
+	public static long bishopAttacks(int square, long occupied){
+		return BISHOP_TABLE[BISHOP_OFFSETS[square]
+				+ (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	/**
+	 * Returns the squares a Queen attacks from a given square
+	 * @param square square the Queen is on
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares
+	 */
+	public static long queenAttacks(int square, long occupied){
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+
+	/**
+	 * Fills the lookup table of a sliding piece for every square
+	 * For each square, every subset of the squares that can block the piece is enumerated,
+	 * its attacks are found by walking the rays, and stored at the index given by the magic number
+	 * @param directions file and rank steps of the piece's rays
+	 * @param magics magic number of each square
+	 * @param masks filled with the squares that can block the piece from each square, edges excluded
+	 * @param shifts filled with the shift that leaves the index bits of the product
+	 * @param offsets filled with the start of each square's entries in the table
+	 * @return the table of attacks for every square
+	 */
+	private static long[] initMagics(int[][] directions, long[] magics, long[] masks, int[] shifts, int[] offsets){
+		int size = 0;
+		for (int square = 0; square < 64; square++){
+			masks[square] = blockers(square, directions);
+			int bits = Long.bitCount(masks[square]);
+			shifts[square] = 64 - bits;
+			offsets[square] = size;
+			size += 1 << bits;
+		}
+		long[] table = new long[size];
+		for (int square = 0; square < 64; square++){
+			long mask = masks[square];
+			long subset = 0L;
+			// Carry-Rippler enumeration of every subset of the mask
+			do{
+				int index = (int) ((subset * magics[square]) >>> shifts[square]);
+				table[offsets[square] + index] = slidingAttacks(square, subset, directions);
+				subset = (subset - mask) & mask;
+			}while (subset != 0);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the squares on a sliding piece's rays that can block it, not counting the last square of each ray,
+	 * since a piece there does not change which squares are attacked
+	 * @param square square the piece is on
+	 * @param directions file and rank steps of the piece's rays
+	 * @return bitboard of the squares
+	 */
+	private static long blockers(int square, int[][] directions){
+		long mask = 0L;
+		for (int[] direction : directions){
+			mask |= ray(square, 0L, direction[0], direction[1]) & ~lastSquare(square, direction[0], direction[1]);
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the last square on a ray before the edge of the board
+	 * @param square square the ray starts from
+	 * @param fileStep file increment of the ray
+	 * @param rankStep rank increment of the ray
+	 * @return bitboard of the last square, 0 if the ray is empty
+	 */
+	private static long lastSquare(int square, int fileStep, int rankStep){
+		long ray = ray(square, 0L, fileStep, rankStep);
+		if (ray == 0){
+			return 0L;
+		}
+		return fileStep + rankStep * 8 > 0 ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+	}
+
+	/**
+	 * Returns the squares a sliding piece attacks by walking each of its rays
+	 * @param square square the piece is on
+	 * @param occupied bitboard of all occupied squares
+	 * @param directions file and rank steps of the piece's rays
+	 * @return bitboard of attacked squares
+	 */
+	private static long slidingAttacks(int square, long occupied, int[][] directions){
+		long attacks = 0L;
+		for (int[] direction : directions){
+			attacks |= ray(square, occupied, direction[0], direction[1]);
+		}
+		return attacks;
+	}
+
+	/**
+	 * Walks one ray from a square until the edge of the board or the first occupied square
+	 * @param square square the ray starts from, not included
+	 * @param occupied bitboard of all occupied squares
+	 * @param fileStep file increment of the ray
+	 * @param rankStep rank increment of the ray
+	 * @return bitboard of the squares on the ray
+	 */
+	private static long ray(int square, long occupied, int fileStep, int rankStep){
+		long attacks = 0L;
+		int file = (square & 7) + fileStep;
+		int rank = (square >>> 3) + rankStep;
+		while (file >= 0 && file < 8 && rank >= 0 && rank < 8){
+			long b = 1L << (rank * 8 + file);
+			attacks |= b;
+			if ((occupied & b) != 0){
+				break;
+			}
+			file += fileStep;
+			rank += rankStep;
+		}
+		return attacks;
+	}
+}
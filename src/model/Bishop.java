@@ -4,6 +4,7 @@ package model;
  * A class representation of the Bishop piece
  */
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Bishop extends Piece{
 
@@ -15,6 +16,14 @@ public class Bishop extends Piece{
 		super(color);
 	}
 
+	/**
+	 * Copy constructor for the Bishop
+	 * @param other Bishop to copy
+	 */
+	public Bishop(Bishop other) {
+		super(other);
+	}
+
 	/**
 	 * Sets the next possible moves for the Bishop
 	 * 
@@ -24,79 +33,26 @@ public class Bishop extends Piece{
 	@Override
 	public void setNextPossibleMoves() {
 		resetPossibleMoves();
-		char file = this.getCurrentFR().getFile();
-		int rank = this.getCurrentFR().getRank();
-		//North-West
-		int inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		//North-East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		
-		//South-East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		
-		//South-West
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}	
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
+		int square = this.getCurrentFR().getSquare();
+		long occupied = board.getBitboards().getOccupied();
+		addPossibleMoves(Attacks.bishopAttacks(square, occupied) & ~board.getBitboards().getOccupied(this.getColor()));
+		checkKing();
+	}
+	
+	/**
+	 * Returns the type of the Bishop
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.BISHOP;
+	}
+	
+	/**
+	 * Returns a copy of the Bishop
+	 */
+	@Override
+	public Piece copy() {
+		return new Bishop(this);
 	}
 	
 	/**
@@ -0,0 +1,258 @@
+package model;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * A bitboard representation of the pieces on a board, kept in step with the FileRanks of the Board.
+ * There is one 64-bit board per color and piece type, bit n is set when square n
+ * (0 = a1, 63 = h8) holds such a piece.
+ *
+ * The squares each color attacks are kept as well, as a count of attackers per square and a bitboard of the
+ * squares with at least one attacker. They are updated as pieces are added and removed: the piece's own attacks
+ * are added or taken away, and the sliding pieces whose rays pass through the square are extended or cut short.
+ *
+ */
+public class Bitboards {
+
+	private long[][] pieces;
+	private long[] occupied;
+	private long allOccupied;
+	private int[][] attackers;
+	private long[] attacked;
+
+	/**
+	 * Constructor for an empty set of bitboards
+	 */
+	public Bitboards(){
+		pieces = new long[Color.values().length][PieceType.values().length];
+		occupied = new long[Color.values().length];
+		allOccupied = 0L;
+		attackers = new int[Color.values().length][64];
+		attacked = new long[Color.values().length];
+	}
+
+	/**
+	 * Adds a piece to a square
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square the piece is placed on
+	 */
+	public void add(Color color, PieceType type, int square){
+		long b = 1L << square;
+		long before = allOccupied;
+		pieces[color.ordinal()][type.ordinal()] |= b;
+		occupied[color.ordinal()] |= b;
+		allOccupied |= b;
+		updateSliders(square, before);
+		updateAttacks(color, attacks(color, type, square, allOccupied), 1);
+	}
+
+	/**
+	 * Removes a piece from a square
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square the piece is removed from
+	 */
+	public void remove(Color color, PieceType type, int square){
+		long b = ~(1L << square);
+		long before = allOccupied;
+		updateAttacks(color, attacks(color, type, square, allOccupied), -1);
+		pieces[color.ordinal()][type.ordinal()] &= b;
+		occupied[color.ordinal()] &= b;
+		allOccupied &= b;
+		updateSliders(square, before);
+	}
+
+	/**
+	 * Updates the attacks of the sliding pieces that see a square whose occupancy has changed
+	 * @param square square that was emptied or filled
+	 * @param before bitboard of the occupied squares before the change
+	 */
+	private void updateSliders(int square, long before){
+		for (Color color : Color.values()){
+			long[] p = pieces[color.ordinal()];
+			long queens = p[PieceType.QUEEN.ordinal()];
+			long sliders = (Attacks.rookAttacks(square, before) & (p[PieceType.ROOK.ordinal()] | queens))
+					| (Attacks.bishopAttacks(square, before) & (p[PieceType.BISHOP.ordinal()] | queens));
+			while (sliders != 0){
+				int slider = Long.numberOfTrailingZeros(sliders);
+				sliders &= sliders - 1;
+				PieceType type = (queens & (1L << slider)) != 0 ? PieceType.QUEEN
+						: ((p[PieceType.ROOK.ordinal()] & (1L << slider)) != 0 ? PieceType.ROOK : PieceType.BISHOP);
+				long old = attacks(color, type, slider, before);
+				long now = attacks(color, type, slider, allOccupied);
+				updateAttacks(color, old & ~now, -1);
+				updateAttacks(color, now & ~old, 1);
+			}
+		}
+	}
+
+	/**
+	 * Adds to or takes away from the number of attackers of a color on every square of a bitboard
+	 * @param color color of the attacking piece
+	 * @param squares bitboard of the attacked squares
+	 * @param change 1 to add an attacker, -1 to take one away
+	 */
+	private void updateAttacks(Color color, long squares, int change){
+		int[] counts = attackers[color.ordinal()];
+		while (squares != 0){
+			int square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			counts[square] += change;
+			if (counts[square] == 0){
+				attacked[color.ordinal()] &= ~(1L << square);
+			}else{
+				attacked[color.ordinal()] |= 1L << square;
+			}
+		}
+	}
+
+	/**
+	 * Returns the squares attacked by a piece
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square of the piece
+	 * @param occupied bitboard of the occupied squares that block sliding pieces
+	 * @return bitboard of the attacked squares
+	 */
+	private static long attacks(Color color, PieceType type, int square, long occupied){
+		switch(type){
+		case PAWN:
+			return Attacks.pawnAttacks(color, square);
+		case KNIGHT:
+			return Attacks.knightAttacks(square);
+		case BISHOP:
+			return Attacks.bishopAttacks(square, occupied);
+		case ROOK:
+			return Attacks.rookAttacks(square, occupied);
+		case QUEEN:
+			return Attacks.queenAttacks(square, occupied);
+		default:
+			return Attacks.kingAttacks(square);
+		}
+	}
+
+	/**
+	 * Returns the bitboard of all pieces of a given color and type
+	 * @param color color of the pieces
+	 * @param type type of the pieces
+	 * @return bitboard of the pieces
+	 */
+	public long getPieces(Color color, PieceType type){
+		return pieces[color.ordinal()][type.ordinal()];
+	}
+
+	/**
+	 * Returns the bitboard of all squares occupied by a given color
+	 * @param color color of the pieces
+	 * @return bitboard of the occupied squares
+	 */
+	public long getOccupied(Color color){
+		return occupied[color.ordinal()];
+	}
+
+	/**
+	 * Returns the bitboard of all occupied squares
+	 * @return bitboard of the occupied squares
+	 */
+	public long getOccupied(){
+		return allOccupied;
+	}
+
+	/**
+	 * Returns the square of the King of a given color
+	 * @param color color of the King
+	 * @return square of the King, 64 if there is no King of that color
+	 */
+	public int getKingSquare(Color color){
+		return Long.numberOfTrailingZeros(pieces[color.ordinal()][PieceType.KING.ordinal()]);
+	}
+
+	/**
+	 * Returns the pieces of a given color that attack a square
+	 * @param square square that is attacked
+	 * @param by color of the attacking pieces
+	 * @param occupied bitboard of the occupied squares that block sliding pieces
+	 * @return bitboard of the attacking pieces
+	 */
+	public long attackersTo(int square, Color by, long occupied){
+		long[] p = pieces[by.ordinal()];
+		Color other = by == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long queens = p[PieceType.QUEEN.ordinal()];
+		return (Attacks.pawnAttacks(other, square) & p[PieceType.PAWN.ordinal()])
+			 | (Attacks.knightAttacks(square) & p[PieceType.KNIGHT.ordinal()])
+			 | (Attacks.kingAttacks(square) & p[PieceType.KING.ordinal()])
+			 | (Attacks.rookAttacks(square, occupied) & (p[PieceType.ROOK.ordinal()] | queens))
+			 | (Attacks.bishopAttacks(square, occupied) & (p[PieceType.BISHOP.ordinal()] | queens));
+	}
+
+	/**
+	 * Returns the pieces of both colors that attack a square, in a single pass over the piece types
+	 * @param square square that is attacked
+	 * @param occupied bitboard of the occupied squares that block sliding pieces
+	 * @return bitboard of the attacking pieces
+	 */
+	public long attackersTo(int square, long occupied){
+		long[] w = pieces[Color.WHITE.ordinal()];
+		long[] b = pieces[Color.BLACK.ordinal()];
+		int pawn = PieceType.PAWN.ordinal();
+		int knight = PieceType.KNIGHT.ordinal();
+		int king = PieceType.KING.ordinal();
+		return (Attacks.pawnAttacks(Color.BLACK, square) & w[pawn])
+			 | (Attacks.pawnAttacks(Color.WHITE, square) & b[pawn])
+			 | (Attacks.knightAttacks(square) & (w[knight] | b[knight]))
+			 | (Attacks.kingAttacks(square) & (w[king] | b[king]))
+			 | (Attacks.rookAttacks(square, occupied) & getRookSliders())
+			 | (Attacks.bishopAttacks(square, occupied) & getBishopSliders());
+	}
+
+	/**
+	 * Returns the Rooks and Queens of both colors, the pieces that slide along files and ranks
+	 * @return bitboard of the pieces
+	 */
+	public long getRookSliders(){
+		int rook = PieceType.ROOK.ordinal();
+		int queen = PieceType.QUEEN.ordinal();
+		return pieces[0][rook] | pieces[0][queen] | pieces[1][rook] | pieces[1][queen];
+	}
+
+	/**
+	 * Returns the Bishops and Queens of both colors, the pieces that slide along diagonals
+	 * @return bitboard of the pieces
+	 */
+	public long getBishopSliders(){
+		int bishop = PieceType.BISHOP.ordinal();
+		int queen = PieceType.QUEEN.ordinal();
+		return pieces[0][bishop] | pieces[0][queen] | pieces[1][bishop] | pieces[1][queen];
+	}
+
+	/**
+	 * Returns whether or not a square is attacked by any piece of a given color
+	 * @param square square to check
+	 * @param by color of the attacking pieces
+	 * @return true if the square is attacked, false otherwise
+	 */
+	public boolean isAttacked(int square, Color by){
+		return (attacked[by.ordinal()] & (1L << square)) != 0;
+	}
+
+	/**
+	 * Returns the number of pieces of a given color that attack a square
+	 * @param square square to check
+	 * @param by color of the attacking pieces
+	 * @return the number of attackers
+	 */
+	public int getAttackerCount(int square, Color by){
+		return attackers[by.ordinal()][square];
+	}
+
+	/**
+	 * Returns every square attacked by a given color
+	 * @param by color of the attacking pieces
+	 * @return bitboard of the attacked squares
+	 */
+	public long getAttacked(Color by){
+		return attacked[by.ordinal()];
+	}
+}
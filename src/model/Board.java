@@ -6,11 +6,30 @@ package model;
  * 
  * @author jmm754 and yuky
  */
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Board {
 	
 	FileRank[][] gameBoard;
+	private Bitboards bitboards;
+	private Player[] players;
+	private Color sideToMove;
+	private long enPassantSquares;
+	private long key;
+	private long pawnKey;
+	private int halfmoveClock;
+	private int fullmoveNumber;
+	private MoveUndo[] undoStack;
+	private int ply;
+	private long[] keyHistory;
+	private int keyCount;
+	private MoveGenerator moveGenerator;
+	private BoardListener[] listeners;
 	
 	/**
 	 * Constructor for the chess board, creates the specified number of FileRanks
@@ -19,9 +38,17 @@ public class Board {
 	 */
 	public Board(int files, int ranks){
 		gameBoard = new FileRank[files][ranks];
+		bitboards = new Bitboards();
+		players = new Player[Color.values().length];
+		sideToMove = Color.WHITE;
+		fullmoveNumber = 1;
+		undoStack = new MoveUndo[256];
+		keyHistory = new long[256];
+		moveGenerator = new MoveGenerator(this);
+		listeners = new BoardListener[0];
 		for (int i = 0; i < files; i++){
 			for (int j = 0; j < ranks; j++){
-				gameBoard[i][j] = new FileRank(j + 1, ranks - i);
+				gameBoard[i][j] = new FileRank(j + 1, ranks - i, this);
 			}
 		}
 	}
@@ -43,37 +70,297 @@ public class Board {
 	}
 	
 	/**
-	 * Resets the threat for a given player
-	 * @param player player to reset threat
+	 * Returns the FileRank at a given square index, without bounds checking
+	 * @param square index of the FileRank, from 0 (a1) to 63 (h8)
+	 * @return the FileRank at the given square
+	 */
+	public FileRank getFileRankAt(int square){
+		return gameBoard[gameBoard.length - 1 - (square >>> 3)][square & 7];
+	}
+	
+	/**
+	 * Returns the bitboards of the pieces on this board
+	 * @return the bitboards of the pieces on this board
+	 */
+	public Bitboards getBitboards(){
+		return bitboards;
+	}
+	
+	/**
+	 * Returns the generator of the legal moves of the side to move
+	 * @return the move generator of this board
+	 */
+	public MoveGenerator getMoveGenerator(){
+		return moveGenerator;
+	}
+	
+	/**
+	 * Returns the player of a given color that is playing on this board
+	 * @param color color of the player
+	 * @return the player of that color, null if no such player placed pieces on this board
+	 */
+	public Player getPlayer(Color color){
+		return players[color.ordinal()];
+	}
+	
+	/**
+	 * Registers a player as playing on this board
+	 * @param player player whose pieces are on this board
+	 */
+	void setPlayer(Player player){
+		players[player.getColor().ordinal()] = player;
+	}
+	
+	/**
+	 * Returns the color of the player whose turn it is
+	 * @return the color of the player to move
 	 */
-	public void resetAllThreats(Player player){
-		if(player.getColor() == Color.WHITE){
-			for(int j = 0; j < gameBoard.length; j++){
-				for(int k = 0; k < gameBoard[j].length; k++){
-					this.getFileRankAt(Utils.convert(j + 1), k + 1).resetThreat(Color.WHITE);
-					
+	public Color getSideToMove(){
+		return sideToMove;
+	}
+	
+	/**
+	 * Sets the color of the player whose turn it is
+	 * @param sideToMove the color of the player to move
+	 */
+	public void setSideToMove(Color sideToMove){
+		if (this.sideToMove != sideToMove){
+			switchSideToMove();
+		}
+	}
+	
+	/**
+	 * Returns the number of moves since the last capture or Pawn move, for the fifty move rule
+	 * @return the halfmove clock
+	 */
+	public int getHalfmoveClock(){
+		return halfmoveClock;
+	}
+	
+	/**
+	 * Sets the number of moves since the last capture or Pawn move
+	 * @param halfmoveClock the halfmove clock
+	 */
+	public void setHalfmoveClock(int halfmoveClock){
+		this.halfmoveClock = halfmoveClock;
+	}
+	
+	/**
+	 * Returns the number of the current move, starting at 1 and incremented after every move by black
+	 * @return the fullmove number
+	 */
+	public int getFullmoveNumber(){
+		return fullmoveNumber;
+	}
+	
+	/**
+	 * Sets the number of the current move
+	 * @param fullmoveNumber the fullmove number
+	 */
+	public void setFullmoveNumber(int fullmoveNumber){
+		this.fullmoveNumber = fullmoveNumber;
+	}
+	
+	/**
+	 * Returns the FileRanks where EnPassant is currently legal
+	 * @return bitboard of the EnPassant FileRanks
+	 */
+	public long getEnPassantSquares(){
+		return enPassantSquares;
+	}
+	
+	/**
+	 * Creates a board and both of its players from a position in Forsyth-Edwards Notation
+	 * @param fen the FEN string of the position
+	 * @return the board with the position set up
+	 * @throws IllegalArgumentException if the FEN string is malformed
+	 */
+	public static Board fromFen(String fen){
+		return Fen.load(fen);
+	}
+	
+	/**
+	 * Returns the position on the board in Forsyth-Edwards Notation
+	 * @return the FEN string of the position
+	 */
+	public String toFen(){
+		return Fen.toFen(this);
+	}
+	
+	/**
+	 * Passes the turn to the other player
+	 */
+	private void switchSideToMove(){
+		sideToMove = sideToMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+		key ^= Zobrist.blackToMove();
+	}
+	
+	/**
+	 * Returns the Zobrist key of the position on the board
+	 * The key is kept up to date as pieces are placed and removed, the turn passes and EnPassant
+	 * becomes legal or illegal, only the castling rights are looked up when it is called
+	 * @return the 64-bit key of the position
+	 */
+	public long getKey(){
+		return key ^ Zobrist.castling(getCastlingRights());
+	}
+	
+	/**
+	 * Returns the Zobrist key of the Pawns on the board, 0 if there are none
+	 * The key changes only when a Pawn moves, is captured or is promoted, so it identifies the pawn structure
+	 * @return the 64-bit key of the Pawns
+	 */
+	public long getPawnKey(){
+		return pawnKey;
+	}
+	
+	/**
+	 * Returns the castling rights of both players
+	 * A right is held while the King can castle and the Rook in the corner on that side has not moved
+	 * @return a combination of the Zobrist castling right flags
+	 */
+	public int getCastlingRights(){
+		int rights = 0;
+		Player white = players[Color.WHITE.ordinal()];
+		if (white != null && white.getKing() != null && white.getKing().isCanCastle()){
+			rights |= castlingRook(7, Color.WHITE) ? Zobrist.WHITE_KING_SIDE : 0;
+			rights |= castlingRook(0, Color.WHITE) ? Zobrist.WHITE_QUEEN_SIDE : 0;
+		}
+		Player black = players[Color.BLACK.ordinal()];
+		if (black != null && black.getKing() != null && black.getKing().isCanCastle()){
+			rights |= castlingRook(63, Color.BLACK) ? Zobrist.BLACK_KING_SIDE : 0;
+			rights |= castlingRook(56, Color.BLACK) ? Zobrist.BLACK_QUEEN_SIDE : 0;
+		}
+		return rights;
+	}
+	
+	/**
+	 * Returns whether a corner holds a Rook of a given color that has not moved
+	 * @param square square of the corner
+	 * @param color color of the Rook
+	 * @return true if the Rook can still castle, false otherwise
+	 */
+	private boolean castlingRook(int square, Color color){
+		Piece piece = getFileRankAt(square).getCurrentPiece();
+		return piece instanceof Rook && piece.getColor() == color && !((Rook) piece).moved();
+	}
+	
+	/**
+	 * Creates a deep copy of the board, its players and all of their pieces
+	 * The copy shares no state with this board, so it can be played on independently
+	 * Moves played before the copy was made cannot be taken back on the copy
+	 * @return the copy of the board
+	 */
+	public Board copy(){
+		Board copy = new Board(gameBoard.length, gameBoard[0].length);
+		Map<Piece, Piece> copies = new IdentityHashMap<Piece, Piece>();
+		for (int i = 0; i < gameBoard.length; i++){
+			for (int j = 0; j < gameBoard[i].length; j++){
+				FileRank fr = copy.gameBoard[i][j];
+				fr.copyState(gameBoard[i][j]);
+				if (gameBoard[i][j].isOccupied()){
+					Piece piece = gameBoard[i][j].getCurrentPiece().copy();
+					copies.put(gameBoard[i][j].getCurrentPiece(), piece);
+					fr.setCurrentPiece(piece);
 				}
 			}
-		}else{
-				for(int j = 0; j < gameBoard.length; j++){
-					for(int k = 0; k < gameBoard[j].length; k++){
-						this.getFileRankAt(Utils.convert(j + 1), k + 1).resetThreat(Color.BLACK);
-					}
-				}
+		}
+		for (Player player : players){
+			if (player != null){
+				copy.setPlayer(player.copy(copies));
+			}
+		}
+		for (Map.Entry<Piece, Piece> entry : copies.entrySet()){
+			Piece original = entry.getKey();
+			Piece piece = entry.getValue();
+			piece.setBoard(copy);
+			// Pieces out of play keep pointing at the FileRank they were captured on
+			if (piece.getCurrentFR() == null && original.getCurrentFR() != null){
+				piece.setCurrentFR(copy.getFileRankAt(original.getCurrentFR().getSquare()));
 			}
+			piece.nextPossibleMoves = original.nextPossibleMoves;
 		}
+		copy.sideToMove = sideToMove;
+		copy.enPassantSquares = enPassantSquares;
+		copy.key = key;
+		copy.pawnKey = pawnKey;
+		copy.halfmoveClock = halfmoveClock;
+		copy.fullmoveNumber = fullmoveNumber;
+		// Earlier positions still count for repetitions on the copy
+		copy.keyHistory = Arrays.copyOf(keyHistory, keyHistory.length);
+		copy.keyCount = keyCount;
+		return copy;
+	}
 	
 	/**
-	 * Decrements the EnPassant counter for all of the FileRanks
+	 * Called by a FileRank of this board when a piece is placed on it
+	 * @param piece piece that was placed
+	 * @param square square of the FileRank
 	 */
-	public void tickEPCounts(){
-		for (int i = 0; i < gameBoard.length; i ++){
-			for (int j = 0; j < gameBoard[0].length; j++){
-				gameBoard[i][j].tickEPCount();
+	void pieceAdded(Piece piece, int square){
+		bitboards.add(piece.getColor(), piece.getType(), square);
+		key ^= Zobrist.piece(piece.getColor(), piece.getType(), square);
+		if (piece.getType() == PieceType.PAWN){
+			pawnKey ^= Zobrist.piece(piece.getColor(), PieceType.PAWN, square);
+		}
+		for (BoardListener listener : listeners){
+			listener.pieceAdded(piece.getColor(), piece.getType(), square);
+		}
+	}
+	
+	/**
+	 * Called by a FileRank of this board when a piece is taken off of it
+	 * @param piece piece that was taken off
+	 * @param square square of the FileRank
+	 */
+	void pieceRemoved(Piece piece, int square){
+		bitboards.remove(piece.getColor(), piece.getType(), square);
+		key ^= Zobrist.piece(piece.getColor(), piece.getType(), square);
+		if (piece.getType() == PieceType.PAWN){
+			pawnKey ^= Zobrist.piece(piece.getColor(), PieceType.PAWN, square);
+		}
+		for (BoardListener listener : listeners){
+			listener.pieceRemoved(piece.getColor(), piece.getType(), square);
+		}
+	}
+	
+	/**
+	 * Registers a listener that is told about every piece placed on or taken off this board
+	 * Listeners are not copied with the board
+	 * @param listener listener to add
+	 */
+	public void addListener(BoardListener listener){
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+	
+	/**
+	 * Unregisters a listener
+	 * @param listener listener to remove, nothing happens if it is not registered
+	 */
+	public void removeListener(BoardListener listener){
+		for (int i = 0; i < listeners.length; i++){
+			if (listeners[i] == listener){
+				BoardListener[] remaining = new BoardListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, remaining, 0, i);
+				System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+				listeners = remaining;
+				return;
 			}
 		}
 	}
 	
+	/**
+	 * Decrements the EnPassant counter for all of the FileRanks where EnPassant is legal
+	 */
+	public void tickEPCounts(){
+		long squares = enPassantSquares;
+		while (squares != 0){
+			getFileRankAt(Long.numberOfTrailingZeros(squares)).tickEPCount();
+			squares &= squares - 1;
+		}
+	}
+	
 	/**
 	 * Promotes a piece to another specified piece
 	 * If the FileRank is not valid (rank = 1 or rank = 8), or the piece promoted is not a pawn, then promotion fails
@@ -82,31 +369,240 @@ public class Board {
 	 * @param p char representation of the desired piece to promote to
 	 */
 	public void promote(FileRank fr, char p){
+		Piece piece = promotePiece(fr, p);
+		if (piece != null){
+			piece.resetPossibleMoves();
+			piece.setNextPossibleMoves();
+		}
+	}
+	
+	/**
+	 * Replaces a Pawn on the last rank with a new piece, both on the board and in its player's pieces
+	 * If the Pawn was just moved there, the promotion is added to the record of that move so it is undone with it
+	 * @param fr the FileRank that the promotion takes place
+	 * @param p char representation of the desired piece to promote to
+	 * @return the new piece, null if the promotion failed
+	 */
+	private Piece promotePiece(FileRank fr, char p){
 		if (fr == null){
-			return;
+			return null;
 		}
-		Piece piece = fr.getCurrentPiece();
+		Piece pawn = fr.getCurrentPiece();
 		// Should never run into this, but only pawn can promote
-		if (!(piece instanceof Pawn)){
-			return;
+		if (!(pawn instanceof Pawn)){
+			return null;
 		}
 		// Must be on last rank
-		if (piece.getColor() == Color.WHITE){
+		if (pawn.getColor() == Color.WHITE){
 			if (fr.getRank() != 8){
-				return;
+				return null;
 			}
 		}else{
 			if (fr.getRank() != 1){
-				return;
+				return null;
 			}
 		}
 		
-		piece = Utils.pieceFromChar(p, piece.getColor());
+		Piece piece = Utils.pieceFromChar(p, pawn.getColor());
 		piece.setBoard(this);
 		fr.setCurrentPiece(piece);
-		piece.setCurrentFR(fr);
-		piece.resetPossibleMoves();
-		piece.setNextPossibleMoves();
+		pawn.setCurrentFR(null);
+		pawn.setInPlay(false);
+		int index = -1;
+		Player player = getPlayer(pawn.getColor());
+		if (player != null){
+			index = player.getPieces().indexOf(pawn);
+			if (index >= 0){
+				player.getPieces().set(index, piece);
+			}
+		}
+		if (ply > 0 && undoStack[ply - 1].to == fr && undoStack[ply - 1].moved == pawn){
+			undoStack[ply - 1].promoted = piece;
+			undoStack[ply - 1].promotedIndex = index;
+		}
+		return piece;
+	}
+	
+	/**
+	 * Plays a move on the board without checking whether it is legal and without recalculating possible moves
+	 * Captures, castling, EnPassant and promotion are handled the same way as by Piece.move and promote,
+	 * then the EnPassant counters are ticked and the turn passes to the other player
+	 * The move can be taken back with unmakeMove
+	 * @param from FileRank of the piece to move
+	 * @param to FileRank to move the piece to
+	 * @param promotion char representation of the piece a Pawn reaching the last rank is promoted to, 0 to not promote
+	 */
+	public void makeMove(FileRank from, FileRank to, char promotion){
+		if (ply == undoStack.length){
+			undoStack = Arrays.copyOf(undoStack, ply * 2);
+		}
+		MoveUndo undo = undoStack[ply];
+		if (undo == null){
+			undo = new MoveUndo();
+			undoStack[ply] = undo;
+		}
+		ply++;
+		if (keyCount == keyHistory.length){
+			keyHistory = Arrays.copyOf(keyHistory, keyCount * 2);
+		}
+		keyHistory[keyCount++] = getKey();
+		Piece piece = from.getCurrentPiece();
+		undo.reset(piece, from, to);
+		saveEnPassant(undo);
+		undo.halfmoveClock = halfmoveClock;
+		undo.checks = 0;
+		for (Player player : players){
+			if (player != null && player.getKing() != null && player.isInCheck()){
+				undo.checks |= 1 << player.getColor().ordinal();
+			}
+		}
+		
+		piece.apply(to, undo);
+		tickEPCounts();
+		halfmoveClock = piece instanceof Pawn || undo.captured != null ? 0 : halfmoveClock + 1;
+		if (sideToMove == Color.BLACK){
+			fullmoveNumber++;
+		}
+		switchSideToMove();
+		if (promotion != 0){
+			promotePiece(to, promotion);
+		}
+	}
+	
+	/**
+	 * Takes back the last move played on the board, including a promotion that followed it
+	 * Every piece, flag and EnPassant counter is restored to what it was before the move
+	 */
+	public void unmakeMove(){
+		MoveUndo undo = undoStack[--ply];
+		keyCount--;
+		switchSideToMove();
+		halfmoveClock = undo.halfmoveClock;
+		if (sideToMove == Color.BLACK){
+			fullmoveNumber--;
+		}
+		if (undo.promoted != null){
+			undo.to.setCurrentPiece(undo.moved);
+			undo.promoted.setCurrentFR(null);
+			undo.moved.setInPlay(true);
+			if (undo.promotedIndex >= 0){
+				getPlayer(undo.moved.getColor()).getPieces().set(undo.promotedIndex, undo.moved);
+			}
+		}
+		if (undo.castlingRook != null){
+			undo.rookTo.removeCurrentPiece();
+			undo.rookFrom.setCurrentPiece(undo.castlingRook);
+			undo.castlingRook.setState(undo.rookState);
+		}
+		undo.to.removeCurrentPiece();
+		undo.from.setCurrentPiece(undo.moved);
+		undo.moved.setState(undo.movedState);
+		if (undo.captured != null){
+			undo.capturedOn.setCurrentPiece(undo.captured);
+			undo.captured.setInPlay(true);
+		}
+		restoreEnPassant(undo);
+		for (Player player : players){
+			if (player != null && player.getKing() != null){
+				player.setInCheck((undo.checks & (1 << player.getColor().ordinal())) != 0);
+			}
+		}
+	}
+	
+	/**
+	 * Returns whether the King of a given color is attacked by any piece of the other color
+	 * @param color color of the King
+	 * @return true if the King is attacked, false otherwise or if there is no such King
+	 */
+	public boolean isKingAttacked(Color color){
+		int king = bitboards.getKingSquare(color);
+		return king < 64 && bitboards.isAttacked(king, color == Color.WHITE ? Color.BLACK : Color.WHITE);
+	}
+	
+	/**
+	 * Returns whether a move is legal for the side to move
+	 * @param from FileRank of the piece to move
+	 * @param to FileRank to move the piece to
+	 * @return true if the move is legal, false otherwise
+	 */
+	public boolean isLegal(FileRank from, FileRank to){
+		return (moveGenerator.getTargets(from.getSquare()) & (1L << to.getSquare())) != 0;
+	}
+	
+	/**
+	 * Counts how many times the current position occurred before, with the same side to move
+	 * Only positions since the last capture or Pawn move are looked at, as none before them can come back
+	 * @return the number of earlier occurrences, 2 or more means the position has occurred three times
+	 */
+	public int getRepetitions(){
+		long current = getKey();
+		int first = Math.max(0, keyCount - halfmoveClock);
+		int count = 0;
+		for (int i = keyCount - 2; i >= first; i -= 2){
+			if (keyHistory[i] == current){
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns whether or not there is a move that can be taken back with unmakeMove
+	 * @return true if a move can be taken back, false otherwise
+	 */
+	public boolean canUnmakeMove(){
+		return ply > 0;
+	}
+	
+	/**
+	 * Records the EnPassant FileRanks and their counters, packed two bits per FileRank
+	 * @param undo record to save the EnPassant state to
+	 */
+	private void saveEnPassant(MoveUndo undo){
+		undo.enPassantSquares = enPassantSquares;
+		long counts = 0L;
+		int shift = 0;
+		long squares = enPassantSquares;
+		while (squares != 0){
+			counts |= (long) getFileRankAt(Long.numberOfTrailingZeros(squares)).getEnPassantCount() << shift;
+			shift += 2;
+			squares &= squares - 1;
+		}
+		undo.enPassantCounts = counts;
+	}
+	
+	/**
+	 * Restores the EnPassant FileRanks and their counters saved by saveEnPassant
+	 * @param undo record to restore the EnPassant state from
+	 */
+	private void restoreEnPassant(MoveUndo undo){
+		long squares = enPassantSquares;
+		while (squares != 0){
+			getFileRankAt(Long.numberOfTrailingZeros(squares)).setEnPassant(false, 0);
+			squares &= squares - 1;
+		}
+		squares = undo.enPassantSquares;
+		int shift = 0;
+		while (squares != 0){
+			int count = (int) (undo.enPassantCounts >>> shift) & 3;
+			getFileRankAt(Long.numberOfTrailingZeros(squares)).setEnPassant(true, count);
+			shift += 2;
+			squares &= squares - 1;
+		}
+	}
+	
+	/**
+	 * Called by a FileRank of this board when EnPassant becomes legal or illegal on it
+	 * @param square square of the FileRank
+	 * @param canEnPassant true if EnPassant became legal, false otherwise
+	 */
+	void enPassantChanged(int square, boolean canEnPassant){
+		key ^= Zobrist.enPassant(square);
+		if (canEnPassant){
+			enPassantSquares |= 1L << square;
+		}else{
+			enPassantSquares &= ~(1L << square);
+		}
 	}
 	
 	/**
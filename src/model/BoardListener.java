@@ -0,0 +1,29 @@
+package model;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Receives every change to the pieces on a board, so that state derived from them can be kept up to date
+ * without looking at the whole board. A move is reported as the pieces it takes off and puts on its FileRanks,
+ * in the same way when it is taken back.
+ *
+ */
+public interface BoardListener {
+
+	/**
+	 * Called when a piece is placed on a square
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square the piece was placed on
+	 */
+	void pieceAdded(Color color, PieceType type, int square);
+
+	/**
+	 * Called when a piece is taken off a square
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square the piece was taken off
+	 */
+	void pieceRemoved(Color color, PieceType type, int square);
+}
@@ -0,0 +1,392 @@
+package model;
+
+import java.util.ArrayList;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * A utility class that sets up a board from a position written in Forsyth-Edwards Notation,
+ * and writes the position on a board back out
+ *
+ */
+public class Fen {
+
+	public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	// FEN characters of the white pieces, in the order of PieceType
+	private static final String FEN_CHARS = "PNBRQK";
+
+	/**
+	 * Creates a board and both of its players from a FEN string, with the possible moves of every piece set
+	 * The piece placement, side to move, castling rights and EnPassant square are read,
+	 * the move counters are optional
+	 * @param fen position in Forsyth-Edwards Notation
+	 * @return the board with both players' pieces placed on it
+	 * @throws IllegalArgumentException if the FEN string is malformed
+	 */
+	public static Board load(String fen){
+		return load(fen, true);
+	}
+
+	/**
+	 * Creates a board and both of its players from a FEN string
+	 * The string is read in a single pass without splitting it, so that large numbers of positions can be loaded quickly
+	 * @param fen position in Forsyth-Edwards Notation
+	 * @param setMoves true to set the possible moves of every piece, false to leave them empty,
+	 * for callers such as Search that set the moves themselves
+	 * @return the board with both players' pieces placed on it
+	 * @throws IllegalArgumentException if the FEN string is malformed, a side does not have exactly one King,
+	 * or the EnPassant square is not one a Pawn of the other side just skipped
+	 */
+	public static Board load(String fen, boolean setMoves){
+		Board board = new Board(8, 8);
+		ArrayList<Piece> white = new ArrayList<Piece>(16);
+		ArrayList<Piece> black = new ArrayList<Piece>(16);
+		int length = fen.length();
+		int i = skipSpaces(fen, 0);
+
+		//Piece placement, from rank 8 down to rank 1
+		int file = 1;
+		int rank = 8;
+		int[] kings = new int[Color.values().length];
+		for (; i < length && fen.charAt(i) != ' '; i++){
+			char c = fen.charAt(i);
+			if (c == '/'){
+				if (file != 9){
+					throw invalid(fen);
+				}
+				file = 1;
+				rank--;
+			}else if (c >= '1' && c <= '8'){
+				file += c - '0';
+			}else{
+				Piece piece = pieceFromFen(c);
+				if (piece == null || file > 8 || rank < 1){
+					throw invalid(fen);
+				}
+				board.getFileRankAt((rank - 1) * 8 + file - 1).setCurrentPiece(piece);
+				if (piece instanceof King){
+					kings[piece.getColor().ordinal()]++;
+				}
+				if (piece instanceof Pawn){
+					((Pawn) piece).setMoved(piece.getColor() == Color.WHITE ? rank != 2 : rank != 7);
+				}
+				if (piece.getColor() == Color.WHITE){
+					white.add(piece);
+				}else{
+					black.add(piece);
+				}
+				file++;
+			}
+		}
+		if (rank != 1 || file != 9){
+			throw invalid(fen);
+		}
+		if (kings[Color.WHITE.ordinal()] != 1 || kings[Color.BLACK.ordinal()] != 1){
+			throw new IllegalArgumentException("Invalid FEN, each side needs exactly one King: " + fen);
+		}
+		Player whitePlayer = new Player(Color.WHITE, white);
+		Player blackPlayer = new Player(Color.BLACK, black);
+		board.setPlayer(whitePlayer);
+		board.setPlayer(blackPlayer);
+
+		//Side to move
+		i = skipSpaces(fen, i);
+		if (i >= length){
+			throw invalid(fen);
+		}
+		char side = fen.charAt(i++);
+		if (side == 'w'){
+			board.setSideToMove(Color.WHITE);
+		}else if (side == 'b'){
+			board.setSideToMove(Color.BLACK);
+		}else{
+			throw invalid(fen);
+		}
+
+		//Castling rights
+		i = skipSpaces(fen, i);
+		int rights = 0;
+		for (; i < length && fen.charAt(i) != ' '; i++){
+			switch(fen.charAt(i)){
+			case 'K':
+				rights |= Zobrist.WHITE_KING_SIDE;
+				break;
+			case 'Q':
+				rights |= Zobrist.WHITE_QUEEN_SIDE;
+				break;
+			case 'k':
+				rights |= Zobrist.BLACK_KING_SIDE;
+				break;
+			case 'q':
+				rights |= Zobrist.BLACK_QUEEN_SIDE;
+				break;
+			case '-':
+				break;
+			default:
+				throw invalid(fen);
+			}
+		}
+		setCastling(board, whitePlayer, 1, (rights & Zobrist.WHITE_KING_SIDE) != 0, (rights & Zobrist.WHITE_QUEEN_SIDE) != 0);
+		setCastling(board, blackPlayer, 8, (rights & Zobrist.BLACK_KING_SIDE) != 0, (rights & Zobrist.BLACK_QUEEN_SIDE) != 0);
+
+		//EnPassant square
+		i = skipSpaces(fen, i);
+		if (i >= length){
+			throw invalid(fen);
+		}
+		if (fen.charAt(i) == '-'){
+			i++;
+		}else{
+			if (i + 1 >= length){
+				throw invalid(fen);
+			}
+			FileRank ep = board.getFileRankAt(fen.charAt(i), fen.charAt(i + 1) - '0');
+			if (ep == null || !skipped(board, ep.getSquare())){
+				throw invalid(fen);
+			}
+			// Only legal for the side to move, so the counter runs out after its move
+			ep.setEnPassant(true, 1);
+			i += 2;
+		}
+
+		//Move counters
+		i = skipSpaces(fen, i);
+		if (i < length){
+			int end = nextSpace(fen, i);
+			board.setHalfmoveClock(parseNumber(fen, i, end));
+			i = skipSpaces(fen, end);
+			if (i < length){
+				board.setFullmoveNumber(Math.max(1, parseNumber(fen, i, nextSpace(fen, i))));
+			}
+		}
+
+		for (Piece piece : white){
+			piece.setBoard(board);
+		}
+		for (Piece piece : black){
+			piece.setBoard(board);
+		}
+		if (setMoves){
+			//Possible moves of the player not to move last, so that its threats and checks are up to date
+			Player toMove = board.getPlayer(board.getSideToMove());
+			Player waiting = toMove == whitePlayer ? blackPlayer : whitePlayer;
+			for (Player player : new Player[]{toMove, waiting}){
+				for (Piece piece : player.getPieces()){
+					piece.setNextPossibleMoves();
+				}
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Writes the position on a board in Forsyth-Edwards Notation
+	 * @param board board to write
+	 * @return the FEN string of the position, including the move counters
+	 */
+	public static String toFen(Board board){
+		StringBuilder sb = new StringBuilder(90);
+		for (int rank = 8; rank >= 1; rank--){
+			int empty = 0;
+			for (int file = 0; file < 8; file++){
+				Piece piece = board.getFileRankAt((rank - 1) * 8 + file).getCurrentPiece();
+				if (piece == null){
+					empty++;
+					continue;
+				}
+				if (empty > 0){
+					sb.append((char) ('0' + empty));
+					empty = 0;
+				}
+				char c = FEN_CHARS.charAt(piece.getType().ordinal());
+				sb.append(piece.getColor() == Color.WHITE ? c : Character.toLowerCase(c));
+			}
+			if (empty > 0){
+				sb.append((char) ('0' + empty));
+			}
+			if (rank > 1){
+				sb.append('/');
+			}
+		}
+		sb.append(board.getSideToMove() == Color.WHITE ? " w " : " b ");
+		int rights = board.getCastlingRights();
+		if (rights == 0){
+			sb.append('-');
+		}else{
+			if ((rights & Zobrist.WHITE_KING_SIDE) != 0){
+				sb.append('K');
+			}
+			if ((rights & Zobrist.WHITE_QUEEN_SIDE) != 0){
+				sb.append('Q');
+			}
+			if ((rights & Zobrist.BLACK_KING_SIDE) != 0){
+				sb.append('k');
+			}
+			if ((rights & Zobrist.BLACK_QUEEN_SIDE) != 0){
+				sb.append('q');
+			}
+		}
+		sb.append(' ');
+		int square = capturableEnPassant(board);
+		if (square < 0){
+			sb.append('-');
+		}else{
+			sb.append(Utils.convert((square & 7) + 1)).append((square >>> 3) + 1);
+		}
+		sb.append(' ').append(board.getHalfmoveClock()).append(' ').append(board.getFullmoveNumber());
+		return sb.toString();
+	}
+
+	/**
+	 * Returns whether a square is one a Pawn of the side not to move has just skipped with a double step:
+	 * on the third or sixth rank, empty, with that Pawn in front of it and its starting square empty
+	 * @param board board with the pieces and the side to move set
+	 * @param square the EnPassant square
+	 * @return true if the square can be an EnPassant square, false otherwise
+	 */
+	private static boolean skipped(Board board, int square){
+		Color them = board.getSideToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+		int forward = them == Color.WHITE ? 8 : -8;
+		if (square >>> 3 != (them == Color.WHITE ? 2 : 5)){
+			return false;
+		}
+		Bitboards bitboards = board.getBitboards();
+		long occupied = bitboards.getOccupied();
+		return (occupied & (1L << square)) == 0 && (occupied & (1L << (square - forward))) == 0
+				&& (bitboards.getPieces(them, PieceType.PAWN) & (1L << (square + forward))) != 0;
+	}
+
+	/**
+	 * Returns the EnPassant square the side to move can actually capture on
+	 * A square is only written when a Pawn has a legal capture onto it, so positions that only differ
+	 * by a square no Pawn can use are written the same way
+	 * @param board board to write
+	 * @return the square, -1 if there is none
+	 */
+	private static int capturableEnPassant(Board board){
+		Color us = board.getSideToMove();
+		Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long squares = board.getEnPassantSquares();
+		while (squares != 0){
+			int square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			// A Pawn of ours attacks the square exactly when a Pawn of theirs on it would attack ours
+			long pawns = Attacks.pawnAttacks(them, square) & board.getBitboards().getPieces(us, PieceType.PAWN);
+			while (pawns != 0){
+				int from = Long.numberOfTrailingZeros(pawns);
+				pawns &= pawns - 1;
+				if ((board.getMoveGenerator().getTargets(from) & (1L << square)) != 0){
+					return square;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first character at or after a given index that is not a space
+	 * @param s string to search
+	 * @param i index to start from
+	 * @return the index of the character, or the length of the string
+	 */
+	private static int skipSpaces(String s, int i){
+		while (i < s.length() && Character.isWhitespace(s.charAt(i))){
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the index of the first space at or after a given index
+	 * @param s string to search
+	 * @param i index to start from
+	 * @return the index of the space, or the length of the string
+	 */
+	private static int nextSpace(String s, int i){
+		while (i < s.length() && !Character.isWhitespace(s.charAt(i))){
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Parses a non-negative number without creating a substring
+	 * @param s string containing the number
+	 * @param start index of the first digit
+	 * @param end index after the last digit
+	 * @return the number
+	 * @throws IllegalArgumentException if a character is not a digit
+	 */
+	private static int parseNumber(String s, int start, int end){
+		int n = 0;
+		for (int i = start; i < end; i++){
+			char c = s.charAt(i);
+			if (c < '0' || c > '9'){
+				throw invalid(s);
+			}
+			n = n * 10 + (c - '0');
+		}
+		return n;
+	}
+
+	/**
+	 * Creates the exception thrown for a malformed FEN string
+	 * @param fen the malformed string
+	 * @return the exception to throw
+	 */
+	private static IllegalArgumentException invalid(String fen){
+		return new IllegalArgumentException("Invalid FEN: " + fen);
+	}
+
+	/**
+	 * Sets the castling flags of a player's King and Rooks
+	 * Rooks that may not castle are marked as moved
+	 * @param board board the pieces are on
+	 * @param player player to set the flags for
+	 * @param rank home rank of the player
+	 * @param kingSide true if the player may castle king side
+	 * @param queenSide true if the player may castle queen side
+	 */
+	private static void setCastling(Board board, Player player, int rank, boolean kingSide, boolean queenSide){
+		King king = player.getKing();
+		FileRank home = board.getFileRankAt('e', rank);
+		boolean kingHome = king.getCurrentFR() == home;
+		king.setCanCastle(kingHome && (kingSide || queenSide));
+		for (Piece piece : player.getPieces()){
+			if (piece instanceof Rook){
+				FileRank fr = piece.getCurrentFR();
+				boolean castleable = kingHome && fr.getRank() == rank
+						&& ((fr.getFile() == 'h' && kingSide) || (fr.getFile() == 'a' && queenSide));
+				((Rook) piece).setFirstMove(castleable);
+			}
+		}
+	}
+
+	/**
+	 * Given a FEN piece character, returns a new piece of the corresponding type and color
+	 * Upper case characters are white pieces, lower case characters are black pieces
+	 * @param c FEN character of the piece
+	 * @return the new piece, null if the character is not a piece
+	 */
+	private static Piece pieceFromFen(char c){
+		Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+		switch(Character.toUpperCase(c)){
+		case 'P':
+			return new Pawn(color);
+		case 'N':
+			return new Knight(color);
+		case 'B':
+			return new Bishop(color);
+		case 'R':
+			return new Rook(color);
+		case 'Q':
+			return new Queen(color);
+		case 'K':
+			return new King(color);
+		default:
+			return null;
+		}
+	}
+}
@@ -18,8 +18,8 @@ public class FileRank {
 	private Piece currentPiece;
 	private char file;
 	private int rank;
-	private boolean inThreatByBlack;
-	private boolean inThreatByWhite;
+	private int square;
+	private Board board;
 	private boolean canEnPassant;
 	private int enPassantCount;
 	
@@ -29,8 +29,21 @@ public class FileRank {
 	 * @param rank value of the rank
 	 */
 	public FileRank(int file, int rank){
+		this(file, rank, null);
+	}
+	
+	/**
+	 * Constructor for a FileRank that belongs to a board
+	 * Pieces placed on or removed from this FileRank are reported to the board
+	 * @param file value of the file
+	 * @param rank value of the rank
+	 * @param board board that the FileRank belongs to
+	 */
+	FileRank(int file, int rank, Board board){
 		this.file = Utils.convert(file);
 		this.rank = rank;
+		this.square = (rank - 1) * 8 + file - 1;
+		this.board = board;
 		enPassantCount = 0;
 		//odd rows
 		if (this.rank%2 != 0){
@@ -65,6 +78,14 @@ public class FileRank {
 		return rank;
 	}
 	
+	/**
+	 * Returns the index of the FileRank, from 0 (a1) to 63 (h8)
+	 * @return the index of the FileRank
+	 */
+	public int getSquare(){
+		return square;
+	}
+	
 	/**
 	 * Returns whether or not the FileRank is occupied by a piece or not
 	 * @return true if FileRank is occupied, false otherwise
@@ -109,12 +130,19 @@ public class FileRank {
 
 	/**
 	 * Sets the piece that is currently occupying the FileRank
+	 * The board is notified of the piece replaced and the piece placed, keeping its bitboards in step
 	 * @param currentPiece piece to occupy FileRank with
 	 */
 	public void setCurrentPiece(Piece currentPiece) {
+		if (this.currentPiece != null && board != null){
+			board.pieceRemoved(this.currentPiece, square);
+		}
 		this.currentPiece = currentPiece;
 		if (currentPiece != null){
 			currentPiece.setCurrentFR(this);
+			if (board != null){
+				board.pieceAdded(currentPiece, square);
+			}
 		}
 	}
 	
@@ -124,22 +152,44 @@ public class FileRank {
 	 * @param canEnPassant boolean value to set whether or not enPassant is legal
 	 */
 	public void setCanEnPassant(boolean canEnPassant){
-		this.canEnPassant = canEnPassant;
-		if (getCanEnPassant()){
-			enPassantCount = 2;
+		setEnPassant(canEnPassant, canEnPassant ? 2 : enPassantCount);
+	}
+	
+	/**
+	 * Sets whether or not EnPassant is legal in this FileRank together with its timer
+	 * The board is notified so that it can keep track of all EnPassant FileRanks
+	 * @param canEnPassant boolean value to set whether or not enPassant is legal
+	 * @param enPassantCount number of turns left before EnPassant is no longer legal
+	 */
+	void setEnPassant(boolean canEnPassant, int enPassantCount){
+		this.enPassantCount = enPassantCount;
+		if (this.canEnPassant != canEnPassant){
+			this.canEnPassant = canEnPassant;
+			if (board != null){
+				board.enPassantChanged(square, canEnPassant);
+			}
 		}
 	}
 	
+	/**
+	 * Returns the number of turns left before EnPassant is no longer legal
+	 * @return the EnPassant timer
+	 */
+	int getEnPassantCount(){
+		return enPassantCount;
+	}
+	
 	/**
 	 * Decreases the EnPassant timer if not already 0
 	 * If the timer hits 0, then EnPassant is no longer legal
 	 */
 	public void tickEPCount(){
+		if (enPassantCount > 0){
+			enPassantCount--;
+		}
 		if (enPassantCount == 0){
 			setCanEnPassant(false);
-			return;
 		}
-		enPassantCount--;
 	}
 	
 	/**
@@ -151,41 +201,32 @@ public class FileRank {
 	}
 	
 	/**
-	 * Given a piece, sets which color the FileRank is in threat by
-	 * @param piece piece that is threatening the FileRank
+	 * Copies the EnPassant state of another FileRank, the occupying piece is not copied
+	 * @param other FileRank to copy the state of
 	 */
-	public void setThreat(Piece piece){
-		if(piece.getColor() == Color.WHITE){
-			this.inThreatByWhite = true;
-		}else{
-			this.inThreatByBlack = true;
-		}
-	
+	void copyState(FileRank other){
+		this.canEnPassant = other.canEnPassant;
+		this.enPassantCount = other.enPassantCount;
 	}
 	
 	/**
 	 * Given a color, returns if the FileRank is threatened by an opposing color
+	 * The attacked squares are kept up to date by the board's Bitboards as pieces move
 	 * @param color color to check if the FileRank is threatening it or not
 	 * @return true if given color is threatened, false otherwise
 	 */
 	public boolean getThreat(Color color){
-		if(color == Color.WHITE){
-			return this.inThreatByBlack;
-		}else{
-			return this.inThreatByWhite;
-		}
+		return board.getBitboards().isAttacked(getSquare(), color == Color.WHITE ? Color.BLACK : Color.WHITE);
 	}
 	
 	/**
-	 * Resets the threat for a given color for the FileRank
-	 * @param color which color to reset the threat for
+	 * Returns the pieces of a given color that attack the FileRank, unlike getThreat which only tells whether there are any
+	 * @param by color of the attacking pieces
+	 * @return bitboard of the attacking pieces
 	 */
-	 public void resetThreat(Color color){
-		if(color == Color.WHITE){
-			this.inThreatByBlack = false;
-		}else{
-			this.inThreatByWhite = false;
-		}
-	}  
+	public long getAttackers(Color by){
+		Bitboards bitboards = board.getBitboards();
+		return bitboards.attackersTo(getSquare(), by, bitboards.getOccupied());
+	}
 	
 }
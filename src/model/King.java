@@ -1,13 +1,12 @@
 package model;
 
-import java.util.ArrayList;
-
 /**
  * A class representation of the King Piece
  * 
  * @author jmm754 and yuky
  */
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class King extends Piece{
 	
@@ -24,31 +23,63 @@ public class King extends Piece{
 		setCanCastle(true);
 	}
 
+	/**
+	 * Copy constructor for the King
+	 * @param other King to copy
+	 */
+	public King(King other) {
+		super(other);
+		setInCheck(other.isInCheck());
+		setCanCastle(other.isCanCastle());
+	}
+
 	/**
 	 * Moves the King to the specified FileRank
-	 * If the distance of the file is greater than 1, this means that the King is castling
+	 * If the distance of the file is two, this means that the King is castling
 	 * If the King is castling, the corresponding Rook is also moved
 	 */
 	@Override
-	public boolean move(FileRank to){
+	void apply(FileRank to, MoveUndo undo){
 		FileRank from = this.getCurrentFR();
-		boolean moveable = super.move(to);
-		if (moveable){
-			if (Math.abs(Utils.convert(from.getFile()) - Utils.convert(to.getFile())) != 1){
-				// the only situation where this is possible is if the king is castling
-				// determine which direction king is castling towards, move that rook next to king
-				int direction = Utils.convert(from.getFile()) - Utils.convert(to.getFile());
-				if (direction > 0){
-					// positive - means castling to the left
-					board.getFileRankAt('a', this.getCurrentFR().getRank()).getCurrentPiece().move(board.getFileRankAt('d', this.getCurrentFR().getRank()));
-				}else{
-					// negative - means castling to the right
-					board.getFileRankAt('h', this.getCurrentFR().getRank()).getCurrentPiece().move(board.getFileRankAt('f', this.getCurrentFR().getRank()));
-				}
-			}
-			setCanCastle(false);
+		super.apply(to, undo);
+		if (Math.abs(Utils.convert(from.getFile()) - Utils.convert(to.getFile())) == 2){
+			// the only situation where this is possible is if the king is castling
+			// determine which direction king is castling towards, move that rook next to king
+			int direction = Utils.convert(from.getFile()) - Utils.convert(to.getFile());
+			if (direction > 0){
+				// positive - means castling to the left
+				undo.rookFrom = board.getFileRankAt('a', to.getRank());
+				undo.rookTo = board.getFileRankAt('d', to.getRank());
+			}else{
+				// negative - means castling to the right
+				undo.rookFrom = board.getFileRankAt('h', to.getRank());
+				undo.rookTo = board.getFileRankAt('f', to.getRank());
+			}
+			Rook rook = (Rook) undo.rookFrom.getCurrentPiece();
+			undo.castlingRook = rook;
+			undo.rookState = rook.getState();
+			undo.rookFrom.removeCurrentPiece();
+			undo.rookTo.setCurrentPiece(rook);
+			rook.setState(0);
 		}
-		return moveable;
+		setCanCastle(false);
+	}
+	
+	/**
+	 * Returns whether the King can castle and whether it is in check, packed into an int
+	 */
+	@Override
+	int getState(){
+		return (canCastle ? 1 : 0) | (inCheck ? 2 : 0);
+	}
+	
+	/**
+	 * Restores whether the King can castle and whether it is in check
+	 */
+	@Override
+	void setState(int state){
+		this.canCastle = (state & 1) != 0;
+		this.inCheck = (state & 2) != 0;
 	}
 	
 	/**
@@ -63,78 +94,14 @@ public class King extends Piece{
 		resetPossibleMoves();
 		char file = this.getCurrentFR().getFile();
 		int rank = this.getCurrentFR().getRank();
-		//One
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).setThreat(this);
-			}
-		}
-		//Two
-		if (board.getFileRankAt(file, rank - 1) != null
-		&& (!board.getFileRankAt(file, rank - 1).isOccupied()
-		||   board.getFileRankAt(file, rank - 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(file, rank - 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank - 1));
-				board.getFileRankAt(file, rank - 1).setThreat(this);
-			}
-		}
-		//Three
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).setThreat(this);
-			}
-		}		
-		//Four
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank).setThreat(this);
-			}
-		}		
-		//Five
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank).setThreat(this);
-			}
-			
-		}		
-		//Six
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).setThreat(this);
-			}
-		}		
-		//Seven
-		if (board.getFileRankAt(file, rank + 1) != null
-		&& (!board.getFileRankAt(file, rank + 1).isOccupied()
-		||   board.getFileRankAt(file, rank + 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(file, rank + 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank + 1));
-				board.getFileRankAt(file, rank + 1).setThreat(this);
-			}
-		}			
-		//Eight
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).getCurrentPiece().getColor() != this.getColor())){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).getThreat(this.getColor())){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).setThreat(this);
-			}
+		//Adjacent FileRanks that are not occupied by a friendly piece
+		long targets = Attacks.kingAttacks(this.getCurrentFR().getSquare()) & ~board.getBitboards().getOccupied(this.getColor());
+		while (targets != 0){
+			FileRank fr = board.getFileRankAt(Long.numberOfTrailingZeros(targets));
+			if (!fr.getThreat(this.getColor())){
+				addPossibleMove(fr);
+			}
+			targets &= targets - 1;
 		}
 		
 		if (canCastle){
@@ -163,7 +130,7 @@ public class King extends Piece{
 				 && board.getFileRankAt(Utils.convert(Utils.convert(file) - 4), rank).getCurrentPiece() instanceof Rook){
 					Rook rook = (Rook) board.getFileRankAt(Utils.convert(Utils.convert(file) - 4), rank).getCurrentPiece();
 					if (!rook.moved()){
-						nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank));
+						addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank));
 						rook.setCanCastle(true);
 					}
 				}
@@ -188,86 +155,14 @@ public class King extends Piece{
 				 && board.getFileRankAt(Utils.convert(Utils.convert(file) + 3), rank).getCurrentPiece() instanceof Rook){
 					Rook rook = (Rook) board.getFileRankAt(Utils.convert(Utils.convert(file) + 3), rank).getCurrentPiece();
 					if (!rook.moved()){
-						nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank));
+						addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank));
 						rook.setCanCastle(true);
 					}
 				}
 			}
 		}
 		
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
-	}
-
-	/**
-	 * Method that calculates the next possible legal moves while in check for the given piece
-	 * 
-	 * This method is slightly different for the King because it can only move away to safety, or capture checking piece
-	 */
-	public void setNextPossibleMovesInCheck(Player player) {
-		setNextPossibleMoves();
-		ArrayList<FileRank> nextPossibleMovesInCheck = new ArrayList<FileRank>();
-		for (Piece piece : player.getPieces()){
-			if (piece.isAttackingKing()){
-				// figure out what kind of piece is attacking the king
-				// depending on which piece, the move to block the piece differs
-				// for example, the only way to 'block' a pawn, is the capture it
-				if (piece instanceof Pawn){
-				// only way to 'block' pawn is the capture it
-				// if nextPossibleMoves contain a FileRank that is equal to where the pawn is currently located, this is a nextPossibleMoveInCheck
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Rook){
-				// moving in any square in the rook's path blocks this
-				// so if nextPossibleMoves contain a FileRank that is also in Rook's nextPossibleMoves, then this is a nextPossibleMoveInCheck
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Knight){
-					// Can only capture
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Queen){
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Bishop){
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-			}
-		}
-		resetPossibleMoves();
-		nextPossibleMoves = nextPossibleMovesInCheck;
-		
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
+		checkKing();
 	}
 	
 	/**
@@ -302,6 +197,22 @@ public class King extends Piece{
 		this.canCastle = canCastle;
 	}
 
+	/**
+	 * Returns the type of the King
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.KING;
+	}
+	
+	/**
+	 * Returns a copy of the King
+	 */
+	@Override
+	public Piece copy() {
+		return new King(this);
+	}
+	
 	/**
 	 * Returns a string representation of the King 
 	 */
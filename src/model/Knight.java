@@ -7,6 +7,7 @@ package model;
  */
 
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Knight extends Piece{
 
@@ -18,82 +19,42 @@ public class Knight extends Piece{
 		super(color);
 	}
 
+	/**
+	 * Copy constructor for the Knight
+	 * @param other Knight to copy
+	 */
+	public Knight(Knight other) {
+		super(other);
+	}
+
 	/**
 	 * Sets the next possible moves for the Knight
 	 * 
 	 * There are eight possible legal moves for the Knight unless one of the moves is off the board, collision is ignored
+	 * The moves are looked up as a bitboard of attacked squares that are not occupied by a friendly piece
 	 */
 	@Override
 	public void setNextPossibleMoves() {
 		resetPossibleMoves();
-		char file = this.getCurrentFR().getFile();
-		int rank = this.getCurrentFR().getRank();
-		//One
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 2) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 2).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 2).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 2));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 2).setThreat(this);
-		}
-		//Two
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 2) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 2).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 2).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 2));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 2).setThreat(this);
-		}
-		//Three
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank + 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank + 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank + 1).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank + 1));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank + 1).setThreat(this);
-		}		
-		//Four
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank + 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank + 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank + 1).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank + 1));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank + 1).setThreat(this);
-			
-		}		
-		//Five
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 2) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 2).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 2).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 2));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 2).setThreat(this);
-		}		
-		//Six
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 2) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 2).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 2).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 2));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 2).setThreat(this);
-		}		
-		//Seven
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank - 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank - 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank - 1).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank - 1));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) + 2), rank - 1).setThreat(this);
-		}		
-		//Eight
-		if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank - 1) != null
-		&& (!board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank - 1).isOccupied()
-		||   board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank - 1).getCurrentPiece().getColor() != this.getColor())){
-			nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank - 1));
-			board.getFileRankAt(Utils.convert(Utils.convert(file) - 2), rank - 1).setThreat(this);
-		}
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
+		int square = this.getCurrentFR().getSquare();
+		addPossibleMoves(Attacks.knightAttacks(square) & ~board.getBitboards().getOccupied(this.getColor()));
+		checkKing();
+	}
+	
+	/**
+	 * Returns the type of the Knight
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.KNIGHT;
+	}
+	
+	/**
+	 * Returns a copy of the Knight
+	 */
+	@Override
+	public Piece copy() {
+		return new Knight(this);
 	}
 	
 	/**
@@ -0,0 +1,138 @@
+package model;
+
+import model.Utils.PieceType;
+
+/**
+ * A utility class for moves packed into an int, so that they can be stored without allocating objects.
+ * Bits 0-5 hold the square moved from, bits 6-11 the square moved to and bits 12-14 the type of piece
+ * a Pawn is promoted to (0 if there is no promotion). Squares are numbered from 0 (a1) to 63 (h8).
+ * Bits 16-19 hold flags set by the MoveGenerator. They describe the move but are not needed to play it,
+ * so the lower 16 bits alone identify a move, as stored in the transposition table.
+ *
+ */
+public class Move {
+
+	/**
+	 * Value that is never a legal move, used when there is no move
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Flag of a move that captures a piece, including en passant
+	 */
+	public static final int CAPTURE = 1 << 16;
+
+	/**
+	 * Flag of a Pawn capturing en passant
+	 */
+	public static final int EN_PASSANT = 1 << 17;
+
+	/**
+	 * Flag of a King castling
+	 */
+	public static final int CASTLING = 1 << 18;
+
+	/**
+	 * Flag of a Pawn moving two FileRanks forward
+	 */
+	public static final int DOUBLE_PUSH = 1 << 19;
+
+	private static final int MOVE_MASK = 0xFFFF;
+
+	/**
+	 * Packs a move into an int
+	 * @param from square moved from
+	 * @param to square moved to
+	 * @param promotion type of piece promoted to, null if there is no promotion
+	 * @return the packed move
+	 */
+	public static int encode(int from, int to, PieceType promotion){
+		return from | (to << 6) | (promotion == null ? 0 : promotion.ordinal() << 12);
+	}
+
+	/**
+	 * Returns a move without its flags
+	 * @param move packed move
+	 * @return the from square, to square and promotion of the move
+	 */
+	public static int withoutFlags(int move){
+		return move & MOVE_MASK;
+	}
+
+	/**
+	 * Returns whether a move has a given flag
+	 * @param move packed move
+	 * @param flag CAPTURE, EN_PASSANT, CASTLING or DOUBLE_PUSH
+	 * @return true if the flag is set, false otherwise
+	 */
+	public static boolean hasFlag(int move, int flag){
+		return (move & flag) != 0;
+	}
+
+	/**
+	 * Returns the square a move is made from
+	 * @param move packed move
+	 * @return the square moved from
+	 */
+	public static int getFrom(int move){
+		return move & 63;
+	}
+
+	/**
+	 * Returns the square a move is made to
+	 * @param move packed move
+	 * @return the square moved to
+	 */
+	public static int getTo(int move){
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * Returns the type of piece a move promotes to
+	 * @param move packed move
+	 * @return the type of piece promoted to, null if there is no promotion
+	 */
+	public static PieceType getPromotion(int move){
+		int promotion = (move >>> 12) & 7;
+		return promotion == 0 ? null : PieceType.values()[promotion];
+	}
+
+	/**
+	 * Returns the char representation of the piece a move promotes to, as used by Board.makeMove and Piece.promoteMove
+	 * @param move packed move
+	 * @return 'N', 'B', 'R' or 'Q', 0 if there is no promotion
+	 */
+	public static char getPromotionChar(int move){
+		switch((move >>> 12) & 7){
+		case 1:
+			return 'N';
+		case 2:
+			return 'B';
+		case 3:
+			return 'R';
+		case 4:
+			return 'Q';
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a move in coordinate notation, for example e2e4 or e7e8q
+	 * @param move packed move
+	 * @return the move as a string
+	 */
+	public static String toString(int move){
+		if (move == NONE){
+			return "0000";
+		}
+		StringBuilder sb = new StringBuilder(5);
+		sb.append(Utils.convert((getFrom(move) & 7) + 1)).append((getFrom(move) >>> 3) + 1);
+		sb.append(Utils.convert((getTo(move) & 7) + 1)).append((getTo(move) >>> 3) + 1);
+		char promotion = getPromotionChar(move);
+		if (promotion != 0){
+			sb.append(Character.toLowerCase(promotion));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,397 @@
+package model;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Generates the legal moves of the side to move on a board from its bitboards.
+ * The checkers of the King, the mask of FileRanks that block or capture a single checker and the pin ray
+ * of every pinned piece are found once per position. Every pseudo-legal target is then filtered against them,
+ * so no move has to be played to find out whether it leaves the King in check.
+ * Under double check only the King may move. En passant, which removes two pieces from a rank,
+ * is checked by looking for a slider that would attack the King once both pawns are gone.
+ *
+ * Each board has its own generator, returned by Board.getMoveGenerator(). The targets of the last position
+ * generated are kept, keyed by the board's Zobrist key, so that each piece can be filtered without generating again.
+ *
+ */
+public class MoveGenerator {
+
+	private static final long[][] BETWEEN = new long[64][64];
+	private static final long[][] LINE = new long[64][64];
+	private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+	static {
+		for (int a = 0; a < 64; a++){
+			for (int b = 0; b < 64; b++){
+				if (a == b){
+					continue;
+				}
+				long bb = 1L << b;
+				if ((Attacks.rookAttacks(a, 0L) & bb) != 0){
+					BETWEEN[a][b] = Attacks.rookAttacks(a, bb) & Attacks.rookAttacks(b, 1L << a);
+					LINE[a][b] = (Attacks.rookAttacks(a, 0L) & Attacks.rookAttacks(b, 0L)) | (1L << a) | bb;
+				}else if ((Attacks.bishopAttacks(a, 0L) & bb) != 0){
+					BETWEEN[a][b] = Attacks.bishopAttacks(a, bb) & Attacks.bishopAttacks(b, 1L << a);
+					LINE[a][b] = (Attacks.bishopAttacks(a, 0L) & Attacks.bishopAttacks(b, 0L)) | (1L << a) | bb;
+				}
+			}
+		}
+	}
+
+	private Board board;
+	private long[] targets;
+	private long cachedKey;
+	private boolean cached;
+	private long checkers;
+
+	/**
+	 * Constructor for the generator of a given board
+	 * @param board board to generate moves on
+	 */
+	MoveGenerator(Board board){
+		this.board = board;
+		this.targets = new long[64];
+	}
+
+	/**
+	 * Returns the squares strictly between two squares on a rank, file or diagonal
+	 * @param a first square
+	 * @param b second square
+	 * @return bitboard of the squares in between, 0 if the squares are not aligned
+	 */
+	public static long between(int a, int b){
+		return BETWEEN[a][b];
+	}
+
+	/**
+	 * Generates the legal moves of the side to move into a frame of a move stack, which is emptied first
+	 * Pawn moves to the last rank are written once for each piece the Pawn can be promoted to,
+	 * and every move is flagged as a capture, en passant, castling or double push where it is one
+	 * @param stack stack to write the moves to
+	 * @param ply frame of the stack to write to
+	 * @return the number of moves written
+	 */
+	public int generate(MoveStack stack, int ply){
+		stack.clear(ply);
+		write(stack, ply, true, true);
+		return stack.size(ply);
+	}
+
+	/**
+	 * Generates the legal captures, en passant captures and promotions of the side to move into a frame
+	 * of a move stack, which is emptied first
+	 * @param stack stack to write the moves to
+	 * @param ply frame of the stack to write to
+	 * @return the number of moves written
+	 */
+	public int generateNoisy(MoveStack stack, int ply){
+		stack.clear(ply);
+		write(stack, ply, true, false);
+		return stack.size(ply);
+	}
+
+	/**
+	 * Adds the legal moves that generateNoisy leaves out to the end of a frame of a move stack,
+	 * so that a search can generate the quiet moves only if no capture has already refuted the position
+	 * @param stack stack to write the moves to
+	 * @param ply frame of the stack to add to
+	 * @return the number of moves in the frame afterwards
+	 */
+	public int generateQuiet(MoveStack stack, int ply){
+		write(stack, ply, false, true);
+		return stack.size(ply);
+	}
+
+	/**
+	 * Writes legal moves of the side to move to the end of a frame of a move stack
+	 * @param stack stack to write the moves to
+	 * @param ply frame of the stack to write to
+	 * @param noisy true to write captures, en passant captures and promotions
+	 * @param quiet true to write every other move
+	 */
+	private void write(MoveStack stack, int ply, boolean noisy, boolean quiet){
+		update();
+		Bitboards bb = board.getBitboards();
+		Color us = board.getSideToMove();
+		long pawns = bb.getPieces(us, PieceType.PAWN);
+		long enemy = bb.getOccupied(us == Color.WHITE ? Color.BLACK : Color.WHITE);
+		long ep = board.getEnPassantSquares();
+		int king = bb.getKingSquare(us);
+		for (int from = 0; from < 64; from++){
+			long t = targets[from];
+			if (t == 0){
+				continue;
+			}
+			boolean pawn = (pawns & (1L << from)) != 0;
+			// Pawn moves to the last rank are noisy whether or not they capture
+			long noisyTargets = enemy | (pawn ? ep | 0xFF000000000000FFL : 0L);
+			t &= (noisy ? noisyTargets : 0L) | (quiet ? ~noisyTargets : 0L);
+			while (t != 0){
+				int to = Long.numberOfTrailingZeros(t);
+				t &= t - 1;
+				int flags = (enemy & (1L << to)) != 0 ? Move.CAPTURE : 0;
+				if (pawn){
+					if ((ep & (1L << to)) != 0){
+						flags |= Move.CAPTURE | Move.EN_PASSANT;
+					}else if (Math.abs(to - from) == 16){
+						flags |= Move.DOUBLE_PUSH;
+					}
+				}else if (from == king && Math.abs(to - from) == 2){
+					flags |= Move.CASTLING;
+				}
+				if (pawn && (to >= 56 || to < 8)){
+					for (PieceType promotion : PROMOTIONS){
+						stack.add(ply, Move.encode(from, to, promotion) | flags);
+					}
+				}else{
+					stack.add(ply, Move.encode(from, to, null) | flags);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the FileRanks the piece on a given square can legally move to
+	 * @param square square of a piece of the side to move
+	 * @return bitboard of the legal targets, 0 if the piece cannot move or does not belong to the side to move
+	 */
+	public long getTargets(int square){
+		update();
+		return targets[square];
+	}
+
+	/**
+	 * Returns whether the side to move has at least one legal move
+	 * @return true if there is a legal move, false on checkmate or stalemate
+	 */
+	public boolean hasLegalMove(){
+		update();
+		for (long t : targets){
+			if (t != 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the pieces giving check to the King of the side to move
+	 * @return bitboard of the checking pieces
+	 */
+	public long getCheckers(){
+		update();
+		return checkers;
+	}
+
+	/**
+	 * Finds the legal targets of every piece of the side to move, unless they are already known for this position
+	 */
+	private void update(){
+		long key = board.getKey();
+		if (cached && key == cachedKey){
+			return;
+		}
+		compute();
+		cachedKey = key;
+		cached = true;
+	}
+
+	/**
+	 * Finds the legal targets of every piece of the side to move
+	 */
+	private void compute(){
+		for (int i = 0; i < 64; i++){
+			targets[i] = 0L;
+		}
+		Bitboards bb = board.getBitboards();
+		Color us = board.getSideToMove();
+		Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long own = bb.getOccupied(us);
+		long enemy = bb.getOccupied(them);
+		long occupied = own | enemy;
+		int king = bb.getKingSquare(us);
+		if (king == 64){
+			checkers = 0L;
+			return;
+		}
+		long kingBit = 1L << king;
+		checkers = bb.attackersTo(king, them, occupied);
+
+		//King moves to squares that are not attacked, and not back along the ray of a checking slider
+		long kingTargets = Attacks.kingAttacks(king) & ~own & ~bb.getAttacked(them);
+		long sliders = checkers & ~bb.getPieces(them, PieceType.PAWN) & ~bb.getPieces(them, PieceType.KNIGHT);
+		while (sliders != 0){
+			int slider = Long.numberOfTrailingZeros(sliders);
+			sliders &= sliders - 1;
+			kingTargets &= ~LINE[king][slider] | (1L << slider);
+		}
+		if (checkers == 0){
+			kingTargets |= castlingTargets(us, them, king, occupied);
+		}
+		targets[king] = kingTargets;
+
+		//Under double check only the King can move
+		if (Long.bitCount(checkers) > 1){
+			return;
+		}
+		long checkMask = -1L;
+		if (checkers != 0){
+			int checker = Long.numberOfTrailingZeros(checkers);
+			checkMask = checkers | BETWEEN[king][checker];
+		}
+
+		//Pinned pieces, found by looking from the King through one of our pieces to an enemy slider
+		long pinned = 0L;
+		long straight = bb.getPieces(them, PieceType.ROOK) | bb.getPieces(them, PieceType.QUEEN);
+		long diagonal = bb.getPieces(them, PieceType.BISHOP) | bb.getPieces(them, PieceType.QUEEN);
+		long snipers = (Attacks.rookAttacks(king, enemy) & straight) | (Attacks.bishopAttacks(king, enemy) & diagonal);
+		while (snipers != 0){
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = BETWEEN[king][sniper] & occupied;
+			if (Long.bitCount(blockers) == 1 && (blockers & own) != 0){
+				pinned |= blockers;
+			}
+		}
+
+		long targetMask = ~own & checkMask;
+		long pieces = own & ~kingBit;
+		while (pieces != 0){
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			long t;
+			switch(pieceTypeAt(us, from)){
+			case PAWN:
+				t = pawnTargets(us, from, enemy, occupied) & checkMask;
+				t |= enPassantTarget(us, them, from, king, occupied, checkMask);
+				break;
+			case KNIGHT:
+				t = Attacks.knightAttacks(from) & targetMask;
+				break;
+			case BISHOP:
+				t = Attacks.bishopAttacks(from, occupied) & targetMask;
+				break;
+			case ROOK:
+				t = Attacks.rookAttacks(from, occupied) & targetMask;
+				break;
+			case QUEEN:
+				t = Attacks.queenAttacks(from, occupied) & targetMask;
+				break;
+			default:
+				t = 0L;
+				break;
+			}
+			if ((pinned & (1L << from)) != 0){
+				t &= LINE[king][from];
+			}
+			targets[from] = t;
+		}
+	}
+
+	/**
+	 * Returns the type of our piece on a square
+	 * @param us color of the piece
+	 * @param square square of the piece
+	 * @return the type of the piece
+	 */
+	private PieceType pieceTypeAt(Color us, int square){
+		Bitboards bb = board.getBitboards();
+		long b = 1L << square;
+		for (PieceType type : PieceType.values()){
+			if ((bb.getPieces(us, type) & b) != 0){
+				return type;
+			}
+		}
+		return PieceType.KING;
+	}
+
+	/**
+	 * Returns the pushes and captures of a Pawn, not counting en passant
+	 * @param us color of the Pawn
+	 * @param from square of the Pawn
+	 * @param enemy bitboard of the opposing pieces
+	 * @param occupied bitboard of all pieces
+	 * @return bitboard of the targets
+	 */
+	private static long pawnTargets(Color us, int from, long enemy, long occupied){
+		long t = Attacks.pawnAttacks(us, from) & enemy;
+		int step = us == Color.WHITE ? 8 : -8;
+		int one = from + step;
+		if (one >= 0 && one < 64 && (occupied & (1L << one)) == 0){
+			t |= 1L << one;
+			int startRank = us == Color.WHITE ? 1 : 6;
+			int two = one + step;
+			if ((from >>> 3) == startRank && (occupied & (1L << two)) == 0){
+				t |= 1L << two;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Returns the en passant capture of a Pawn if it is legal
+	 * The capture must remove a checking Pawn or block the check, and must not expose the King to a slider
+	 * once both Pawns have left their rank
+	 * @param us color of the capturing Pawn
+	 * @param them color of the captured Pawn
+	 * @param from square of the capturing Pawn
+	 * @param king square of our King
+	 * @param occupied bitboard of all pieces
+	 * @param checkMask squares that resolve a check, all squares if not in check
+	 * @return bitboard with the en passant square, 0 if there is no legal en passant capture
+	 */
+	private long enPassantTarget(Color us, Color them, int from, int king, long occupied, long checkMask){
+		long ep = board.getEnPassantSquares() & Attacks.pawnAttacks(us, from);
+		if (ep == 0){
+			return 0L;
+		}
+		int to = Long.numberOfTrailingZeros(ep);
+		int victim = us == Color.WHITE ? to - 8 : to + 8;
+		Bitboards bb = board.getBitboards();
+		if ((bb.getPieces(them, PieceType.PAWN) & (1L << victim)) == 0 || (occupied & ep) != 0){
+			return 0L;
+		}
+		if ((checkMask & (ep | (1L << victim))) == 0){
+			return 0L;
+		}
+		long after = (occupied & ~(1L << from) & ~(1L << victim)) | ep;
+		long straight = bb.getPieces(them, PieceType.ROOK) | bb.getPieces(them, PieceType.QUEEN);
+		long diagonal = bb.getPieces(them, PieceType.BISHOP) | bb.getPieces(them, PieceType.QUEEN);
+		if ((Attacks.rookAttacks(king, after) & straight) != 0 || (Attacks.bishopAttacks(king, after) & diagonal & ~(1L << victim)) != 0){
+			return 0L;
+		}
+		return ep;
+	}
+
+	/**
+	 * Returns the castling targets of the King
+	 * The King and the Rook must not have moved, the FileRanks between them must be empty,
+	 * and the King may not pass through or land on an attacked FileRank
+	 * @param us color of the King
+	 * @param them opposing color
+	 * @param king square of the King
+	 * @param occupied bitboard of all pieces
+	 * @return bitboard of the FileRanks the King can castle to
+	 */
+	private long castlingTargets(Color us, Color them, int king, long occupied){
+		int home = us == Color.WHITE ? 4 : 60;
+		if (king != home){
+			return 0L;
+		}
+		int rights = board.getCastlingRights();
+		int kingSide = us == Color.WHITE ? Zobrist.WHITE_KING_SIDE : Zobrist.BLACK_KING_SIDE;
+		int queenSide = us == Color.WHITE ? Zobrist.WHITE_QUEEN_SIDE : Zobrist.BLACK_QUEEN_SIDE;
+		Bitboards bb = board.getBitboards();
+		long t = 0L;
+		if ((rights & kingSide) != 0 && (occupied & BETWEEN[home][home + 3]) == 0
+				&& !bb.isAttacked(home + 1, them) && !bb.isAttacked(home + 2, them)){
+			t |= 1L << (home + 2);
+		}
+		if ((rights & queenSide) != 0 && (occupied & BETWEEN[home][home - 4]) == 0
+				&& !bb.isAttacked(home - 1, them) && !bb.isAttacked(home - 2, them)){
+			t |= 1L << (home - 2);
+		}
+		return t;
+	}
+}
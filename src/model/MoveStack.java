@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * A preallocated stack of packed moves with one frame per ply of a search.
+ * Moves are written into a single int array, so generating moves allocates nothing,
+ * and the targets of each frame are also kept as a bitboard per square moved from,
+ * so checking whether a frame contains a move takes constant time.
+ *
+ */
+public class MoveStack {
+
+	/**
+	 * Largest number of moves a frame can hold, more than any legal chess position has
+	 */
+	public static final int MAX_MOVES = 256;
+
+	private int[] moves;
+	private int[] sizes;
+	private long[] targets;
+
+	/**
+	 * Constructor for a stack with a given number of frames
+	 * @param plies number of frames, one for each ply that can be searched
+	 */
+	public MoveStack(int plies){
+		moves = new int[plies * MAX_MOVES];
+		sizes = new int[plies];
+		targets = new long[plies * 64];
+	}
+
+	/**
+	 * Empties a frame
+	 * @param ply frame to empty
+	 */
+	public void clear(int ply){
+		int base = ply * MAX_MOVES;
+		for (int i = 0; i < sizes[ply]; i++){
+			targets[ply * 64 + Move.getFrom(moves[base + i])] = 0L;
+		}
+		sizes[ply] = 0;
+	}
+
+	/**
+	 * Adds a move to the end of a frame
+	 * @param ply frame to add the move to
+	 * @param move packed move
+	 */
+	public void add(int ply, int move){
+		moves[ply * MAX_MOVES + sizes[ply]++] = move;
+		targets[ply * 64 + Move.getFrom(move)] |= 1L << Move.getTo(move);
+	}
+
+	/**
+	 * Returns the number of moves in a frame
+	 * @param ply frame to count
+	 * @return the number of moves
+	 */
+	public int size(int ply){
+		return sizes[ply];
+	}
+
+	/**
+	 * Returns a move of a frame
+	 * @param ply frame of the move
+	 * @param index position of the move in the frame
+	 * @return the packed move
+	 */
+	public int get(int ply, int index){
+		return moves[ply * MAX_MOVES + index];
+	}
+
+	/**
+	 * Returns whether a frame has a move from one square to another
+	 * @param ply frame to check
+	 * @param from square moved from
+	 * @param to square moved to
+	 * @return true if the frame has the move, false otherwise
+	 */
+	public boolean contains(int ply, int from, int to){
+		return (targets[ply * 64 + from] & (1L << to)) != 0;
+	}
+
+	/**
+	 * Moves a move to the front of a frame, so that it is tried first
+	 * Flags are ignored when looking for the move, so a move read from the transposition table can be given
+	 * @param ply frame of the move
+	 * @param move packed move
+	 * @return true if the frame has the move, false otherwise
+	 */
+	public boolean moveToFront(int ply, int move){
+		if (move == Move.NONE || !contains(ply, Move.getFrom(move), Move.getTo(move))){
+			return false;
+		}
+		int base = ply * MAX_MOVES;
+		int wanted = Move.withoutFlags(move);
+		for (int i = 0; i < sizes[ply]; i++){
+			int m = moves[base + i];
+			if (Move.withoutFlags(m) == wanted){
+				moves[base + i] = moves[base];
+				moves[base] = m;
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,52 @@
+package model;
+
+/**
+ * A record of everything a move changed on a board, so that the move can be taken back.
+ * Records are preallocated by the board and reused, one per ply.
+ * The possible moves of the pieces are not recorded, they are recalculated every turn,
+ * and the attacked squares are restored by the Bitboards as the pieces are put back.
+ *
+ */
+class MoveUndo {
+
+	Piece moved;
+	FileRank from;
+	FileRank to;
+	int movedState;
+
+	Piece captured;
+	FileRank capturedOn;
+
+	Rook castlingRook;
+	FileRank rookFrom;
+	FileRank rookTo;
+	int rookState;
+
+	Piece promoted;
+	int promotedIndex;
+
+	long enPassantSquares;
+	long enPassantCounts;
+	int halfmoveClock;
+	int checks;
+
+	/**
+	 * Clears the record before it is reused for a new move
+	 * @param moved piece that is moved
+	 * @param from FileRank the piece is moved from
+	 * @param to FileRank the piece is moved to
+	 */
+	void reset(Piece moved, FileRank from, FileRank to){
+		this.moved = moved;
+		this.from = from;
+		this.to = to;
+		this.movedState = moved.getState();
+		captured = null;
+		capturedOn = null;
+		castlingRook = null;
+		rookFrom = null;
+		rookTo = null;
+		promoted = null;
+		promotedIndex = -1;
+	}
+}
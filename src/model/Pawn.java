@@ -7,6 +7,7 @@ package model;
  */
 
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Pawn extends Piece{
 
@@ -21,6 +22,15 @@ public class Pawn extends Piece{
 		setMoved(false);
 	}
 
+	/**
+	 * Copy constructor for the Pawn
+	 * @param other Pawn to copy
+	 */
+	public Pawn(Pawn other) {
+		super(other);
+		setMoved(other.isMoved());
+	}
+
 	/**
 	 * Returns whether or not the Pawn has moved yet
 	 * @return true if moved, false otherwise
@@ -42,33 +52,44 @@ public class Pawn extends Piece{
 	 * Once moved, the Pawn is no longer eligible to jump a FileRank
 	 * 
 	 * If the distance moved is greater than one, then the FileRank jumped is possible for EnPassant
-	 * If FileRank moved to was an EnPassant FileRank, then the opposing Pawn is removed from play
+	 * If FileRank moved to diagonally was an EnPassant FileRank, then the opposing Pawn is removed from play
 	 */
 	@Override
-	public boolean move(FileRank to){
-		int distance = Math.abs(this.getCurrentFR().getRank() - to.getRank());
-		boolean moveable = super.move(to);
-		if(moveable){
-			if (distance > 1){
-				if (this.getColor() == Color.WHITE){
-					board.getFileRankAt(this.getCurrentFR().getFile(), this.getCurrentFR().getRank() - 1).setCanEnPassant(true);
-				}else{
-					board.getFileRankAt(this.getCurrentFR().getFile(), this.getCurrentFR().getRank() + 1).setCanEnPassant(true);
-				}
-			}
-			if (to.getCanEnPassant()){
-				if(this.getColor() == Color.WHITE){
-					board.getFileRankAt(to.getFile(), to.getRank() - 1).getCurrentPiece().setInPlay(false);
-					board.getFileRankAt(to.getFile(), to.getRank() - 1).removeCurrentPiece();
-				}else{
-					board.getFileRankAt(to.getFile(), to.getRank() + 1).getCurrentPiece().setInPlay(false);
-					board.getFileRankAt(to.getFile(), to.getRank() + 1).removeCurrentPiece();
-				}
-				to.setCanEnPassant(false);
+	void apply(FileRank to, MoveUndo undo){
+		FileRank from = this.getCurrentFR();
+		int distance = Math.abs(from.getRank() - to.getRank());
+		boolean enPassant = to.getCanEnPassant() && to.getFile() != from.getFile() && !to.isOccupied();
+		super.apply(to, undo);
+		if (distance > 1){
+			board.getFileRankAt(to.getFile(), (from.getRank() + to.getRank()) / 2).setCanEnPassant(true);
+		}
+		if (enPassant){
+			FileRank captured = board.getFileRankAt(to.getFile(), from.getRank());
+			if (captured.isOccupied()){
+				undo.captured = captured.getCurrentPiece();
+				undo.capturedOn = captured;
+				captured.getCurrentPiece().setInPlay(false);
+				captured.removeCurrentPiece();
 			}
-			setMoved(true);
+			to.setCanEnPassant(false);
 		}
-		return moveable;
+		setMoved(true);
+	}
+	
+	/**
+	 * Returns whether the Pawn has moved
+	 */
+	@Override
+	int getState(){
+		return moved ? 1 : 0;
+	}
+	
+	/**
+	 * Restores whether the Pawn has moved
+	 */
+	@Override
+	void setState(int state){
+		this.moved = state != 0;
 	}
 	
 	/**
@@ -93,16 +114,14 @@ public class Pawn extends Piece{
 				//Two spaces forward
 				if (board.getFileRankAt(file, rank + 2) != null
 				&& !board.getFileRankAt(file, rank + 2).isOccupied()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank + 2));
-					board.getFileRankAt(file, rank + 2).setThreat(this);
+					addPossibleMove(board.getFileRankAt(file, rank + 2));
 				}
 			}	
 			
 			//One space
 			if (board.getFileRankAt(file, rank + 1) != null
 			&& !board.getFileRankAt(file,  rank + 1).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank + 1));
-				board.getFileRankAt(file, rank + 1).setThreat(this);
+				addPossibleMove(board.getFileRankAt(file, rank + 1));
 			}
 			//Diagonal 1
 			if ((board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1) != null
@@ -111,8 +130,7 @@ public class Pawn extends Piece{
 			|| (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1) != null
 			&& !board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).isOccupied()
 			&& (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).getCanEnPassant()))){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1).setThreat(this);
+				addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank + 1));
 			}
 			//Diagonal 2
 			if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1) != null
@@ -121,23 +139,20 @@ public class Pawn extends Piece{
 			|| (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1) != null
 			&& !board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).isOccupied()
 			&& (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).getCanEnPassant()))){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1).setThreat(this);
+				addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank + 1));
 			}
 		}else{
 			if (!moved){
 				//Two spaces forward
 				if (board.getFileRankAt(file, rank - 2) != null
 				&& !board.getFileRankAt(file, rank - 2).isOccupied()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank - 2));
-					board.getFileRankAt(file, rank - 2).setThreat(this);
+					addPossibleMove(board.getFileRankAt(file, rank - 2));
 				}
 			}
 			//One space
 			if (board.getFileRankAt(file, rank - 1) != null
 			&& !board.getFileRankAt(file,  rank - 1).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank - 1));
-				board.getFileRankAt(file, rank - 1).setThreat(this);
+				addPossibleMove(board.getFileRankAt(file, rank - 1));
 			}
 			//Diagonal 1
 			if (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1) != null
@@ -146,8 +161,7 @@ public class Pawn extends Piece{
 			|| (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1) != null
 			&& !board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).isOccupied()
 			&& (board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).getCanEnPassant()))){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1).setThreat(this);
+				addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) - 1), rank - 1));
 			}
 			//Diagonal 2
 			if (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1) != null
@@ -156,19 +170,26 @@ public class Pawn extends Piece{
 			|| (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1) != null
 			&& !board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).isOccupied()
 			&& (board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).getCanEnPassant()))){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1).setThreat(this);
-			}
-		}
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
+				addPossibleMove(board.getFileRankAt(Utils.convert(Utils.convert(file) + 1), rank - 1));
 			}
 		}
+		checkKing();
+	}
+	
+	/**
+	 * Returns the type of the Pawn
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.PAWN;
+	}
+	
+	/**
+	 * Returns a copy of the Pawn
+	 */
+	@Override
+	public Piece copy() {
+		return new Pawn(this);
 	}
 	
 	/**
@@ -1,7 +1,5 @@
 package model;
 
-import java.util.ArrayList;
-
 import model.Utils.*;
 /**
  * 
@@ -18,7 +16,7 @@ public abstract class Piece {
 	private FileRank currentFR;
 	private boolean inPlay;
 	private boolean attackingKing;
-	protected ArrayList<FileRank> nextPossibleMoves;
+	protected long nextPossibleMoves;
 	
 	/**
 	 * Constructor for this abstract class
@@ -28,7 +26,20 @@ public abstract class Piece {
 		setColor(color);
 		setCurrentFR(null);
 		setInPlay(true);
-		nextPossibleMoves = new ArrayList<FileRank>();
+		nextPossibleMoves = 0L;
+	}
+	
+	/**
+	 * Copy constructor for this abstract class
+	 * The board, FileRank and possible moves of the piece are not copied
+	 * @param other piece to copy
+	 */
+	protected Piece(Piece other){
+		setColor(other.getColor());
+		setCurrentFR(null);
+		setInPlay(other.isInPlay());
+		setAttackingKing(other.isAttackingKing());
+		nextPossibleMoves = 0L;
 	}
 
 	/**
@@ -80,12 +91,21 @@ public abstract class Piece {
 	}
 
 	/**
-	 * Returns an ArrayList containing the FileRanks that are legal moves for this piece
-	 * @return an ArrayList of type FileRank
+	 * Returns the FileRanks that are legal moves for this piece
+	 * @return bitboard of the squares the piece can move to
 	 */
-	public ArrayList<FileRank> getNextPossibleMoves() {
+	public long getNextPossibleMoves() {
 		return nextPossibleMoves;
 	}
+	
+	/**
+	 * Returns whether or not a FileRank is one of the next possible moves of this piece
+	 * @param to FileRank to check
+	 * @return true if the piece can move to the FileRank, false otherwise
+	 */
+	public boolean canMoveTo(FileRank to) {
+		return (nextPossibleMoves & (1L << to.getSquare())) != 0;
+	}
 
 	/**
 	 * Sets the board that the piece is playing on
@@ -98,19 +118,15 @@ public abstract class Piece {
 	/**
 	 * Moves the current piece to a specified FileRank
 	 * If the specified location is occupied, then the occupying piece is removed from play
+	 * The move can be taken back with Board.unmakeMove
 	 * @param to the FileRank to move the Piece to
-	 * @return true if the move is completed, false otherwise
+	 * @return true if the move is completed, false if it is not one of the possible moves of the piece
 	 */
 	public boolean move(FileRank to){
-		if (!nextPossibleMoves.contains(to)){
-			System.out.println("Illegal move, try again.");
+		if (!canMoveTo(to)){
 			return false;
 		}else{
-			if (to.isOccupied()){
-				to.getCurrentPiece().setInPlay(false);
-			}
-			this.getCurrentFR().removeCurrentPiece();
-			to.setCurrentPiece(this);
+			board.makeMove(this.getCurrentFR(), to, (char) 0);
 			
 			resetPossibleMoves();
 			setNextPossibleMoves();
@@ -119,6 +135,37 @@ public abstract class Piece {
 		}
 	}
 	
+	/**
+	 * Applies a move of this piece to the board without checking whether it is legal
+	 * Everything that is changed besides the FileRanks' EnPassant state is recorded so it can be undone
+	 * @param to the FileRank to move the Piece to
+	 * @param undo record of the move
+	 */
+	void apply(FileRank to, MoveUndo undo){
+		if (to.isOccupied()){
+			undo.captured = to.getCurrentPiece();
+			undo.capturedOn = to;
+			to.getCurrentPiece().setInPlay(false);
+		}
+		this.getCurrentFR().removeCurrentPiece();
+		to.setCurrentPiece(this);
+	}
+	
+	/**
+	 * Returns the flags of the piece that change when it moves, packed into an int
+	 * @return the packed flags of the piece
+	 */
+	int getState(){
+		return 0;
+	}
+	
+	/**
+	 * Restores the flags of the piece from a value returned by getState
+	 * @param state the packed flags of the piece
+	 */
+	void setState(int state){
+	}
+	
 	/**
 	 * Moves a piece to a specified FileRank in addition to promoting the piece
 	 * @param to FileRank to move piece to
@@ -134,11 +181,11 @@ public abstract class Piece {
 	}
 	
 	/**
-	 * Resets the currently list of possible moves by creating a new ArrayList
+	 * Clears the possible moves of the piece
 	 */
 	protected void resetPossibleMoves(){
 		setAttackingKing(false);
-		nextPossibleMoves = new ArrayList<FileRank>();
+		nextPossibleMoves = 0L;
 	}
 	
 	/**
@@ -146,233 +193,61 @@ public abstract class Piece {
 	 */
 	public abstract void setNextPossibleMoves();
 	
+	/**
+	 * Returns the type of the piece, used to index the bitboards of the board
+	 * @return the type of the piece
+	 */
+	public abstract PieceType getType();
+	
+	/**
+	 * Returns a copy of the piece that is not yet placed on any board
+	 * @return a copy of the piece
+	 */
+	public abstract Piece copy();
+	
+	/**
+	 * Adds every square of a bitboard to the next possible moves
+	 * @param targets bitboard of the squares to add
+	 */
+	protected void addPossibleMoves(long targets){
+		nextPossibleMoves |= targets;
+	}
+	
+	/**
+	 * Adds a FileRank to the next possible moves
+	 * @param fr FileRank to add
+	 */
+	protected void addPossibleMove(FileRank fr){
+		nextPossibleMoves |= 1L << fr.getSquare();
+	}
+	
+	/**
+	 * Puts the opposing King in check if it is on one of the next possible moves of this piece
+	 */
+	protected void checkKing(){
+		Color opponent = getColor() == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long king = nextPossibleMoves & board.getBitboards().getPieces(opponent, PieceType.KING);
+		if (king != 0){
+			((King) board.getFileRankAt(Long.numberOfTrailingZeros(king)).getCurrentPiece()).setInCheck(true);
+			setAttackingKing(true);
+		}
+	}
+	
+	/**
+	 * Removes the moves that are not legal from the next possible moves of the piece
+	 * The legal targets come from the board's MoveGenerator, which accounts for checks, double checks and pins
+	 */
+	void keepLegalMoves() {
+		nextPossibleMoves = isInPlay() ? board.getMoveGenerator().getTargets(currentFR.getSquare()) : 0L;
+	}
+	
 	/**
 	 * Method that calculates the next possible legal moves while in check for the given piece
+	 * @param player the player giving check
 	 */
 	public void setNextPossibleMovesInCheck(Player player) {
 		setNextPossibleMoves();
-		ArrayList<FileRank> nextPossibleMovesInCheck = new ArrayList<FileRank>();
-		King king = (King) player.getPieces().get(15);
-		FileRank fr = king.getCurrentFR();
-		int inc = 1;
-		for (Piece piece : player.getPieces()){
-			int fileDistance = Utils.convert(king.getCurrentFR().getFile()) - Utils.convert(piece.getCurrentFR().getFile());
-			int rankDistance = king.getCurrentFR().getRank() - piece.getCurrentFR().getRank();
-			
-			if (piece.isAttackingKing()){
-				// figure out what kind of piece is attacking the king
-				// depending on which piece, the move to block the piece differs
-				// for example, the only way to 'block' a pawn, is the capture it
-				if (piece instanceof Pawn){
-				// only way to 'block' pawn is the capture it
-				// if nextPossibleMoves contain a FileRank that is equal to where the pawn is currently located, this is a nextPossibleMoveInCheck
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Rook){
-				// moving in any square in the rook's path blocks this
-				// so if nextPossibleMoves contain a FileRank that is also in Rook's nextPossibleMoves, then this is a nextPossibleMoveInCheck
-					//moving vertically
-					if (fileDistance == 0){
-						// King is above rook
-						if (rankDistance > 0){
-							while (board.getFileRankAt(fr.getFile(), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(fr.getFile(), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(fr.getFile(), fr.getRank() - inc));
-									board.getFileRankAt(fr.getFile(), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						}else{
-							while (board.getFileRankAt(fr.getFile(), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(fr.getFile(), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(fr.getFile(), fr.getRank() + inc));
-									board.getFileRankAt(fr.getFile(), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}else{
-						// King is to the right of rook
-						if (fileDistance > 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()).setThreat(this);
-								}
-								inc++;
-							}
-						}else{
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Knight){
-					// Can only capture
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Queen){
-					if (fileDistance == 0 && rankDistance != 0){
-						// King is above queen
-						if (rankDistance > 0){
-							while (board.getFileRankAt(fr.getFile(), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(fr.getFile(), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(fr.getFile(), fr.getRank() - inc));
-									board.getFileRankAt(fr.getFile(), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						// King is below the queen
-						}else{
-							while (board.getFileRankAt(fr.getFile(), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(fr.getFile(), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(fr.getFile(), fr.getRank() + inc));
-									board.getFileRankAt(fr.getFile(), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}else if (rankDistance == 0 && fileDistance != 0){
-						// King is to the right of queen
-						if (fileDistance > 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank()).setThreat(this);
-								}
-								inc++;
-							}
-						// King is to the left of queen
-						}else{
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank()).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}else if (fileDistance > 0 && rankDistance > 0){
-						// Queen is in first quadrant
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						// Queen is in fourth quadrant
-						}else if (fileDistance > 0 && rankDistance < 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}else if (fileDistance < 0 && rankDistance > 0){
-						// Queen is in the second quadrant
-						
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						// Queen is in the third quadrant
-						}else if (fileDistance < 0 && rankDistance < 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-				if (piece instanceof Bishop){
-					if (fileDistance > 0){
-						// Bishop is in first quadrant
-						if (rankDistance > 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						// Bishop is in fourth quadrant
-						}else{
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) - inc), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}else{
-						// Bishop is in the second quadrant
-						if (rankDistance > 0){
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() + inc).setThreat(this);
-								}
-								inc++;
-							}
-						// Bishop is in the third quadrant
-						}else{
-							while (board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc) != null){
-								if (nextPossibleMoves.contains(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc))){
-									nextPossibleMovesInCheck.add(board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc));
-									board.getFileRankAt(Utils.convert(Utils.convert(fr.getFile()) + inc), fr.getRank() - inc).setThreat(this);
-								}
-								inc++;
-							}
-						}
-					}
-					if (nextPossibleMoves.contains(piece.getCurrentFR())){
-						nextPossibleMovesInCheck.add(piece.getCurrentFR());
-						piece.getCurrentFR().setThreat(this);
-					}
-				}
-			}
-	
-		resetPossibleMoves();
-		nextPossibleMoves = nextPossibleMovesInCheck;
-		
-		for (FileRank filerank : nextPossibleMoves){
-			if (filerank.isOccupied()){
-				Piece op = filerank.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
+		keepLegalMoves();
 	}
 	
 	/**
@@ -7,12 +7,14 @@ package model;
  */
 
 import java.util.ArrayList;
+import java.util.Map;
 
 import model.Utils.Color;
 
 public class Player {
 	
 	private ArrayList<Piece> pieces;
+	private King king;
 	private Color color;
 	private boolean draw;
 	
@@ -45,9 +47,48 @@ public class Player {
 		pieces.add(new Queen(color));
 		
 		//Create King
-		pieces.add(new King(color));
+		king = new King(color);
+		pieces.add(king);
 		setInCheck(false);
 	}
+	
+	/**
+	 * Constructor for a player with a given set of pieces, used for positions other than the initial one
+	 * The pieces must contain exactly one King
+	 * @param color which color player will be
+	 * @param pieces the pieces that belong to the player
+	 */
+	public Player(Color color, ArrayList<Piece> pieces){
+		setColor(color);
+		setDraw(false);
+		this.pieces = pieces;
+		for (Piece piece : pieces){
+			if (piece instanceof King){
+				king = (King) piece;
+			}
+		}
+	}
+	
+	/**
+	 * Creates a copy of this player whose pieces are the given copies of this player's pieces
+	 * Pieces that have no copy yet are copied and added to the map
+	 * @param copies map from this player's pieces to their copies
+	 * @return the copy of the player
+	 */
+	Player copy(Map<Piece, Piece> copies){
+		ArrayList<Piece> copiedPieces = new ArrayList<Piece>(pieces.size());
+		for (Piece piece : pieces){
+			Piece copy = copies.get(piece);
+			if (copy == null){
+				copy = piece.copy();
+				copies.put(piece, copy);
+			}
+			copiedPieces.add(copy);
+		}
+		Player player = new Player(color, copiedPieces);
+		player.setDraw(draw);
+		return player;
+	}
 
 	/**
 	 * Places all of the pieces on the board, pieces will be placed in different locations
@@ -93,6 +134,7 @@ public class Player {
 			//Place king
 			board.getFileRankAt('e', 8).setCurrentPiece(pieces.get(i++));
 		}
+		board.setPlayer(this);
 		for(i = 0; i < pieces.size(); i++){
 			pieces.get(i).setBoard(board);
 			pieces.get(i).setNextPossibleMoves();
@@ -106,6 +148,14 @@ public class Player {
 	public ArrayList<Piece> getPieces() {
 		return pieces;
 	}
+	
+	/**
+	 * Returns the King that belongs to the player
+	 * @return the King of the player
+	 */
+	public King getKing() {
+		return king;
+	}
 
 	/**
 	 * Returns the color of the player
@@ -128,10 +178,24 @@ public class Player {
 	 * @return true if the player is in check, false otherwise
 	 */
 	public boolean isInCheck() {
-		King king = (King) pieces.get(15);
 		return king.isInCheck();
 	}
 	
+	/**
+	 * Calculates the next possible moves of every piece in play and keeps only the legal ones
+	 * All of the pieces are calculated first, since the King also adds castling moves to its Rooks
+	 */
+	public void setLegalMoves(){
+		for (Piece piece : pieces){
+			if (piece.isInPlay()){
+				piece.setNextPossibleMoves();
+			}
+		}
+		for (Piece piece : pieces){
+			piece.keepLegalMoves();
+		}
+	}
+	
 	/**
 	 * Returns whether or not there are any moves left for the player
 	 * @return true if has next possible moves, false otherwise
@@ -139,7 +203,7 @@ public class Player {
 	public boolean hasNextPossibleMoves(){
 		for (Piece piece : pieces){
 			// still have some moves left
-			if (!piece.getNextPossibleMoves().isEmpty()) 
+			if (piece.getNextPossibleMoves() != 0) 
 				return true;
 		}
 		return false;
@@ -166,7 +230,6 @@ public class Player {
 	 * @param inCheck boolean value to set if the player is in check or not
 	 */
 	public void setInCheck(boolean inCheck) {
-		King king = (King) pieces.get(15);
 		king.setInCheck(inCheck);
 	}
 	
@@ -7,6 +7,7 @@ package model;
  */
 
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Queen extends Piece{
 
@@ -18,6 +19,14 @@ public class Queen extends Piece{
 		super(color);
 	}
 
+	/**
+	 * Copy constructor for the Queen
+	 * @param other Queen to copy
+	 */
+	public Queen(Queen other) {
+		super(other);
+	}
+
 	/**
 	 * Sets the next possible moves for the Queen
 	 * 
@@ -27,145 +36,26 @@ public class Queen extends Piece{
 	@Override
 	public void setNextPossibleMoves() {
 		resetPossibleMoves();
-		char file = this.getCurrentFR().getFile();
-		int rank = this.getCurrentFR().getRank();
-		//North
-		int inc = 1;
-		while (board.getFileRankAt(file, rank + inc) != null){
-			if (!board.getFileRankAt(file, rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank + inc));
-				board.getFileRankAt(file, rank + inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(file, rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank + inc));
-					board.getFileRankAt(file, rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		
-		//North-East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).setThreat(this);
-				
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}		
-		
-		//East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}		
-		
-		//South-East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}		
-		
-		//South
-		inc = 1;
-		while (board.getFileRankAt(file, rank - inc) != null){
-			if (!board.getFileRankAt(file, rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank - inc));
-				board.getFileRankAt(file, rank - inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(file, rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank - inc));
-					board.getFileRankAt(file, rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}	
-		
-		//South-West
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}			
-		
-		//West
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}		
-		
-		//North-West
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}	
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
-			}
-		}
+		int square = this.getCurrentFR().getSquare();
+		long occupied = board.getBitboards().getOccupied();
+		addPossibleMoves(Attacks.queenAttacks(square, occupied) & ~board.getBitboards().getOccupied(this.getColor()));
+		checkKing();
+	}
+	
+	/**
+	 * Returns the type of the Queen
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.QUEEN;
+	}
+	
+	/**
+	 * Returns a copy of the Queen
+	 */
+	@Override
+	public Piece copy() {
+		return new Queen(this);
 	}
 	
 	/**
@@ -7,6 +7,7 @@ package model;
  */
 
 import model.Utils.Color;
+import model.Utils.PieceType;
 
 public class Rook extends Piece{
 	
@@ -23,21 +24,46 @@ public class Rook extends Piece{
 		setFirstMove(true);
 	}
 
+	/**
+	 * Copy constructor for the Rook
+	 * @param other Rook to copy
+	 */
+	public Rook(Rook other) {
+		super(other);
+		this.canCastle = other.canCastle;
+		this.firstMove = other.firstMove;
+	}
+
 	/**
 	 * Moves the rook to the specified FileRank
 	 * 
 	 * Once moved, the Rook is no longer eligible to castle
 	 * 
 	 * @param to FileRank to move the rook to
+	 * @param undo record of the move
 	 */
 	@Override
-	public boolean move(FileRank to){
-		boolean moveable = super.move(to);
-		if (moveable){
-			setFirstMove(false);
-			setCanCastle(false);
-		}
-		return moveable;
+	void apply(FileRank to, MoveUndo undo){
+		super.apply(to, undo);
+		setFirstMove(false);
+		this.canCastle = false;
+	}
+	
+	/**
+	 * Returns whether the Rook has moved and whether it can castle, packed into an int
+	 */
+	@Override
+	int getState(){
+		return (firstMove ? 1 : 0) | (canCastle ? 2 : 0);
+	}
+	
+	/**
+	 * Restores whether the Rook has moved and whether it can castle
+	 */
+	@Override
+	void setState(int state){
+		this.firstMove = (state & 1) != 0;
+		this.canCastle = (state & 2) != 0;
 	}
 	
 	/**
@@ -49,90 +75,19 @@ public class Rook extends Piece{
 	@Override
 	public void setNextPossibleMoves() {
 		resetPossibleMoves();
-		char file = this.getCurrentFR().getFile();
-		int rank = this.getCurrentFR().getRank();
-		
-		//North
-		int inc = 1;
-		while (board.getFileRankAt(file, rank + inc) != null){
-			if (!board.getFileRankAt(file, rank + inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank + inc));
-				board.getFileRankAt(file, rank + inc).setThreat(this);
-			}else{
-				if (board.getFileRankAt(file, rank + inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank + inc));
-					board.getFileRankAt(file, rank + inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		//South
-		inc = 1;
-		while (board.getFileRankAt(file, rank - inc) != null){
-			if (!board.getFileRankAt(file, rank - inc).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(file, rank - inc));
-				board.getFileRankAt(file, rank - inc).setThreat(this);
-				
-			}else{
-				if (board.getFileRankAt(file, rank - inc).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(file, rank - inc));
-					board.getFileRankAt(file, rank - inc).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
-		
-		//East
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) + inc), rank).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}	
-		
-		//West
-		inc = 1;
-		while (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank) != null){
-			if (!board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).isOccupied()){
-				nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank));
-				board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).setThreat(this);
-			}else{
-				if (board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).getCurrentPiece().getColor() != this.getColor()){
-					nextPossibleMoves.add(board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank));
-					board.getFileRankAt(Utils.convert(Utils.convert(file) - inc), rank).setThreat(this);
-				}
-				break;
-			}		
-			inc++;
-		}
+		int square = this.getCurrentFR().getSquare();
+		long occupied = board.getBitboards().getOccupied();
+		addPossibleMoves(Attacks.rookAttacks(square, occupied) & ~board.getBitboards().getOccupied(this.getColor()));
 		// Castleable
 		if (isCanCastle()){
 			if (this.getCurrentFR().getFile() == 'a'){
-				nextPossibleMoves.add(board.getFileRankAt('d', this.getCurrentFR().getRank()));
+				addPossibleMove(board.getFileRankAt('d', this.getCurrentFR().getRank()));
 			}
 			else{
-				nextPossibleMoves.add(board.getFileRankAt('f', this.getCurrentFR().getRank()));
-			}
-		}
-		for (FileRank fr : nextPossibleMoves){
-			if (fr.isOccupied()){
-				Piece op = fr.getCurrentPiece();
-				if (op instanceof King){
-					((King) op).setInCheck(true);
-					this.setAttackingKing(true);
-				}
+				addPossibleMove(board.getFileRankAt('f', this.getCurrentFR().getRank()));
 			}
 		}
+		checkKing();
 	}
 	
 	/**
@@ -151,10 +106,10 @@ public class Rook extends Piece{
 		this.canCastle = canCastle;
 		if (isCanCastle()){
 			if (this.getCurrentFR().getFile() == 'a'){
-				nextPossibleMoves.add(board.getFileRankAt('d', this.getCurrentFR().getRank()));
+				addPossibleMove(board.getFileRankAt('d', this.getCurrentFR().getRank()));
 			}
 			else{
-				nextPossibleMoves.add(board.getFileRankAt('f', this.getCurrentFR().getRank()));
+				addPossibleMove(board.getFileRankAt('f', this.getCurrentFR().getRank()));
 			}
 		}
 	}
@@ -175,6 +130,22 @@ public class Rook extends Piece{
 		return !firstMove;
 	}
 	
+	/**
+	 * Returns the type of the Rook
+	 */
+	@Override
+	public PieceType getType() {
+		return PieceType.ROOK;
+	}
+	
+	/**
+	 * Returns a copy of the Rook
+	 */
+	@Override
+	public Piece copy() {
+		return new Rook(this);
+	}
+	
 	/**
 	 * Returns a string representation of a Rook
 	 */
@@ -16,6 +16,14 @@ public class Utils {
 		BLACK, WHITE
 	}
 	
+	/**
+	 * Types of chess pieces, used to index the bitboards of a position
+	 *
+	 */
+	public enum PieceType{
+		PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING
+	}
+	
 	/**
 	 * Given a character, returns the corresponding integer value
 	 * Used for converting char represented files to integers so array indexing is possible
@@ -35,6 +43,17 @@ public class Utils {
 	public static char convert(int i){
 		return (char) (i + 96);
 	}
+	
+	/**
+	 * Given a file and a rank, returns the index of the square on an 8x8 board
+	 * Squares are numbered from 0 (a1) to 63 (h8), file first
+	 * @param file file of the square
+	 * @param rank rank of the square
+	 * @return index of the square
+	 */
+	public static int square(char file, int rank){
+		return (rank - 1) * 8 + convert(file) - 1;
+	}
 
 	/**
 	 * Given a character representation of a piece and a color, returns a new piece corresponding to the character
@@ -0,0 +1,150 @@
+package model;
+
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * A utility class with the random keys used to hash positions.
+ * The key of a position is the XOR of one key per piece on a square, one key if black is to move,
+ * one key per castling right and one key for the file of the EnPassant FileRank.
+ * The keys are generated from a fixed seed, so the same position has the same key on every run.
+ *
+ */
+public class Zobrist {
+
+	private static final long[] PIECES = new long[2 * 6 * 64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT = new long[8];
+	private static final long BLACK_TO_MOVE;
+
+	public static final int WHITE_KING_SIDE = 1;
+	public static final int WHITE_QUEEN_SIDE = 2;
+	public static final int BLACK_KING_SIDE = 4;
+	public static final int BLACK_QUEEN_SIDE = 8;
+
+	static {
+		long seed = 0x2545F4914F6CDD1DL;
+		for (int i = 0; i < PIECES.length; i++){
+			seed = next(seed);
+			PIECES[i] = mix(seed);
+		}
+		long[] rights = new long[4];
+		for (int i = 0; i < rights.length; i++){
+			seed = next(seed);
+			rights[i] = mix(seed);
+		}
+		// One key per combination of rights, so that all four can be folded in with a single XOR
+		for (int i = 0; i < CASTLING.length; i++){
+			for (int j = 0; j < rights.length; j++){
+				if ((i & (1 << j)) != 0){
+					CASTLING[i] ^= rights[j];
+				}
+			}
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++){
+			seed = next(seed);
+			EN_PASSANT[i] = mix(seed);
+		}
+		seed = next(seed);
+		BLACK_TO_MOVE = mix(seed);
+	}
+
+	/**
+	 * Returns the key of a piece on a square
+	 * @param color color of the piece
+	 * @param type type of the piece
+	 * @param square square of the piece, from 0 (a1) to 63 (h8)
+	 * @return the key of the piece on the square
+	 */
+	public static long piece(Color color, PieceType type, int square){
+		return PIECES[((color.ordinal() * 6 + type.ordinal()) << 6) | square];
+	}
+
+	/**
+	 * Returns the key of a set of castling rights
+	 * @param rights castling rights, a combination of WHITE_KING_SIDE, WHITE_QUEEN_SIDE, BLACK_KING_SIDE and BLACK_QUEEN_SIDE
+	 * @return the key of the castling rights
+	 */
+	public static long castling(int rights){
+		return CASTLING[rights];
+	}
+
+	/**
+	 * Returns the key of an EnPassant file
+	 * @param square square of the EnPassant FileRank
+	 * @return the key of the file of the square
+	 */
+	public static long enPassant(int square){
+		return EN_PASSANT[square & 7];
+	}
+
+	/**
+	 * Returns the key that is folded in when black is to move
+	 * @return the side to move key
+	 */
+	public static long blackToMove(){
+		return BLACK_TO_MOVE;
+	}
+
+	/**
+	 * Hashes a board from scratch by visiting every square
+	 * Board.getKey is kept up to date move by move and should always return the same value,
+	 * this is meant for checking that it does
+	 * @param board board to hash
+	 * @return the key of the position on the board
+	 */
+	public static long compute(Board board){
+		long key = 0L;
+		for (int square = 0; square < 64; square++){
+			FileRank fr = board.getFileRankAt(square);
+			if (fr.isOccupied()){
+				Piece piece = fr.getCurrentPiece();
+				key ^= piece(piece.getColor(), piece.getType(), square);
+			}
+			if (fr.getCanEnPassant()){
+				key ^= enPassant(square);
+			}
+		}
+		if (board.getSideToMove() == Color.BLACK){
+			key ^= BLACK_TO_MOVE;
+		}
+		return key ^ CASTLING[board.getCastlingRights()];
+	}
+
+	/**
+	 * Computes the key of the Pawns on a board from scratch
+	 * @param board board to compute the key of
+	 * @return the 64-bit key of the Pawns, as kept up to date by Board.getPawnKey
+	 */
+	public static long computePawns(Board board){
+		long key = 0L;
+		for (Color color : Color.values()){
+			long pawns = board.getBitboards().getPieces(color, PieceType.PAWN);
+			while (pawns != 0){
+				key ^= piece(color, PieceType.PAWN, Long.numberOfTrailingZeros(pawns));
+				pawns &= pawns - 1;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Advances the splitmix64 sequence
+	 * @param seed current state
+	 * @return the next state
+	 */
+	private static long next(long seed){
+		return seed + 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * Scrambles a splitmix64 state into a random value
+	 * @param z state to scramble
+	 * @return the random value
+	 */
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,259 @@
+package perft;
+
+import model.Board;
+import model.Fen;
+import model.FileRank;
+import model.King;
+import model.Pawn;
+import model.Piece;
+import model.Player;
+import model.Utils;
+import model.Utils.Color;
+
+/**
+ * Counts the leaf nodes of the move tree up to a given depth from a position (perft).
+ * Moves are generated exactly as the main game loop does, through
+ * Player.setLegalMoves, and played with
+ * Board.makeMove and taken back with Board.unmakeMove, so the counts can be compared with the published reference numbers to find move generation bugs.
+ *
+ */
+public class Perft {
+
+	/**
+	 * Standard reference positions with their name, FEN and known node counts from depth 1
+	 */
+	public static final Object[][] REFERENCE_POSITIONS = {
+		{"initial", Fen.START_POSITION,
+			new long[]{20L, 400L, 8902L, 197281L, 4865609L}},
+		{"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			new long[]{48L, 2039L, 97862L, 4085603L}},
+		{"position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			new long[]{14L, 191L, 2812L, 43238L, 674624L}},
+		{"position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			new long[]{6L, 264L, 9467L, 422333L}},
+		{"position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			new long[]{44L, 1486L, 62379L, 2103487L}},
+		{"position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+			new long[]{46L, 2079L, 89890L, 3894594L}},
+	};
+
+	private static final char[] PROMOTIONS = {'Q', 'R', 'B', 'N'};
+	private static final char[] NO_PROMOTION = {'Q'};
+
+	private long captures;
+	private long enPassants;
+	private long castles;
+	private long promotions;
+	private long checks;
+
+	/**
+	 * Counts the leaf nodes at a given depth from a position, the side to move is taken from the board
+	 * The per move type counters are reset and then count the moves made at the last ply
+	 * @param board position to count from, every move made on it is taken back
+	 * @param depth number of plies to search
+	 * @return number of leaf nodes
+	 */
+	public long perft(Board board, int depth){
+		captures = 0;
+		enPassants = 0;
+		castles = 0;
+		promotions = 0;
+		checks = 0;
+		return count(board, board.getSideToMove(), opposite(board.getSideToMove()), depth);
+	}
+
+	/**
+	 * Recursively counts the leaf nodes below a position
+	 * Each move is played with Board.makeMove, the same way Piece.move plays it, and taken back after counting
+	 * @param board position to count from
+	 * @param us color of the player to move
+	 * @param them color of the opposing player
+	 * @param depth number of plies left
+	 * @return number of leaf nodes
+	 */
+	private long count(Board board, Color us, Color them, int depth){
+		if (depth == 0){
+			return 1;
+		}
+		Player player = board.getPlayer(us);
+		startTurn(board, player);
+		
+		// Deeper plies recalculate the possible moves, so keep a copy of the ones generated for this one
+		Piece[] pieces = player.getPieces().toArray(new Piece[player.getPieces().size()]);
+		long[] moves = new long[pieces.length];
+		for (int i = 0; i < pieces.length; i++){
+			moves[i] = pieces[i].isInPlay() ? pieces[i].getNextPossibleMoves() : 0L;
+		}
+		
+		long nodes = 0;
+		for (int i = 0; i < pieces.length; i++){
+			Piece piece = pieces[i];
+			FileRank from = piece.getCurrentFR();
+			for (long targets = moves[i]; targets != 0; targets &= targets - 1){
+				FileRank to = board.getFileRankAt(Long.numberOfTrailingZeros(targets));
+				boolean promotion = piece instanceof Pawn && (to.getRank() == 8 || to.getRank() == 1);
+				boolean castle = piece instanceof King
+						&& Math.abs(Utils.convert(to.getFile()) - Utils.convert(from.getFile())) == 2;
+				boolean enPassant = piece instanceof Pawn && !to.isOccupied() && to.getFile() != from.getFile();
+				boolean capture = to.isOccupied() || enPassant;
+				for (char p : promotion ? PROMOTIONS : NO_PROMOTION){
+					board.makeMove(from, to, promotion ? p : 0);
+					endTurn(board, player);
+					if (depth == 1){
+						if (capture) captures++;
+						if (enPassant) enPassants++;
+						if (castle) castles++;
+						if (promotion) promotions++;
+						int king = board.getBitboards().getKingSquare(them);
+						if (king < 64 && board.getBitboards().isAttacked(king, us)){
+							checks++;
+						}
+					}
+					nodes += count(board, them, us, depth - 1);
+					board.unmakeMove();
+				}
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Prepares a player's turn the way Chess.nextMove does before asking for input
+	 * @param board board being played on
+	 * @param us player to move
+	 */
+	private static void startTurn(Board board, Player us){
+		us.setLegalMoves();
+	}
+
+	/**
+	 * Finishes a player's turn the way Chess.nextMove does after a move was accepted
+	 * @param board board being played on
+	 * @param us player that moved
+	 */
+	private static void endTurn(Board board, Player us){
+		if (us.isInCheck()){
+			us.setInCheck(false);
+		}
+		for (Piece piece : us.getPieces()){
+			if (piece.isInPlay()){
+				piece.setNextPossibleMoves();
+			}
+		}
+	}
+
+	/**
+	 * Returns the opposing color
+	 * @param color color to flip
+	 * @return the other color
+	 */
+	private static Color opposite(Color color){
+		return color == Color.WHITE ? Color.BLACK : Color.WHITE;
+	}
+
+	/**
+	 * Returns the number of captures, including EnPassant, made at the last ply of the last count
+	 * @return number of captures
+	 */
+	public long getCaptures(){
+		return captures;
+	}
+
+	/**
+	 * Returns the number of EnPassant captures made at the last ply of the last count
+	 * @return number of EnPassant captures
+	 */
+	public long getEnPassants(){
+		return enPassants;
+	}
+
+	/**
+	 * Returns the number of castles made at the last ply of the last count
+	 * @return number of castles
+	 */
+	public long getCastles(){
+		return castles;
+	}
+
+	/**
+	 * Returns the number of promotions made at the last ply of the last count
+	 * @return number of promotions
+	 */
+	public long getPromotions(){
+		return promotions;
+	}
+
+	/**
+	 * Returns the number of checking moves made at the last ply of the last count
+	 * @return number of checking moves
+	 */
+	public long getChecks(){
+		return checks;
+	}
+
+	/**
+	 * Runs perft from depth 1 to a maximum depth on a position and prints the counts,
+	 * the nodes per second and whether the count matches the expected count
+	 * @param perft perft counter to use
+	 * @param name name of the position
+	 * @param fen position in Forsyth-Edwards Notation
+	 * @param expected known node counts from depth 1, or null if unknown
+	 * @param maxDepth maximum depth to count to
+	 * @return true if every count with a known value matched, false otherwise
+	 */
+	public static boolean run(Perft perft, String name, String fen, long[] expected, int maxDepth){
+		System.out.println(name + ": " + fen);
+		System.out.println(String.format("%5s %12s %10s %8s %8s %8s %8s %10s %12s  %s",
+				"depth", "nodes", "captures", "e.p.", "castles", "promos", "checks", "ms", "nps", "result"));
+		boolean passed = true;
+		Board board = Fen.load(fen);
+		for (int depth = 1; depth <= maxDepth; depth++){
+			long start = System.nanoTime();
+			long nodes;
+			try {
+				nodes = perft.perft(board, depth);
+			} catch (RuntimeException e) {
+				System.out.println(String.format("%5d  ERROR %s", depth, e));
+				return false;
+			}
+			long nanos = Math.max(System.nanoTime() - start, 1);
+			String result = "";
+			if (expected != null && depth <= expected.length){
+				result = nodes == expected[depth - 1] ? "ok" : "FAIL (expected " + expected[depth - 1] + ")";
+				passed &= nodes == expected[depth - 1];
+			}
+			System.out.println(String.format("%5d %12d %10d %8d %8d %8d %8d %10d %12d  %s",
+					depth, nodes, perft.getCaptures(), perft.getEnPassants(), perft.getCastles(),
+					perft.getPromotions(), perft.getChecks(), nanos / 1000000, nodes * 1000000000L / nanos, result));
+		}
+		System.out.println();
+		return passed;
+	}
+
+	/**
+	 * Runs perft from the command line
+	 * With no arguments every reference position is counted to depth 3,
+	 * with one argument every reference position is counted to the given depth,
+	 * and with a depth followed by a FEN string only that position is counted
+	 * @param args optional depth and FEN string
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		Perft perft = new Perft();
+		if (args.length > 1){
+			StringBuilder fen = new StringBuilder();
+			for (int i = 1; i < args.length; i++){
+				fen.append(args[i]).append(' ');
+			}
+			run(perft, "custom", fen.toString(), null, depth);
+			return;
+		}
+		int failed = 0;
+		for (Object[] position : REFERENCE_POSITIONS){
+			if (!run(perft, (String) position[0], (String) position[1], (long[]) position[2], depth)){
+				failed++;
+			}
+		}
+		System.out.println(failed == 0 ? "All positions passed" : failed + " position(s) failed");
+	}
+}
@@ -0,0 +1,153 @@
+package pgn;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Board;
+import model.Fen;
+import model.FileRank;
+import model.Move;
+import model.Pawn;
+
+/**
+ * A game in Portable Game Notation: its tag pairs, its moves in Standard Algebraic Notation and its result.
+ * Comments, annotations and variations are not kept.
+ *
+ */
+public class PgnGame {
+
+	public static final String WHITE_WINS = "1-0";
+	public static final String BLACK_WINS = "0-1";
+	public static final String DRAW = "1/2-1/2";
+	public static final String UNFINISHED = "*";
+
+	private Map<String, String> tags;
+	private List<String> moves;
+	private String result;
+
+	/**
+	 * Constructor for an empty, unfinished game with the seven standard tags set to unknown
+	 */
+	public PgnGame(){
+		tags = new LinkedHashMap<String, String>();
+		tags.put("Event", "?");
+		tags.put("Site", "?");
+		tags.put("Date", "????.??.??");
+		tags.put("Round", "?");
+		tags.put("White", "?");
+		tags.put("Black", "?");
+		tags.put("Result", UNFINISHED);
+		moves = new ArrayList<String>();
+		result = UNFINISHED;
+	}
+
+	/**
+	 * Returns the value of a tag
+	 * @param name name of the tag
+	 * @return the value of the tag, null if it is not set
+	 */
+	public String getTag(String name){
+		return tags.get(name);
+	}
+
+	/**
+	 * Sets the value of a tag
+	 * @param name name of the tag
+	 * @param value value of the tag
+	 */
+	public void setTag(String name, String value){
+		tags.put(name, value);
+	}
+
+	/**
+	 * Returns all of the tags in the order they were set
+	 * @return the tags of the game
+	 */
+	public Map<String, String> getTags(){
+		return tags;
+	}
+
+	/**
+	 * Returns the moves of the game
+	 * @return the moves in Standard Algebraic Notation
+	 */
+	public List<String> getMoves(){
+		return moves;
+	}
+
+	/**
+	 * Adds a move to the end of the game
+	 * @param san the move in Standard Algebraic Notation
+	 */
+	public void addMove(String san){
+		moves.add(san);
+	}
+
+	/**
+	 * Returns the result of the game
+	 * @return WHITE_WINS, BLACK_WINS, DRAW or UNFINISHED
+	 */
+	public String getResult(){
+		return result;
+	}
+
+	/**
+	 * Sets the result of the game, also in the Result tag
+	 * @param result WHITE_WINS, BLACK_WINS, DRAW or UNFINISHED
+	 */
+	public void setResult(String result){
+		this.result = result;
+		tags.put("Result", result);
+	}
+
+	/**
+	 * Returns the position the game starts from
+	 * @return the FEN tag if the game has one, the standard starting position otherwise
+	 */
+	public String getStartFen(){
+		String fen = tags.get("FEN");
+		return fen == null ? Fen.START_POSITION : fen;
+	}
+
+	/**
+	 * Creates a game from moves played from a given position, writing each move in Standard Algebraic Notation
+	 * @param startFen position the moves were played from
+	 * @param moves the moves played, packed as by Move
+	 * @param result WHITE_WINS, BLACK_WINS, DRAW or UNFINISHED
+	 * @return the game
+	 * @throws IllegalArgumentException if a move cannot be played
+	 */
+	public static PgnGame fromMoves(String startFen, List<Integer> moves, String result){
+		PgnGame game = new PgnGame();
+		if (!startFen.equals(Fen.START_POSITION)){
+			game.setTag("SetUp", "1");
+			game.setTag("FEN", startFen);
+		}
+		Board board = Fen.load(startFen, false);
+		for (int move : moves){
+			FileRank from = board.getFileRankAt(Move.getFrom(move));
+			FileRank to = board.getFileRankAt(Move.getTo(move));
+			char promotion = Move.getPromotionChar(move);
+			game.addMove(San.toSan(board, from, to, promotion == 0 ? 'Q' : promotion));
+			boolean lastRank = to.getRank() == 1 || to.getRank() == 8;
+			board.makeMove(from, to, from.getCurrentPiece() instanceof Pawn && lastRank ? (promotion == 0 ? 'Q' : promotion) : (char) 0);
+		}
+		game.setResult(result);
+		return game;
+	}
+
+	/**
+	 * Plays the game through the model from its starting position
+	 * @return the board after the last move
+	 * @throws IllegalArgumentException if a move cannot be played, the message names the move
+	 */
+	public Board replay(){
+		Board board = Fen.load(getStartFen(), false);
+		for (String san : moves){
+			San.apply(board, san);
+		}
+		return board;
+	}
+}
@@ -0,0 +1,274 @@
+package pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads games one at a time from a file in Portable Game Notation.
+ * The file is memory mapped a window at a time, so archives larger than memory can be read,
+ * and only the game being read is held in memory.
+ * Comments, annotation glyphs, escape lines and variations are skipped.
+ * Tag values are decoded as UTF-8, so player and event names keep their accents; moves are ASCII.
+ *
+ */
+public class PgnReader implements Closeable {
+
+	private static final long WINDOW = 64L * 1024 * 1024;
+
+	private FileChannel channel;
+	private long size;
+	private long windowStart;
+	private MappedByteBuffer buffer;
+	private int pushedBack;
+	private StringBuilder token;
+	private byte[] value;
+
+	/**
+	 * Constructor for a reader of a given file
+	 * @param path path of the PGN file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public PgnReader(Path path) throws IOException{
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+		windowStart = 0;
+		buffer = map(0);
+		pushedBack = -1;
+		token = new StringBuilder(16);
+		value = new byte[64];
+	}
+
+	/**
+	 * Reads the next game
+	 * @return the next game, null if there are no more games in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public PgnGame next() throws IOException{
+		PgnGame game = null;
+		boolean inMoves = false;
+		int c;
+		while ((c = read()) != -1){
+			if (Character.isWhitespace(c)){
+				continue;
+			}
+			if (c == '['){
+				// Tags after the moves of a game without a result start the next game
+				if (inMoves){
+					pushedBack = c;
+					return game;
+				}
+				if (game == null){
+					game = new PgnGame();
+				}
+				readTag(game);
+				continue;
+			}
+			if (game == null){
+				game = new PgnGame();
+			}
+			inMoves = true;
+			switch(c){
+			case '{':
+				skipUntil('}');
+				break;
+			case ';':
+			case '%':
+				skipUntil('\n');
+				break;
+			case '(':
+				skipVariation();
+				break;
+			case '$':
+				readToken(c);
+				break;
+			default:
+				String t = readToken(c);
+				if (t.equals(PgnGame.WHITE_WINS) || t.equals(PgnGame.BLACK_WINS)
+						|| t.equals(PgnGame.DRAW) || t.equals(PgnGame.UNFINISHED)){
+					game.setResult(t);
+					return game;
+				}
+				// Move numbers, which may be written together with the move that follows them
+				int i = 0;
+				while (i < t.length() && (Character.isDigit(t.charAt(i)) || t.charAt(i) == '.')){
+					i++;
+				}
+				// Annotation suffixes such as ! and ?! are not part of the move
+				int end = t.length();
+				while (end > i && (t.charAt(end - 1) == '!' || t.charAt(end - 1) == '?')){
+					end--;
+				}
+				if (i < end){
+					game.addMove(t.substring(i, end));
+				}
+				break;
+			}
+		}
+		return game;
+	}
+
+	/**
+	 * Reads a tag pair, the opening bracket has already been read
+	 * @param game game to set the tag of
+	 * @throws IOException if the file cannot be read
+	 */
+	private void readTag(PgnGame game) throws IOException{
+		token.setLength(0);
+		int c;
+		while ((c = read()) != -1 && !Character.isWhitespace(c) && c != '"'){
+			token.append((char) c);
+		}
+		String name = token.toString();
+		while (c != -1 && c != '"'){
+			c = read();
+		}
+		// The bytes of the value are collected first, a character may take several of them
+		int length = 0;
+		while ((c = read()) != -1 && c != '"'){
+			if (c == '\\'){
+				c = read();
+				if (c == -1){
+					break;
+				}
+			}
+			if (length == value.length){
+				value = Arrays.copyOf(value, length * 2);
+			}
+			value[length++] = (byte) c;
+		}
+		skipUntil(']');
+		String text = new String(value, 0, length, StandardCharsets.UTF_8);
+		game.setTag(name, text);
+		if (name.equals("Result")){
+			game.setResult(text);
+		}
+	}
+
+	/**
+	 * Reads a token up to the next whitespace or delimiter
+	 * @param first first character of the token, already read
+	 * @return the token
+	 * @throws IOException if the file cannot be read
+	 */
+	private String readToken(int first) throws IOException{
+		token.setLength(0);
+		token.append((char) first);
+		int c;
+		while ((c = read()) != -1){
+			if (Character.isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '['){
+				pushedBack = c;
+				break;
+			}
+			token.append((char) c);
+		}
+		return token.toString();
+	}
+
+	/**
+	 * Skips a variation and any variations and comments nested in it, the opening parenthesis has already been read
+	 * @throws IOException if the file cannot be read
+	 */
+	private void skipVariation() throws IOException{
+		int depth = 1;
+		int c;
+		while (depth > 0 && (c = read()) != -1){
+			if (c == '('){
+				depth++;
+			}else if (c == ')'){
+				depth--;
+			}else if (c == '{'){
+				skipUntil('}');
+			}
+		}
+	}
+
+	/**
+	 * Skips everything up to and including a given character
+	 * @param end character to stop after
+	 * @throws IOException if the file cannot be read
+	 */
+	private void skipUntil(int end) throws IOException{
+		int c;
+		while ((c = read()) != -1 && c != end){
+		}
+	}
+
+	/**
+	 * Reads the next byte of the file, mapping the next window when the current one is used up
+	 * @return the byte, -1 at the end of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private int read() throws IOException{
+		if (pushedBack != -1){
+			int c = pushedBack;
+			pushedBack = -1;
+			return c;
+		}
+		if (!buffer.hasRemaining()){
+			long next = windowStart + buffer.limit();
+			if (next >= size){
+				return -1;
+			}
+			buffer = map(next);
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	/**
+	 * Maps the window of the file starting at a given position
+	 * @param position position in the file the window starts at
+	 * @return the mapped window
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private MappedByteBuffer map(long position) throws IOException{
+		windowStart = position;
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+	}
+
+	/**
+	 * Closes the file
+	 */
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+
+	/**
+	 * Replays every game of a PGN file through the model and prints how many could be played
+	 * @param args path of the PGN file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException{
+		if (args.length < 1){
+			System.out.println("Usage: PgnReader file.pgn");
+			return;
+		}
+		long start = System.nanoTime();
+		int games = 0;
+		int failed = 0;
+		long moves = 0;
+		try (PgnReader reader = new PgnReader(Paths.get(args[0]))){
+			PgnGame game;
+			while ((game = reader.next()) != null){
+				games++;
+				try{
+					game.replay();
+					moves += game.getMoves().size();
+				}catch (IllegalArgumentException e){
+					failed++;
+					System.out.println("Game " + games + ": " + e.getMessage());
+				}
+			}
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+		System.out.println(games + " games, " + failed + " failed, " + moves + " moves, "
+				+ millis + " ms, " + (games * 1000L / millis) + " games/s");
+	}
+}
@@ -0,0 +1,121 @@
+package pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games in Portable Game Notation to a file through a buffered file channel.
+ * Move text is wrapped at 80 characters, as the PGN standard asks.
+ *
+ */
+public class PgnWriter implements Closeable {
+
+	private static final int LINE_LENGTH = 80;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private int column;
+
+	/**
+	 * Constructor for a writer to a given file
+	 * @param path path of the PGN file
+	 * @param append true to add games to the end of an existing file, false to replace it
+	 * @throws IOException if the file cannot be opened
+	 */
+	public PgnWriter(Path path, boolean append) throws IOException{
+		channel = append
+				? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+				: FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = ByteBuffer.allocate(64 * 1024);
+	}
+
+	/**
+	 * Writes a game: its tags, a blank line, its moves followed by its result, and another blank line
+	 * @param game game to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(PgnGame game) throws IOException{
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()){
+			String value = tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"");
+			put("[" + tag.getKey() + " \"" + value + "\"]\n");
+		}
+		put("\n");
+		column = 0;
+
+		String[] fen = game.getStartFen().trim().split("\\s+");
+		boolean white = fen.length < 2 || !fen[1].equals("b");
+		int number = fen.length >= 6 ? Integer.parseInt(fen[5]) : 1;
+		List<String> moves = game.getMoves();
+		for (int i = 0; i < moves.size(); i++){
+			if (white){
+				word(number + ". " + moves.get(i));
+			}else{
+				word(i == 0 ? number + "... " + moves.get(i) : moves.get(i));
+				number++;
+			}
+			white = !white;
+		}
+		word(game.getResult());
+		put("\n\n");
+	}
+
+	/**
+	 * Writes a word of the move text, starting a new line if it does not fit on the current one
+	 * @param word word to write
+	 * @throws IOException if the file cannot be written
+	 */
+	private void word(String word) throws IOException{
+		if (column > 0 && column + 1 + word.length() > LINE_LENGTH){
+			put("\n");
+			column = 0;
+		}else if (column > 0){
+			put(" ");
+			column++;
+		}
+		put(word);
+		column += word.length();
+	}
+
+	/**
+	 * Adds text to the buffer, writing the buffer to the file when it is full
+	 * @param s text to add, encoded as UTF-8 the way PgnReader decodes tag values
+	 * @throws IOException if the file cannot be written
+	 */
+	private void put(String s) throws IOException{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++){
+			if (!buffer.hasRemaining()){
+				flush();
+			}
+			buffer.put(bytes[i]);
+		}
+	}
+
+	/**
+	 * Writes the buffered text to the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void flush() throws IOException{
+		buffer.flip();
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered text and closes the file
+	 */
+	@Override
+	public void close() throws IOException{
+		flush();
+		channel.close();
+	}
+}
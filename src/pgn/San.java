@@ -0,0 +1,245 @@
+package pgn;
+
+import model.Board;
+import model.FileRank;
+import model.MoveGenerator;
+import model.Piece;
+import model.Player;
+import model.Utils;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * A utility class that reads and writes moves in Standard Algebraic Notation (for example Nbd7, exd6, O-O, e8=Q+).
+ * Moves are resolved against the legal targets the board's MoveGenerator gives the pieces the move could be made by,
+ * found on the bitboards, so no other piece's moves are computed.
+ *
+ */
+public class San {
+
+	// SAN letters of the pieces, in the order of PieceType
+	private static final String PIECE_LETTERS = "PNBRQK";
+
+	/**
+	 * Resolves a SAN move and plays it with Board.makeMove
+	 * @param board board to play the move on, its side to move must be the side making the move
+	 * @param san the move in Standard Algebraic Notation
+	 * @return the piece that was moved
+	 * @throws IllegalArgumentException if the move is malformed, illegal or ambiguous
+	 */
+	public static Piece apply(Board board, String san){
+		Color us = board.getSideToMove();
+		String move = strip(san);
+		if (move.isEmpty()){
+			throw new IllegalArgumentException("Invalid move: " + san);
+		}
+		int homeRank = us == Color.WHITE ? 1 : 8;
+
+		//Castling
+		if (move.equals("O-O") || move.equals("0-0")){
+			return play(board, san, board.getFileRankAt('e', homeRank), board.getFileRankAt('g', homeRank), 'Q');
+		}
+		if (move.equals("O-O-O") || move.equals("0-0-0")){
+			return play(board, san, board.getFileRankAt('e', homeRank), board.getFileRankAt('c', homeRank), 'Q');
+		}
+
+		//Promotion
+		char promotion = 'Q';
+		int end = move.length();
+		char last = move.charAt(end - 1);
+		if (last == 'Q' || last == 'R' || last == 'B' || last == 'N'){
+			promotion = last;
+			end--;
+			if (end > 0 && move.charAt(end - 1) == '='){
+				end--;
+			}
+		}
+
+		//Destination
+		if (end < 2){
+			throw new IllegalArgumentException("Invalid move: " + san);
+		}
+		FileRank to = board.getFileRankAt(move.charAt(end - 2), move.charAt(end - 1) - '0');
+		if (to == null){
+			throw new IllegalArgumentException("Invalid move: " + san);
+		}
+
+		//Piece and disambiguation
+		PieceType type = PieceType.PAWN;
+		int start = 0;
+		int letter = PIECE_LETTERS.indexOf(move.charAt(0));
+		if (letter > 0){
+			type = PieceType.values()[letter];
+			start = 1;
+		}
+		char fromFile = 0;
+		int fromRank = 0;
+		for (int i = start; i < end - 2; i++){
+			char c = move.charAt(i);
+			if (c >= 'a' && c <= 'h'){
+				fromFile = c;
+			}else if (c >= '1' && c <= '8'){
+				fromRank = c - '0';
+			}else if (c != 'x' && c != '-' && c != ':'){
+				throw new IllegalArgumentException("Invalid move: " + san);
+			}
+		}
+		if (type == PieceType.PAWN && fromFile == 0){
+			fromFile = to.getFile();
+		}
+
+		FileRank from = null;
+		MoveGenerator generator = board.getMoveGenerator();
+		long candidates = board.getBitboards().getPieces(us, type);
+		while (candidates != 0){
+			int square = Long.numberOfTrailingZeros(candidates);
+			candidates &= candidates - 1;
+			FileRank fr = board.getFileRankAt(square);
+			if ((fromFile != 0 && fr.getFile() != fromFile) || (fromRank != 0 && fr.getRank() != fromRank)){
+				continue;
+			}
+			if ((generator.getTargets(square) & (1L << to.getSquare())) == 0){
+				continue;
+			}
+			if (from != null){
+				throw new IllegalArgumentException("Ambiguous move: " + san);
+			}
+			from = fr;
+		}
+		if (from == null){
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		return play(board, san, from, to, promotion);
+	}
+
+	/**
+	 * Writes a legal move in Standard Algebraic Notation, including the + or # suffix
+	 * The move is not played, the board is left as it was found
+	 * @param board board the move is about to be played on
+	 * @param from FileRank of the piece to move
+	 * @param to FileRank to move the piece to
+	 * @param promotion char representation of the piece a Pawn is promoted to, ignored for other moves
+	 * @return the move in Standard Algebraic Notation
+	 */
+	public static String toSan(Board board, FileRank from, FileRank to, char promotion){
+		Piece piece = from.getCurrentPiece();
+		PieceType type = piece.getType();
+		StringBuilder sb = new StringBuilder(8);
+		int fileDistance = Math.abs(Utils.convert(to.getFile()) - Utils.convert(from.getFile()));
+		boolean lastRank = to.getRank() == 1 || to.getRank() == 8;
+		if (type == PieceType.KING && fileDistance == 2){
+			sb.append(to.getFile() == 'g' ? "O-O" : "O-O-O");
+		}else if (type == PieceType.PAWN){
+			if (fileDistance != 0){
+				sb.append(from.getFile()).append('x');
+			}
+			sb.append(to.getFile()).append(to.getRank());
+			if (lastRank){
+				sb.append('=').append(Character.toUpperCase(promotion));
+			}
+		}else{
+			sb.append(PIECE_LETTERS.charAt(type.ordinal()));
+			boolean others = false;
+			boolean sameFile = false;
+			boolean sameRank = false;
+			long candidates = board.getBitboards().getPieces(piece.getColor(), type) & ~(1L << from.getSquare());
+			while (candidates != 0){
+				FileRank other = board.getFileRankAt(Long.numberOfTrailingZeros(candidates));
+				candidates &= candidates - 1;
+				if (!board.isLegal(other, to)){
+					continue;
+				}
+				others = true;
+				sameFile |= other.getFile() == from.getFile();
+				sameRank |= other.getRank() == from.getRank();
+			}
+			if (others){
+				if (!sameFile){
+					sb.append(from.getFile());
+				}else if (!sameRank){
+					sb.append(from.getRank());
+				}else{
+					sb.append(from.getFile()).append(from.getRank());
+				}
+			}
+			if (to.isOccupied()){
+				sb.append('x');
+			}
+			sb.append(to.getFile()).append(to.getRank());
+		}
+
+		//Check and checkmate
+		board.makeMove(from, to, type == PieceType.PAWN && lastRank ? Character.toUpperCase(promotion) : (char) 0);
+		Color them = board.getSideToMove();
+		if (board.isKingAttacked(them)){
+			sb.append(hasLegalMove(board) ? '+' : '#');
+		}
+		board.unmakeMove();
+		return sb.toString();
+	}
+
+	/**
+	 * Returns whether the side to move has any legal move
+	 * @param board board to check
+	 * @return true if there is a legal move, false if the side to move is checkmated or stalemated
+	 */
+	public static boolean hasLegalMove(Board board){
+		setPossibleMoves(board);
+		return board.getMoveGenerator().hasLegalMove();
+	}
+
+	/**
+	 * Sets the possible moves of the waiting player and then of the player to move,
+	 * so that whether either King is in check is up to date
+	 * @param board board whose pieces' possible moves are set
+	 */
+	static void setPossibleMoves(Board board){
+		Color us = board.getSideToMove();
+		Player waiting = board.getPlayer(us == Color.WHITE ? Color.BLACK : Color.WHITE);
+		Player toMove = board.getPlayer(us);
+		for (Player player : new Player[]{waiting, toMove}){
+			for (Piece piece : player.getPieces()){
+				if (piece.isInPlay()){
+					piece.setNextPossibleMoves();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plays a resolved move, after checking that it is legal
+	 * @param board board to play the move on
+	 * @param san the move as it was written, for the error message
+	 * @param from FileRank of the piece to move
+	 * @param to FileRank to move the piece to
+	 * @param promotion char representation of the piece a Pawn reaching the last rank is promoted to
+	 * @return the piece that was moved
+	 * @throws IllegalArgumentException if the move is not legal
+	 */
+	private static Piece play(Board board, String san, FileRank from, FileRank to, char promotion){
+		Piece piece = from.getCurrentPiece();
+		if (piece == null || piece.getColor() != board.getSideToMove() || !board.isLegal(from, to)){
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		boolean lastRank = to.getRank() == 1 || to.getRank() == 8;
+		board.makeMove(from, to, piece.getType() == PieceType.PAWN && lastRank ? promotion : (char) 0);
+		return piece;
+	}
+
+	/**
+	 * Removes the check, checkmate and annotation suffixes of a move
+	 * @param san the move in Standard Algebraic Notation
+	 * @return the move without suffixes
+	 */
+	private static String strip(String san){
+		int end = san.length();
+		while (end > 0){
+			char c = san.charAt(end - 1);
+			if (c != '+' && c != '#' && c != '!' && c != '?'){
+				break;
+			}
+			end--;
+		}
+		return san.substring(0, end);
+	}
+}
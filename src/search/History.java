@@ -0,0 +1,97 @@
+package search;
+
+import model.Move;
+import model.Utils.Color;
+
+/**
+ * The quiet move statistics a search gathers to order moves: two killer moves per ply,
+ * the last quiet moves that caused a beta cutoff at that distance from the root,
+ * and a history score per side, from square and to square that grows with every cutoff a move causes.
+ * A History belongs to a single searching thread and is kept from one iteration to the next.
+ *
+ */
+class History {
+
+	/**
+	 * History scores are halved once one of them reaches this value, so recent cutoffs weigh more than old ones
+	 */
+	static final int MAX_SCORE = 1 << 20;
+
+	private final int[][] killers;
+	private final int[][][] scores;
+
+	/**
+	 * Constructor for empty statistics
+	 */
+	History(){
+		killers = new int[Search.MAX_PLY + 1][2];
+		scores = new int[2][64][64];
+	}
+
+	/**
+	 * Records a quiet move that caused a beta cutoff
+	 * @param color side that played the move
+	 * @param move packed move
+	 * @param ply distance from the root
+	 * @param depth depth that was left to search, deeper cutoffs count more
+	 */
+	void update(Color color, int move, int ply, int depth){
+		move = Move.withoutFlags(move);
+		int[] k = killers[ply];
+		if (k[0] != move){
+			k[1] = k[0];
+			k[0] = move;
+		}
+		int[] row = scores[color.ordinal()][Move.getFrom(move)];
+		int to = Move.getTo(move);
+		row[to] += depth * depth;
+		if (row[to] >= MAX_SCORE){
+			age();
+		}
+	}
+
+	/**
+	 * Returns a killer move of a ply
+	 * @param ply distance from the root
+	 * @param slot 0 for the most recent killer, 1 for the one before it
+	 * @return the packed move without flags, Move.NONE if there is none
+	 */
+	int getKiller(int ply, int slot){
+		return killers[ply][slot];
+	}
+
+	/**
+	 * Returns the history score of a move
+	 * @param color side that plays the move
+	 * @param move packed move
+	 * @return the score, 0 if the move never caused a cutoff
+	 */
+	int getScore(Color color, int move){
+		return scores[color.ordinal()][Move.getFrom(move)][Move.getTo(move)];
+	}
+
+	/**
+	 * Halves every history score
+	 */
+	void age(){
+		for (int[][] side : scores){
+			for (int[] row : side){
+				for (int i = 0; i < 64; i++){
+					row[i] >>= 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets the killer moves, which belong to the position searched, and ages the history scores
+	 * Called at the start of every search
+	 */
+	void newSearch(){
+		for (int[] k : killers){
+			k[0] = Move.NONE;
+			k[1] = Move.NONE;
+		}
+		age();
+	}
+}
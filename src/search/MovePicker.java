@@ -0,0 +1,253 @@
+package search;
+
+import model.Board;
+import model.FileRank;
+import model.Move;
+import model.MoveGenerator;
+import model.MoveStack;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Hands out the legal moves of a position one at a time, best first, in stages:
+ * the move from the transposition table, then captures and promotions ordered by the most valuable victim
+ * and the least valuable attacker (MVV-LVA), then quiet moves with the killers first and the rest by history score.
+ * Each stage is only generated when the one before it is used up, so a node cut off by the hash move
+ * or a capture never generates its quiet moves.
+ * Moves are selected one by one instead of sorted, since most nodes are cut off after a few moves.
+ *
+ * A picker is reused for every node at the same ply, so one is kept per ply by the search.
+ *
+ */
+class MovePicker {
+
+	private static final int HASH = 0;
+	private static final int GENERATE_NOISY = 1;
+	private static final int NOISY = 2;
+	private static final int GENERATE_QUIET = 3;
+	private static final int QUIET = 4;
+	private static final int DONE = 5;
+
+	/**
+	 * Scores of killer moves, above every history score
+	 */
+	private static final int KILLER = 1 << 30;
+
+	private final Board board;
+	private final MoveStack stack;
+	private final int ply;
+	private final History history;
+	private final int[] moves;
+	private final int[] scores;
+	private int stage;
+	private int hashMove;
+	private int index;
+	private int size;
+	private int count;
+	private boolean noisyOnly;
+
+	/**
+	 * Constructor for a picker that generates into a given frame of a move stack
+	 * @param board board whose moves are picked
+	 * @param stack stack the moves are generated into
+	 * @param ply frame of the stack, which is also the distance from the root used for the killers
+	 * @param history killers and history scores used to order quiet moves
+	 */
+	MovePicker(Board board, MoveStack stack, int ply, History history){
+		this.board = board;
+		this.stack = stack;
+		this.ply = ply;
+		this.history = history;
+		this.moves = new int[MoveStack.MAX_MOVES];
+		this.scores = new int[MoveStack.MAX_MOVES];
+	}
+
+	/**
+	 * Starts picking the moves of the current position
+	 * @param hashMove move from the transposition table, tried first if it is legal, or Move.NONE
+	 */
+	void reset(int hashMove){
+		this.hashMove = Move.withoutFlags(hashMove);
+		this.noisyOnly = false;
+		this.stage = HASH;
+		this.index = 0;
+		this.size = 0;
+		this.count = 0;
+	}
+
+	/**
+	 * Starts picking only the captures and promotions of the current position, for the quiescence search
+	 */
+	void resetNoisy(){
+		reset(Move.NONE);
+		this.noisyOnly = true;
+	}
+
+	/**
+	 * Returns the next move to try
+	 * @return the packed move, Move.NONE once every legal move has been returned
+	 */
+	int next(){
+		while (true){
+			switch (stage){
+			case HASH:
+				stage = GENERATE_NOISY;
+				if (hashMove != Move.NONE && isLegal(hashMove)){
+					count++;
+					return withFlags(hashMove);
+				}
+				hashMove = Move.NONE;
+				break;
+			case GENERATE_NOISY:
+				generateNoisy();
+				stage = NOISY;
+				break;
+			case NOISY:
+				if (index < size){
+					count++;
+					return select();
+				}
+				stage = noisyOnly ? DONE : GENERATE_QUIET;
+				break;
+			case GENERATE_QUIET:
+				generateQuiet();
+				stage = QUIET;
+				break;
+			case QUIET:
+				if (index < size){
+					count++;
+					return select();
+				}
+				stage = DONE;
+				break;
+			default:
+				return Move.NONE;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of moves returned by next since the last reset
+	 * @return the number of moves, 0 after next returned Move.NONE means the side to move has no legal move
+	 */
+	int getCount(){
+		return count;
+	}
+
+	/**
+	 * Returns whether a move is quiet, neither a capture nor a promotion
+	 * Killers and history scores are only kept for quiet moves
+	 * @param move packed move returned by next
+	 * @return true if the move is quiet, false otherwise
+	 */
+	static boolean isQuiet(int move){
+		return !Move.hasFlag(move, Move.CAPTURE) && Move.getPromotion(move) == null;
+	}
+
+	/**
+	 * Generates the captures and promotions and scores them by MVV-LVA
+	 * Victims count eight times as much as attackers, and under-promotions come after every other noisy move
+	 */
+	private void generateNoisy(){
+		int n = board.getMoveGenerator().generateNoisy(stack, ply);
+		size = 0;
+		index = 0;
+		for (int i = 0; i < n; i++){
+			int move = stack.get(ply, i);
+			if (Move.withoutFlags(move) == hashMove){
+				continue;
+			}
+			PieceType promotion = Move.getPromotion(move);
+			int score;
+			if (promotion != null && promotion != PieceType.QUEEN){
+				score = -PieceType.values().length + promotion.ordinal();
+			}else{
+				FileRank from = board.getFileRankAt(Move.getFrom(move));
+				FileRank to = board.getFileRankAt(Move.getTo(move));
+				PieceType victim = Move.hasFlag(move, Move.EN_PASSANT) ? PieceType.PAWN
+						: to.isOccupied() ? to.getCurrentPiece().getType() : null;
+				score = (victim == null ? 0 : victim.ordinal() * 8 + 8)
+						+ (promotion == null ? 0 : PieceType.QUEEN.ordinal() * 8)
+						- from.getCurrentPiece().getType().ordinal();
+			}
+			moves[size] = move;
+			scores[size++] = score;
+		}
+	}
+
+	/**
+	 * Generates the quiet moves and scores them, killers first and the rest by history score
+	 */
+	private void generateQuiet(){
+		MoveGenerator generator = board.getMoveGenerator();
+		int start = stack.size(ply);
+		int n = generator.generateQuiet(stack, ply);
+		Color us = board.getSideToMove();
+		int killer1 = history.getKiller(ply, 0);
+		int killer2 = history.getKiller(ply, 1);
+		size = 0;
+		index = 0;
+		for (int i = start; i < n; i++){
+			int move = stack.get(ply, i);
+			int plain = Move.withoutFlags(move);
+			if (plain == hashMove){
+				continue;
+			}
+			moves[size] = move;
+			scores[size++] = plain == killer1 ? KILLER : plain == killer2 ? KILLER - 1 : history.getScore(us, move);
+		}
+	}
+
+	/**
+	 * Finds the best scored move left in the current stage and moves it to the front of the part not yet returned
+	 * @return the packed move
+	 */
+	private int select(){
+		int best = index;
+		for (int i = index + 1; i < size; i++){
+			if (scores[i] > scores[best]){
+				best = i;
+			}
+		}
+		int move = moves[best];
+		moves[best] = moves[index];
+		scores[best] = scores[index];
+		index++;
+		return move;
+	}
+
+	/**
+	 * Returns whether a move read from the transposition table is legal in the current position
+	 * A different position with the same table slot can leave any move there, so it is checked against the legal targets
+	 * @param move packed move without flags
+	 * @return true if the move is legal, false otherwise
+	 */
+	private boolean isLegal(int move){
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		if ((board.getMoveGenerator().getTargets(from) & (1L << to)) == 0){
+			return false;
+		}
+		FileRank square = board.getFileRankAt(from);
+		boolean promotes = square.getCurrentPiece().getType() == PieceType.PAWN && (to >= 56 || to < 8);
+		PieceType promotion = Move.getPromotion(move);
+		return promotes ? promotion != null && promotion != PieceType.PAWN && promotion != PieceType.KING : promotion == null;
+	}
+
+	/**
+	 * Adds the capture flags to a move from the transposition table, which is stored without flags
+	 * @param move packed legal move without flags
+	 * @return the move with its capture and en passant flags
+	 */
+	private int withFlags(int move){
+		int to = Move.getTo(move);
+		if (board.getFileRankAt(to).isOccupied()){
+			return move | Move.CAPTURE;
+		}
+		if (board.getFileRankAt(Move.getFrom(move)).getCurrentPiece().getType() == PieceType.PAWN
+				&& (board.getEnPassantSquares() & (1L << to)) != 0){
+			return move | Move.CAPTURE | Move.EN_PASSANT;
+		}
+		return move;
+	}
+}
@@ -0,0 +1,251 @@
+package search;
+
+import eval.Evaluator;
+import model.Board;
+import model.Fen;
+import model.Move;
+import tablebase.Tablebases;
+
+/**
+ * A Lazy SMP search: a number of threads search the same root position at the same time,
+ * each on its own copy of the board, sharing one transposition table.
+ * The threads do not divide the work between them, they speed each other up through the results
+ * they store in the table. The move of the first thread is the one that is played.
+ * With one thread the board is searched directly on the calling thread, so the result is deterministic.
+ *
+ */
+public class ParallelSearch {
+
+	private Board board;
+	private int threads;
+	private TranspositionTable table;
+	private long timeLimit;
+	private int maxDepth;
+	private SearchListener listener;
+	private Evaluator evaluator;
+	private Tablebases tablebases;
+	private volatile boolean stopped;
+	private Search[] searches;
+
+	/**
+	 * Constructor for a parallel search on a given board
+	 * @param board board to search, it is copied for every thread and left unchanged
+	 * @param threads number of threads to search with, at least 1
+	 * @param table transposition table shared by the threads
+	 */
+	public ParallelSearch(Board board, int threads, TranspositionTable table){
+		this.board = board;
+		this.threads = Math.max(1, threads);
+		this.table = table;
+		this.maxDepth = Search.MAX_PLY - 1;
+		this.searches = new Search[0];
+	}
+
+	/**
+	 * Sets the time budget of the search
+	 * @param millis time budget in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(long millis){
+		this.timeLimit = millis;
+	}
+
+	/**
+	 * Sets the maximum depth of the search
+	 * @param maxDepth depth in plies at which iterative deepening stops
+	 */
+	public void setMaxDepth(int maxDepth){
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets the listener that is told about the progress of the first thread, with the nodes of all threads
+	 * @param listener listener to report to, null for none
+	 */
+	public void setListener(SearchListener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets how positions are scored, every thread gets an evaluator of the same kind for its own board
+	 * @param evaluator evaluator of any board, null for the default of Search
+	 */
+	public void setEvaluator(Evaluator evaluator){
+		this.evaluator = evaluator;
+	}
+
+	/**
+	 * Sets the endgame tablebases every thread probes
+	 * @param tablebases tablebases to probe, null for none
+	 */
+	public void setTablebases(Tablebases tablebases){
+		this.tablebases = tablebases;
+	}
+
+	/**
+	 * Stops a running search, it returns the best move of the last completed iteration of the first thread
+	 * May be called from another thread
+	 */
+	public void stop(){
+		stopped = true;
+		for (Search search : searches){
+			search.stop();
+		}
+	}
+
+	/**
+	 * Searches the board until the time budget or the maximum depth is reached
+	 * @return the best move found, packed as by Move, Move.NONE if there are no legal moves
+	 */
+	public int search(){
+		stopped = false;
+		table.newSearch();
+		Search[] searches = new Search[threads];
+		for (int i = 0; i < threads; i++){
+			// A single thread searches the board itself, more threads each get a copy
+			searches[i] = new Search(threads == 1 ? board : board.copy());
+			searches[i].setTranspositionTable(table);
+			searches[i].setNewGeneration(false);
+			searches[i].setTimeLimit(timeLimit);
+			searches[i].setMaxDepth(maxDepth);
+			searches[i].setStartDepth(1 + (i & 1));
+			if (evaluator != null){
+				searches[i].setEvaluator(evaluator);
+			}
+			searches[i].setTablebases(tablebases);
+		}
+		searches[0].setListener(listener == null ? null : new SearchListener(){
+			@Override
+			public void iterationCompleted(int depth, int score, long nodes, long millis, int bestMove) {
+				listener.iterationCompleted(depth, score, getNodes(), millis, bestMove);
+			}
+		});
+		this.searches = searches;
+		try{
+			return run(searches);
+		}finally{
+			// The evaluators made for the boards searched follow their moves, the caller's board outlives this search
+			for (Search search : searches){
+				search.close();
+			}
+		}
+	}
+
+	/**
+	 * Runs the searches, the first one on the calling thread if there is only one, otherwise each on its own thread
+	 * @param searches searches set up for this call, the first one is the one whose move is played
+	 * @return the best move of the first search
+	 */
+	private int run(Search[] searches){
+		if (stopped){
+			return Move.NONE;
+		}
+		if (threads == 1){
+			return searches[0].search();
+		}
+
+		final int[] result = new int[1];
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++){
+			final Search search = searches[i];
+			final boolean main = i == 0;
+			workers[i] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					int move = search.search();
+					if (main){
+						result[0] = move;
+					}
+				}
+			}, "search-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		try{
+			// The helpers run until the first thread is done
+			join(workers[0], searches[0], false);
+			for (int i = 1; i < threads; i++){
+				join(workers[i], searches[i], true);
+			}
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			for (Search search : searches){
+				search.stop();
+			}
+		}
+		return result[0];
+	}
+
+	/**
+	 * Waits for a worker to finish
+	 * A search only notices stop once it has started, so it is told again until its thread is done
+	 * @param worker thread of the search
+	 * @param search search run by the thread
+	 * @param stop true to stop the search, false to only stop it if this parallel search was stopped
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	private void join(Thread worker, Search search, boolean stop) throws InterruptedException{
+		while (worker.isAlive()){
+			if (stop || stopped){
+				search.stop();
+			}
+			worker.join(5);
+		}
+	}
+
+	/**
+	 * Returns the number of nodes searched by all threads of the last search
+	 * @return the total number of nodes
+	 */
+	public long getNodes(){
+		long nodes = 0;
+		for (Search search : searches){
+			nodes += search.getNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of nodes searched by each thread of the last search
+	 * @return the number of nodes per thread, the first thread first
+	 */
+	public long[] getThreadNodes(){
+		long[] nodes = new long[searches.length];
+		for (int i = 0; i < searches.length; i++){
+			nodes[i] = searches[i].getNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Searches a position from the command line with several threads and prints the progress and the best move
+	 * @param args optional number of threads, time budget in milliseconds and FEN string
+	 */
+	public static void main(String[] args) {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+		String fen = Fen.START_POSITION;
+		if (args.length > 2){
+			StringBuilder sb = new StringBuilder();
+			for (int i = 2; i < args.length; i++){
+				sb.append(args[i]).append(' ');
+			}
+			fen = sb.toString();
+		}
+		ParallelSearch search = new ParallelSearch(Fen.load(fen), threads, new TranspositionTable(64));
+		search.setTimeLimit(millis);
+		search.setListener(new SearchListener(){
+			@Override
+			public void iterationCompleted(int depth, int score, long nodes, long millis, int bestMove) {
+				System.out.println("depth " + depth + " score " + score + " nodes " + nodes
+						+ " time " + millis + " nps " + (nodes * 1000 / Math.max(millis, 1))
+						+ " best " + Move.toString(bestMove));
+			}
+		});
+		int move = search.search();
+		long[] nodes = search.getThreadNodes();
+		for (int i = 0; i < nodes.length; i++){
+			System.out.println("thread " + i + " nodes " + nodes[i]);
+		}
+		System.out.println("bestmove " + Move.toString(move));
+	}
+}
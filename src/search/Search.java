@@ -0,0 +1,516 @@
+package search;
+
+import eval.ClassicEvaluator;
+import eval.Evaluator;
+import model.Board;
+import model.Fen;
+import model.Move;
+import model.MoveStack;
+import model.Utils.PieceType;
+import tablebase.Tablebases;
+
+/**
+ * An alpha-beta search with iterative deepening that picks a move for the side to move on a board.
+ * Moves come from the board's MoveGenerator and are played
+ * with Board.makeMove and taken back with Board.unmakeMove, so the board is left as it was found.
+ * Below the root, moves are tried in the order of a MovePicker: the hash move, captures by MVV-LVA, then quiet moves
+ * by killers and history, which this search updates on every quiet beta cutoff.
+ * At the horizon a quiescence search plays out captures that do not lose material before the position is evaluated.
+ *
+ */
+public class Search {
+
+	public static final int MATE = 32000;
+	public static final int INFINITY = 32001;
+	public static final int MAX_PLY = 64;
+
+	/**
+	 * Score of a position the tablebases say is won, less the distance from the root, below every mate score
+	 */
+	public static final int TB_WIN = MATE - 2 * MAX_PLY;
+
+	private Board board;
+	private long timeLimit;
+	private int startDepth;
+	private boolean newGeneration;
+	private int maxDepth;
+	private SearchListener listener;
+	private TranspositionTable table;
+	private Evaluator evaluator;
+	private boolean ownsEvaluator;
+	private Tablebases tablebases;
+	private volatile boolean stopped;
+	private long nodes;
+	private long startTime;
+	private long deadline;
+	private int rootBestMove;
+	private int bestScore;
+	private MoveStack moves;
+	private History history;
+	private MovePicker[] pickers;
+	private StaticExchange exchange;
+
+	/**
+	 * Constructor for a search on a given board
+	 * By default the search runs until it is stopped or reaches the maximum depth
+	 * @param board board to search, the side to move is taken from the board
+	 */
+	public Search(Board board){
+		this.board = board;
+		this.timeLimit = 0;
+		this.startDepth = 1;
+		this.newGeneration = true;
+		this.maxDepth = MAX_PLY - 1;
+		this.moves = new MoveStack(MAX_PLY + 1);
+		this.history = new History();
+		this.exchange = new StaticExchange();
+		this.pickers = new MovePicker[MAX_PLY + 1];
+		for (int ply = 0; ply <= MAX_PLY; ply++){
+			pickers[ply] = new MovePicker(board, moves, ply, history);
+		}
+	}
+
+	/**
+	 * Sets the time budget of the search
+	 * @param millis time budget in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(long millis){
+		this.timeLimit = millis;
+	}
+
+	/**
+	 * Sets the maximum depth of the search
+	 * @param maxDepth depth in plies at which iterative deepening stops
+	 */
+	public void setMaxDepth(int maxDepth){
+		this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY - 1));
+	}
+
+	/**
+	 * Sets the depth iterative deepening starts at
+	 * Helper threads of a ParallelSearch start at different depths so that they do not all search the same tree
+	 * @param startDepth depth of the first iteration
+	 */
+	void setStartDepth(int startDepth){
+		this.startDepth = Math.max(1, startDepth);
+	}
+
+	/**
+	 * Sets whether the search starts a new generation of the transposition table
+	 * The threads of a ParallelSearch share a table whose generation the ParallelSearch starts once for all of them,
+	 * so that results stored by one thread are not taken as left over from an earlier search by the others
+	 * @param newGeneration true to start a new generation when the search starts, the default
+	 */
+	void setNewGeneration(boolean newGeneration){
+		this.newGeneration = newGeneration;
+	}
+
+	/**
+	 * Sets the listener that is told about the progress of the search
+	 * @param listener listener to report to, null for none
+	 */
+	public void setListener(SearchListener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the transposition table the search stores its results in
+	 * The table may be shared with other searches running at the same time
+	 * @param table table to use, null for none
+	 */
+	public void setTranspositionTable(TranspositionTable table){
+		this.table = table;
+	}
+
+	/**
+	 * Sets how positions are scored, by default a ClassicEvaluator is created by the first search and kept until close
+	 * @param evaluator evaluator of any board, an evaluator of the same kind is used for this search's board
+	 */
+	public void setEvaluator(Evaluator evaluator){
+		Evaluator own = evaluator.forBoard(board);
+		if (own != this.evaluator){
+			close();
+		}
+		this.evaluator = own;
+		// An evaluator made for this search's board is this search's to detach, one passed in is left to its owner
+		this.ownsEvaluator = own != evaluator;
+	}
+
+	/**
+	 * Sets the endgame tablebases probed once few enough pieces are left
+	 * @param tablebases tablebases to probe, null for none
+	 */
+	public void setTablebases(Tablebases tablebases){
+		this.tablebases = tablebases;
+	}
+
+	/**
+	 * Stops a running search, it returns the best move of the last completed iteration
+	 * May be called from another thread
+	 */
+	public void stop(){
+		stopped = true;
+	}
+
+	/**
+	 * Releases the evaluator this search made for its board, which otherwise follows the board's moves for as long as the board lives
+	 * The next search makes a new one, an evaluator passed to setEvaluator for this very board is left to its owner
+	 * Must not be called while a search is running
+	 */
+	public void close(){
+		if (evaluator != null && ownsEvaluator){
+			evaluator.detach();
+			evaluator = null;
+		}
+		ownsEvaluator = false;
+	}
+
+	/**
+	 * Returns the number of nodes searched by the last search
+	 * @return the number of nodes
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 * Returns the score of the move returned by the last search
+	 * @return the score in centipawns from the point of view of the side to move, or a mate score
+	 */
+	public int getScore(){
+		return bestScore;
+	}
+
+	/**
+	 * Searches the board with iterative deepening until the time budget or the maximum depth is reached
+	 * @return the best move found, packed as by Move, Move.NONE if there are no legal moves
+	 */
+	public int search(){
+		nodes = 0;
+		stopped = false;
+		startTime = System.nanoTime();
+		deadline = timeLimit > 0 ? startTime + timeLimit * 1000000L : Long.MAX_VALUE;
+		rootBestMove = Move.NONE;
+		bestScore = 0;
+		history.newSearch();
+		if (evaluator == null){
+			evaluator = new ClassicEvaluator(board);
+			ownsEvaluator = true;
+		}
+		if (table != null){
+			if (newGeneration){
+				table.newSearch();
+			}
+			rootBestMove = TranspositionTable.getMove(table.probe(board.getKey()));
+		}
+		if (tablebases != null && tablebases.canProbe(board)){
+			int move = rootProbe();
+			if (move != Move.NONE){
+				if (listener != null){
+					listener.iterationCompleted(1, bestScore, nodes, (System.nanoTime() - startTime) / 1000000L, move);
+				}
+				return move;
+			}
+		}
+		int bestMove = Move.NONE;
+		for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++){
+			int score = searchRoot(depth);
+			if (stopped && bestMove != Move.NONE){
+				break;
+			}
+			bestMove = rootBestMove;
+			bestScore = score;
+			long millis = (System.nanoTime() - startTime) / 1000000L;
+			if (listener != null){
+				listener.iterationCompleted(depth, score, nodes, millis, bestMove);
+			}
+			// Stop on a forced mate, or when the next iteration will not finish in time
+			if (bestMove == Move.NONE || Math.abs(score) >= MATE - MAX_PLY || stopped
+					|| (timeLimit > 0 && millis * 2 > timeLimit)){
+				break;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Picks the root move from the tablebases: the fastest win, a drawing move, or the slowest loss,
+	 * measured by the distance to the next capture, Pawn move or mate
+	 * @return the move, Move.NONE if a position after a root move is not in the tablebases
+	 */
+	private int rootProbe(){
+		int count = board.getMoveGenerator().generate(moves, 0);
+		int best = Move.NONE;
+		int bestRank = Integer.MIN_VALUE;
+		int bestValue = 0;
+		for (int i = 0; i < count; i++){
+			int move = moves.get(0, i);
+			makeMove(move);
+			int value = tablebases.probeDtz(board);
+			board.unmakeMove();
+			if (value == Tablebases.UNKNOWN){
+				return Move.NONE;
+			}
+			// The value is the opponent's: a loss closest to -1 is the fastest win, a win with the largest distance the slowest loss
+			int rank = value < 0 ? 1000 + value : value == 0 ? 0 : -1000 + value;
+			if (rank > bestRank){
+				bestRank = rank;
+				best = move;
+				bestValue = value;
+			}
+		}
+		bestScore = bestValue < 0 ? TB_WIN - (-bestValue) : bestValue > 0 ? -TB_WIN + bestValue : 0;
+		return best;
+	}
+
+	/**
+	 * Searches every root move to a given depth, starting with the best move of the previous iteration
+	 * @param depth depth to search to
+	 * @return the score of the best root move
+	 */
+	private int searchRoot(int depth){
+		int count = board.getMoveGenerator().generate(moves, 0);
+		moves.moveToFront(0, rootBestMove);
+		int alpha = -INFINITY;
+		int best = Move.NONE;
+		for (int i = 0; i < count; i++){
+			int move = moves.get(0, i);
+			makeMove(move);
+			int score = -alphaBeta(depth - 1, 1, -INFINITY, -alpha);
+			board.unmakeMove();
+			if (stopped){
+				break;
+			}
+			if (score > alpha || best == Move.NONE){
+				alpha = score;
+				best = move;
+			}
+		}
+		if (best != Move.NONE){
+			rootBestMove = best;
+			if (table != null && !stopped){
+				table.store(board.getKey(), depth, toTable(alpha, 0), TranspositionTable.EXACT, best);
+			}
+		}
+		return alpha;
+	}
+
+	/**
+	 * Searches a position with alpha-beta pruning
+	 * @param depth number of plies left to search
+	 * @param ply distance from the root
+	 * @param alpha lower bound of the score
+	 * @param beta upper bound of the score
+	 * @return the score of the position from the point of view of the side to move
+	 */
+	private int alphaBeta(int depth, int ply, int alpha, int beta){
+		if ((++nodes & 2047) == 0 && System.nanoTime() > deadline){
+			stopped = true;
+		}
+		if (stopped){
+			return 0;
+		}
+		// A position that occurred before can be repeated forever, so it is scored as a draw
+		if (board.getRepetitions() > 0){
+			return 0;
+		}
+		if (ply >= MAX_PLY){
+			return evaluator.evaluate();
+		}
+		if (depth == 0){
+			return quiesce(ply, alpha, beta);
+		}
+		if (tablebases != null && tablebases.canProbe(board)){
+			int wdl = tablebases.probeWdl(board);
+			if (wdl != Tablebases.UNKNOWN){
+				return wdl == Tablebases.WIN ? TB_WIN - ply : wdl == Tablebases.LOSS ? -TB_WIN + ply : 0;
+			}
+		}
+		long key = board.getKey();
+		int hashMove = Move.NONE;
+		if (table != null){
+			long entry = table.probe(key);
+			if (entry != 0L){
+				hashMove = TranspositionTable.getMove(entry);
+				if (TranspositionTable.getDepth(entry) >= depth){
+					int score = fromTable(TranspositionTable.getScore(entry), ply);
+					int bound = TranspositionTable.getBound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && score >= beta)
+							|| (bound == TranspositionTable.UPPER && score <= alpha)){
+						return bound == TranspositionTable.EXACT ? score : (bound == TranspositionTable.LOWER ? beta : alpha);
+					}
+				}
+			}
+		}
+		MovePicker picker = pickers[ply];
+		picker.reset(hashMove);
+		int originalAlpha = alpha;
+		int best = Move.NONE;
+		int move;
+		while ((move = picker.next()) != Move.NONE){
+			makeMove(move);
+			int score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+			board.unmakeMove();
+			if (stopped){
+				return 0;
+			}
+			if (score >= beta){
+				if (MovePicker.isQuiet(move)){
+					history.update(board.getSideToMove(), move, ply, depth);
+				}
+				if (table != null){
+					table.store(key, depth, toTable(beta, ply), TranspositionTable.LOWER, move);
+				}
+				return beta;
+			}
+			if (score > alpha){
+				alpha = score;
+				best = move;
+			}
+		}
+		if (picker.getCount() == 0){
+			return board.isKingAttacked(board.getSideToMove()) ? -MATE + ply : 0;
+		}
+		if (table != null){
+			table.store(key, depth, toTable(alpha, ply),
+					alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER, best);
+		}
+		return alpha;
+	}
+
+	/**
+	 * Searches captures only, until the position is quiet, so that the evaluation is not taken in the middle of an exchange
+	 * The side to move may stand pat on the evaluation instead of capturing, and captures that lose material
+	 * by static exchange evaluation are not tried. A side in check has no stand pat and searches every evasion.
+	 * @param ply distance from the root
+	 * @param alpha lower bound of the score
+	 * @param beta upper bound of the score
+	 * @return the score of the position from the point of view of the side to move
+	 */
+	private int quiesce(int ply, int alpha, int beta){
+		if ((++nodes & 2047) == 0 && System.nanoTime() > deadline){
+			stopped = true;
+		}
+		if (stopped){
+			return 0;
+		}
+		if (ply >= MAX_PLY){
+			return evaluator.evaluate();
+		}
+		boolean inCheck = board.isKingAttacked(board.getSideToMove());
+		MovePicker picker = pickers[ply];
+		if (inCheck){
+			picker.reset(Move.NONE);
+		}else{
+			int standPat = evaluator.evaluate();
+			if (standPat >= beta){
+				return beta;
+			}
+			if (standPat > alpha){
+				alpha = standPat;
+			}
+			picker.resetNoisy();
+		}
+		int move;
+		while ((move = picker.next()) != Move.NONE){
+			if (!inCheck){
+				PieceType promotion = Move.getPromotion(move);
+				if ((promotion != null && promotion != PieceType.QUEEN) || exchange.evaluate(board, move) < 0){
+					continue;
+				}
+			}
+			makeMove(move);
+			int score = -quiesce(ply + 1, -beta, -alpha);
+			board.unmakeMove();
+			if (stopped){
+				return 0;
+			}
+			if (score >= beta){
+				return beta;
+			}
+			if (score > alpha){
+				alpha = score;
+			}
+		}
+		if (inCheck && picker.getCount() == 0){
+			return -MATE + ply;
+		}
+		return alpha;
+	}
+
+	/**
+	 * Converts a mate or tablebase score from distance to the root into distance to the current position, for storing
+	 * @param score score relative to the root
+	 * @param ply distance from the root
+	 * @return score relative to the current position
+	 */
+	private static int toTable(int score, int ply){
+		if (score >= TB_WIN - MAX_PLY){
+			return score + ply;
+		}
+		if (score <= -TB_WIN + MAX_PLY){
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Converts a mate or tablebase score read from the table back into distance to the root
+	 * @param score score relative to the stored position
+	 * @param ply distance from the root
+	 * @return score relative to the root
+	 */
+	private static int fromTable(int score, int ply){
+		if (score >= TB_WIN - MAX_PLY){
+			return score - ply;
+		}
+		if (score <= -TB_WIN + MAX_PLY){
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Plays a legal move
+	 * @param move packed move to play
+	 */
+	private void makeMove(int move){
+		board.makeMove(board.getFileRankAt(Move.getFrom(move)), board.getFileRankAt(Move.getTo(move)), Move.getPromotionChar(move));
+	}
+
+	/**
+	 * Searches a position from the command line and prints the progress and the best move
+	 * @param args optional time budget in milliseconds followed by a FEN string
+	 */
+	public static void main(String[] args) {
+		long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+		String fen = Fen.START_POSITION;
+		if (args.length > 1){
+			StringBuilder sb = new StringBuilder();
+			for (int i = 1; i < args.length; i++){
+				sb.append(args[i]).append(' ');
+			}
+			fen = sb.toString();
+		}
+		Board board = Fen.load(fen);
+		Search search = new Search(board);
+		ClassicEvaluator evaluator = new ClassicEvaluator(board);
+		search.setEvaluator(evaluator);
+		final TranspositionTable table = new TranspositionTable(64);
+		search.setTimeLimit(millis);
+		search.setTranspositionTable(table);
+		search.setListener(new SearchListener(){
+			@Override
+			public void iterationCompleted(int depth, int score, long nodes, long millis, int bestMove) {
+				System.out.println("depth " + depth + " score " + score + " nodes " + nodes
+						+ " time " + millis + " nps " + (nodes * 1000 / Math.max(millis, 1))
+						+ " hashfull " + table.getPermill() + " hits " + table.getHits()
+						+ " collisions " + table.getCollisions() + " best " + Move.toString(bestMove));
+			}
+		});
+		System.out.println("bestmove " + Move.toString(search.search()));
+		System.out.println("pawn cache hits " + evaluator.getPawnCache().getHits() + " of " + evaluator.getPawnCache().getProbes()
+				+ String.format(" (%.1f%%)", evaluator.getPawnCache().getHitRate() * 100));
+	}
+}
@@ -0,0 +1,18 @@
+package search;
+
+/**
+ * Receives progress reports from a search
+ *
+ */
+public interface SearchListener {
+
+	/**
+	 * Called every time the search completes an iteration
+	 * @param depth depth that was completed
+	 * @param score score of the best move in centipawns, from the point of view of the side to move
+	 * @param nodes number of nodes searched so far
+	 * @param millis time spent so far in milliseconds
+	 * @param bestMove best move found so far, packed as by model.Move
+	 */
+	void iterationCompleted(int depth, int score, long nodes, long millis, int bestMove);
+}
@@ -0,0 +1,123 @@
+package search;
+
+import model.Attacks;
+import model.Bitboards;
+import model.Board;
+import model.FileRank;
+import model.Move;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Static exchange evaluation: the material a capture wins or loses once every capture back and forth
+ * on the same FileRank has been played, each side recapturing with its least valuable attacker
+ * and free to stop when going on would lose material.
+ * Attackers come from Bitboards.attackersTo, and sliding pieces hidden behind a piece that has captured
+ * are found by looking along its ray again. Pins and checks are not taken into account.
+ * An instance keeps the swap list it works in, so each searching thread needs its own.
+ *
+ */
+public class StaticExchange {
+
+	/**
+	 * Piece values in centipawns by PieceType ordinal, the King above everything it could win
+	 */
+	private static final int[] VALUES = {100, 320, 330, 500, 900, 20000};
+
+	/**
+	 * Piece types from the least to the most valuable, the order attackers are tried in
+	 */
+	private static final PieceType[] TYPES = PieceType.values();
+
+	/**
+	 * Longest exchange followed, there are never more than 32 pieces
+	 */
+	private static final int MAX_CAPTURES = 32;
+
+	private final int[] gain = new int[MAX_CAPTURES];
+
+	/**
+	 * Returns the value of a piece type for exchanges
+	 * @param type type of the piece
+	 * @return the value in centipawns
+	 */
+	public static int value(PieceType type){
+		return VALUES[type.ordinal()];
+	}
+
+	/**
+	 * Evaluates a capture or promotion of the side to move
+	 * @param board board the move is played on
+	 * @param move packed legal move, with its capture and en passant flags
+	 * @return the material won by the side to move in centipawns, negative if the exchange loses material
+	 */
+	public int evaluate(Board board, int move){
+		Bitboards bb = board.getBitboards();
+		int from = Move.getFrom(move);
+		int to = Move.getTo(move);
+		FileRank target = board.getFileRankAt(to);
+		PieceType moving = board.getFileRankAt(from).getCurrentPiece().getType();
+		long occupied = bb.getOccupied() ^ (1L << from);
+		if (Move.hasFlag(move, Move.EN_PASSANT)){
+			gain[0] = VALUES[PieceType.PAWN.ordinal()];
+			// The captured Pawn is beside the target, on the rank the capturing Pawn came from
+			occupied ^= 1L << ((from & ~7) | (to & 7));
+		}else{
+			gain[0] = target.isOccupied() ? value(target.getCurrentPiece().getType()) : 0;
+		}
+		PieceType promotion = Move.getPromotion(move);
+		if (promotion != null){
+			gain[0] += value(promotion) - VALUES[PieceType.PAWN.ordinal()];
+			moving = promotion;
+		}
+
+		long rookSliders = bb.getRookSliders();
+		long bishopSliders = bb.getBishopSliders();
+		long attackers = bb.attackersTo(to, occupied) & occupied;
+		Color side = board.getSideToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+		int d = 0;
+		while (true){
+			long own = attackers & bb.getOccupied(side);
+			if (own == 0){
+				break;
+			}
+			// The piece standing on the target is what the next capture wins
+			d++;
+			gain[d] = value(moving) - gain[d - 1];
+			PieceType next = null;
+			long piece = 0L;
+			for (PieceType type : TYPES){
+				piece = own & bb.getPieces(side, type);
+				if (piece != 0){
+					next = type;
+					break;
+				}
+			}
+			Color other = side == Color.WHITE ? Color.BLACK : Color.WHITE;
+			if (next == PieceType.KING && (attackers & bb.getOccupied(other)) != 0){
+				// The King cannot capture onto a defended square
+				d--;
+				break;
+			}
+			occupied ^= piece & -piece;
+			if (next == PieceType.PAWN || next == PieceType.BISHOP || next == PieceType.QUEEN){
+				attackers |= Attacks.bishopAttacks(to, occupied) & bishopSliders;
+			}
+			if (next == PieceType.ROOK || next == PieceType.QUEEN){
+				attackers |= Attacks.rookAttacks(to, occupied) & rookSliders;
+			}
+			attackers &= occupied;
+			moving = next;
+			side = other;
+			if (d == MAX_CAPTURES - 1){
+				break;
+			}
+		}
+		// Each side only goes on capturing if it gains by it
+		while (d > 0){
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+			d--;
+		}
+		return gain[0];
+	}
+}
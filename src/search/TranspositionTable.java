@@ -0,0 +1,260 @@
+package search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results, keyed by the Zobrist key of a position (Board.getKey).
+ * The table lives off the heap in a direct buffer and can be shared by any number of searching threads
+ * without locks. Each entry is two longs, the packed data and the key XORed with the data.
+ * A thread that reads an entry while another thread is writing it sees a key that does not match,
+ * so a torn entry is treated as a miss instead of being used.
+ *
+ * Data is packed as: bits 0-15 move, 16-31 score, 32-39 depth, 40-41 bound, 42-49 generation.
+ *
+ */
+public class TranspositionTable {
+
+	/**
+	 * Decides whether a new result may overwrite the entry already in its slot
+	 */
+	public enum Replacement{
+		/** Always overwrite */
+		ALWAYS,
+		/** Overwrite the same position, or a result searched to a lower or equal depth */
+		DEPTH,
+		/** Like DEPTH, but results left over from an earlier search are always overwritten */
+		AGED_DEPTH
+	}
+
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int MAX_ENTRIES = 1 << 26;
+
+	private final LongBuffer table;
+	private final int mask;
+	private Replacement replacement;
+	private volatile int generation;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Constructor for a table of a given size, using the AGED_DEPTH replacement policy
+	 * @param megabytes size of the table, rounded down to a power of two number of entries
+	 */
+	public TranspositionTable(int megabytes){
+		this(megabytes, Replacement.AGED_DEPTH);
+	}
+
+	/**
+	 * Constructor for a table of a given size and replacement policy
+	 * @param megabytes size of the table, rounded down to a power of two number of entries, at most 1024
+	 * @param replacement policy deciding which entries are overwritten
+	 */
+	public TranspositionTable(int megabytes, Replacement replacement){
+		long wanted = Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+		int entries = (int) Math.min(Long.highestOneBit(wanted), MAX_ENTRIES);
+		this.table = ByteBuffer.allocateDirect(entries * ENTRY_BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+		this.mask = entries - 1;
+		this.replacement = replacement;
+	}
+
+	/**
+	 * Sets the replacement policy
+	 * @param replacement policy deciding which entries are overwritten
+	 */
+	public void setReplacement(Replacement replacement){
+		this.replacement = replacement;
+	}
+
+	/**
+	 * Marks the start of a new search, so that entries from earlier searches can be recognised as old
+	 */
+	public void newSearch(){
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Removes every entry and resets the counters
+	 */
+	public void clear(){
+		for (int i = 0; i < table.capacity(); i++){
+			table.put(i, 0L);
+		}
+		probes.reset();
+		hits.reset();
+		collisions.reset();
+		stores.reset();
+	}
+
+	/**
+	 * Looks up a position
+	 * @param key Zobrist key of the position
+	 * @return the packed data of the entry, 0 if the position is not in the table
+	 */
+	public long probe(long key){
+		int index = ((int) key & mask) << 1;
+		long data = table.get(index + 1);
+		long check = table.get(index);
+		probes.increment();
+		if (data == 0L){
+			return 0L;
+		}
+		if ((check ^ data) != key){
+			collisions.increment();
+			return 0L;
+		}
+		hits.increment();
+		return data;
+	}
+
+	/**
+	 * Stores the result of searching a position, if the replacement policy allows it
+	 * @param key Zobrist key of the position
+	 * @param depth depth the position was searched to
+	 * @param score score of the position, mate scores must already be relative to the position
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move best move found, Move.NONE if there is none
+	 */
+	public void store(long key, int depth, int score, int bound, int move){
+		int index = ((int) key & mask) << 1;
+		long old = table.get(index + 1);
+		if (old != 0L && replacement != Replacement.ALWAYS){
+			boolean samePosition = (table.get(index) ^ old) == key;
+			boolean stale = replacement == Replacement.AGED_DEPTH && getGeneration(old) != generation;
+			if (!samePosition && !stale && depth < getDepth(old)){
+				return;
+			}
+			// Keep the best move of a previous search of this position if this one found none
+			if (samePosition && move == 0){
+				move = getMove(old);
+			}
+		}
+		long data = (move & 0xFFFFL)
+				| ((score & 0xFFFFL) << 16)
+				| ((long) Math.max(0, Math.min(depth, 255)) << 32)
+				| ((long) bound << 40)
+				| ((long) generation << 42);
+		table.put(index, key ^ data);
+		table.put(index + 1, data);
+		stores.increment();
+	}
+
+	/**
+	 * Returns the best move of an entry
+	 * @param data packed data returned by probe
+	 * @return the packed move, Move.NONE if there is none
+	 */
+	public static int getMove(long data){
+		return (int) (data & 0xFFFF);
+	}
+
+	/**
+	 * Returns the score of an entry
+	 * @param data packed data returned by probe
+	 * @return the score
+	 */
+	public static int getScore(long data){
+		return (short) (data >>> 16);
+	}
+
+	/**
+	 * Returns the depth of an entry
+	 * @param data packed data returned by probe
+	 * @return the depth the position was searched to
+	 */
+	public static int getDepth(long data){
+		return (int) (data >>> 32) & 0xFF;
+	}
+
+	/**
+	 * Returns the bound type of an entry
+	 * @param data packed data returned by probe
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int getBound(long data){
+		return (int) (data >>> 40) & 3;
+	}
+
+	/**
+	 * Returns the generation of an entry
+	 * @param data packed data returned by probe
+	 * @return the generation of the search that stored the entry
+	 */
+	private static int getGeneration(long data){
+		return (int) (data >>> 42) & 0xFF;
+	}
+
+	/**
+	 * Returns the number of entries the table holds
+	 * @return the number of entries
+	 */
+	public int getCapacity(){
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the number of probes since the table was created or cleared
+	 * @return the number of probes
+	 */
+	public long getProbes(){
+		return probes.sum();
+	}
+
+	/**
+	 * Returns the number of probes that found their position
+	 * @return the number of hits
+	 */
+	public long getHits(){
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of probes that found a different position, or a torn entry, in the slot
+	 * @return the number of collisions
+	 */
+	public long getCollisions(){
+		return collisions.sum();
+	}
+
+	/**
+	 * Returns the number of results stored
+	 * @return the number of stores
+	 */
+	public long getStores(){
+		return stores.sum();
+	}
+
+	/**
+	 * Returns the share of probes that were hits
+	 * @return the hit rate, between 0 and 1
+	 */
+	public double getHitRate(){
+		long p = probes.sum();
+		return p == 0 ? 0.0 : (double) hits.sum() / p;
+	}
+
+	/**
+	 * Estimates how full the table is by sampling the first thousand entries
+	 * @return the number of used entries per thousand
+	 */
+	public int getPermill(){
+		int sample = Math.min(1000, getCapacity());
+		int used = 0;
+		for (int i = 0; i < sample; i++){
+			long data = table.get((i << 1) + 1);
+			if (data != 0L && getGeneration(data) == generation){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+}
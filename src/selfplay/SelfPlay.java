@@ -0,0 +1,281 @@
+package selfplay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.GameController;
+import chess.GameEvent;
+import model.Board;
+import model.Fen;
+import model.Move;
+import model.MoveStack;
+import pgn.PgnGame;
+import search.Search;
+import search.TranspositionTable;
+
+/**
+ * Plays engine against engine games in parallel to generate training data for evaluation.
+ * Every worker thread plays whole games on its own boards with its own Search and transposition table,
+ * starting from an opening position followed by a few random moves, and writes every position searched
+ * with its score and the result of the game through a shared TrainingWriter.
+ * Each worker's random moves come from its own seed, derived from the seed that is set,
+ * so a run with one worker is repeatable.
+ *
+ */
+public class SelfPlay {
+
+	/**
+	 * Most moves a game may have, the game is drawn when it is reached
+	 */
+	public static final int MAX_PLIES = 400;
+
+	private static final int TABLE_MEGABYTES = 16;
+	private static final int BUFFER_RECORDS = 4096;
+
+	private int games;
+	private int depth;
+	private int threads;
+	private long seed;
+	private int randomPlies;
+	private List<String> openings;
+	private final AtomicInteger started;
+	private final AtomicInteger finished;
+	private final AtomicLong positions;
+
+	/**
+	 * Constructor for a generator of a given number of games, searched to a given depth
+	 * By default every processor runs a worker and games start with 8 random moves from the starting position
+	 * @param games number of games to play
+	 * @param depth depth every move is searched to
+	 */
+	public SelfPlay(int games, int depth){
+		this.games = games;
+		this.depth = depth;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.seed = 0;
+		this.randomPlies = 8;
+		this.openings = new ArrayList<String>();
+		this.openings.add(Fen.START_POSITION);
+		this.started = new AtomicInteger();
+		this.finished = new AtomicInteger();
+		this.positions = new AtomicLong();
+	}
+
+	/**
+	 * Sets the number of worker threads
+	 * @param threads number of workers, at least 1
+	 */
+	public void setThreads(int threads){
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Sets the seed the seeds of the workers are derived from
+	 * @param seed the seed, worker i uses seed + i
+	 */
+	public void setSeed(long seed){
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of random moves played from the opening position before the engine takes over
+	 * @param randomPlies number of random moves
+	 */
+	public void setRandomPlies(int randomPlies){
+		this.randomPlies = Math.max(0, randomPlies);
+	}
+
+	/**
+	 * Sets the positions games start from, each game picks one at random
+	 * @param openings positions in Forsyth-Edwards Notation, at least one
+	 */
+	public void setOpenings(List<String> openings){
+		if (!openings.isEmpty()){
+			this.openings = new ArrayList<String>(openings);
+		}
+	}
+
+	/**
+	 * Returns the number of games finished so far
+	 * @return the number of games
+	 */
+	public int getFinished(){
+		return finished.get();
+	}
+
+	/**
+	 * Returns the number of positions written so far
+	 * @return the number of positions
+	 */
+	public long getPositions(){
+		return positions.get();
+	}
+
+	/**
+	 * Plays all of the games and writes their positions
+	 * A worker that fails stops, the others play on, and the first failure is thrown once all of them are done
+	 * @param writer writer to write the positions to
+	 * @throws IOException if the data cannot be written
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 * @throws RuntimeException if a worker failed, for example because a search returned an illegal move
+	 */
+	public void run(final TrainingWriter writer) throws IOException, InterruptedException{
+		final Exception[] failure = new Exception[1];
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++){
+			final long workerSeed = seed + i;
+			workers[i] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try{
+						work(writer, new Random(workerSeed));
+					}catch (IOException | RuntimeException e){
+						synchronized (failure){
+							if (failure[0] == null){
+								failure[0] = e;
+							}
+						}
+					}
+				}
+			}, "selfplay-" + i);
+			workers[i].start();
+		}
+		for (Thread worker : workers){
+			worker.join();
+		}
+		if (failure[0] instanceof IOException){
+			throw (IOException) failure[0];
+		}
+		if (failure[0] != null){
+			throw (RuntimeException) failure[0];
+		}
+	}
+
+	/**
+	 * Plays games until all of them are started, buffering their positions and writing them a buffer at a time
+	 * The positions of the games finished are written even if the worker fails, those of an unfinished game are dropped
+	 * @param writer writer to write the positions to
+	 * @param random source of the worker's random choices
+	 * @throws IOException if the data cannot be written
+	 */
+	private void work(TrainingWriter writer, Random random) throws IOException{
+		TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+		ByteBuffer buffer = TrainingWriter.newBuffer((BUFFER_RECORDS + MAX_PLIES) * TrainingRecord.RECORD_SIZE);
+		MoveStack moves = new MoveStack(1);
+		// End of the positions of the finished games in the buffer
+		int complete = 0;
+		try{
+			while (started.getAndIncrement() < games){
+				GameController game = opening(random, moves);
+				if (game == null){
+					finished.incrementAndGet();
+					continue;
+				}
+				int first = buffer.position();
+				Board board = game.getBoard();
+				Search search = new Search(board);
+				search.setTranspositionTable(table);
+				search.setMaxDepth(depth);
+				while (!game.isOver()){
+					int move = search.search();
+					// Only an opening position with no legal moves gets here without a move
+					if (move == Move.NONE){
+						break;
+					}
+					TrainingRecord.encode(board, search.getScore(), buffer);
+					if (game.play(board.getFileRankAt(Move.getFrom(move)), board.getFileRankAt(Move.getTo(move)),
+							Move.getPromotionChar(move)) == GameEvent.ILLEGAL){
+						throw new IllegalStateException("Search returned an illegal move: " + Move.toString(move));
+					}
+					if (!game.isOver() && (game.canClaimDraw() || game.getPlies() >= MAX_PLIES)){
+						game.adjudicateDraw();
+					}
+				}
+				search.close();
+				int result = game.getResult().equals(PgnGame.WHITE_WINS) ? TrainingRecord.WHITE_WINS
+						: game.getResult().equals(PgnGame.BLACK_WINS) ? TrainingRecord.BLACK_WINS : TrainingRecord.DRAW;
+				for (int offset = first; offset < buffer.position(); offset += TrainingRecord.RECORD_SIZE){
+					TrainingRecord.setResult(buffer, offset, result);
+				}
+				complete = buffer.position();
+				positions.addAndGet((complete - first) / TrainingRecord.RECORD_SIZE);
+				finished.incrementAndGet();
+				// Room is kept for a whole game after the buffer is considered full
+				if (complete >= BUFFER_RECORDS * TrainingRecord.RECORD_SIZE){
+					buffer.flip();
+					complete = 0;
+					writer.write(buffer);
+					buffer.clear();
+				}
+			}
+		}finally{
+			buffer.position(complete);
+			buffer.flip();
+			writer.write(buffer);
+		}
+	}
+
+	/**
+	 * Sets up a game from a random opening followed by random moves
+	 * @param random source of the random choices
+	 * @param moves stack to generate the moves in
+	 * @return the game, null if the random moves ended it
+	 */
+	private GameController opening(Random random, MoveStack moves){
+		GameController game = new GameController(openings.get(random.nextInt(openings.size())));
+		Board board = game.getBoard();
+		for (int i = 0; i < randomPlies && !game.isOver(); i++){
+			int count = board.getMoveGenerator().generate(moves, 0);
+			int move = moves.get(0, random.nextInt(count));
+			game.play(board.getFileRankAt(Move.getFrom(move)), board.getFileRankAt(Move.getTo(move)), Move.getPromotionChar(move));
+		}
+		return game.isOver() ? null : game;
+	}
+
+	/**
+	 * Generates training data from the command line and prints the rate of games
+	 * @param args output file, then optionally the number of games, the depth, the number of threads,
+	 * the seed and a file of opening positions with one FEN string per line
+	 * @throws Exception if the data cannot be written or the openings cannot be read
+	 */
+	public static void main(String[] args) throws Exception{
+		if (args.length < 1){
+			System.out.println("Usage: SelfPlay output [games] [depth] [threads] [seed] [openings]");
+			return;
+		}
+		Path output = Paths.get(args[0]);
+		final SelfPlay selfPlay = new SelfPlay(args.length > 1 ? Integer.parseInt(args[1]) : 100,
+				args.length > 2 ? Integer.parseInt(args[2]) : 4);
+		if (args.length > 3){
+			selfPlay.setThreads(Integer.parseInt(args[3]));
+		}
+		if (args.length > 4){
+			selfPlay.setSeed(Long.parseLong(args[4]));
+		}
+		if (args.length > 5){
+			List<String> openings = new ArrayList<String>();
+			for (String line : Files.readAllLines(Paths.get(args[5]), StandardCharsets.US_ASCII)){
+				if (!line.trim().isEmpty()){
+					openings.add(line.trim());
+				}
+			}
+			selfPlay.setOpenings(openings);
+		}
+		long start = System.nanoTime();
+		try (TrainingWriter writer = new TrainingWriter(output)){
+			selfPlay.run(writer);
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+		System.out.println(selfPlay.getFinished() + " games, " + selfPlay.getPositions() + " positions, " + millis + " ms, "
+				+ (selfPlay.getFinished() * 3600000L / millis) + " games/hour");
+	}
+}
@@ -0,0 +1,182 @@
+package selfplay;
+
+import java.nio.ByteBuffer;
+
+import model.Bitboards;
+import model.Board;
+import model.Utils.Color;
+import model.Utils.PieceType;
+import model.Zobrist;
+
+/**
+ * A utility class for the records of a training data file, one position per record of RECORD_SIZE bytes,
+ * little-endian:
+ *
+ * 8 bytes, the squares that are occupied, bit 0 being a1
+ * 16 bytes, a nibble per occupied square in the order of the squares, the low nibble first:
+ * the type of the piece (PieceType ordinal) with bit 3 set for White
+ * 1 byte, bit 0 set if White is to move, bits 1-4 the castling rights as in Zobrist
+ * 1 byte, the result of the game: 0 if Black won, 1 for a draw, 2 if White won
+ * 2 bytes, the score of the search in centipawns from the point of view of the side to move
+ * 1 byte, the halfmove clock, 2 bytes, the fullmove number, and 1 byte that is not used
+ *
+ * A position has at most 32 pieces, so it always fits. EnPassant squares are not kept.
+ *
+ */
+public class TrainingRecord {
+
+	/**
+	 * Number of bytes of a record
+	 */
+	public static final int RECORD_SIZE = 32;
+
+	/**
+	 * Result byte of a game won by Black
+	 */
+	public static final int BLACK_WINS = 0;
+
+	/**
+	 * Result byte of a drawn game, also of a game that was not finished
+	 */
+	public static final int DRAW = 1;
+
+	/**
+	 * Result byte of a game won by White
+	 */
+	public static final int WHITE_WINS = 2;
+
+	private static final int FLAGS = 24;
+	private static final int RESULT = 25;
+	private static final int SCORE = 26;
+	private static final int HALFMOVE = 28;
+	private static final int FULLMOVE = 29;
+
+	/**
+	 * Writes the position on a board and its score at the position of a buffer, the result is set to a draw
+	 * @param board board holding the position
+	 * @param score score of the position from the point of view of the side to move
+	 * @param buffer little-endian buffer to write to, its position is advanced by RECORD_SIZE
+	 */
+	public static void encode(Board board, int score, ByteBuffer buffer){
+		Bitboards bb = board.getBitboards();
+		long occupied = bb.getOccupied();
+		int start = buffer.position();
+		buffer.putLong(occupied);
+		long nibbles0 = 0;
+		long nibbles1 = 0;
+		int i = 0;
+		for (long rest = occupied; rest != 0; rest &= rest - 1, i++){
+			long square = rest & -rest;
+			long nibble = pieceAt(bb, square);
+			if (i < 16){
+				nibbles0 |= nibble << (4 * i);
+			}else{
+				nibbles1 |= nibble << (4 * (i - 16));
+			}
+		}
+		buffer.putLong(nibbles0).putLong(nibbles1);
+		buffer.put((byte) ((board.getSideToMove() == Color.WHITE ? 1 : 0) | board.getCastlingRights() << 1));
+		buffer.put((byte) DRAW);
+		buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+		buffer.put((byte) Math.min(255, board.getHalfmoveClock()));
+		buffer.putShort((short) board.getFullmoveNumber());
+		buffer.put((byte) 0);
+		assert buffer.position() == start + RECORD_SIZE;
+	}
+
+	/**
+	 * Returns the nibble of the piece on a square
+	 * @param bb bitboards of the position
+	 * @param square bitboard of the square, which must be occupied
+	 * @return the type of the piece, with bit 3 set for White
+	 */
+	private static long pieceAt(Bitboards bb, long square){
+		long color = (bb.getOccupied(Color.WHITE) & square) != 0 ? 8 : 0;
+		Color c = color != 0 ? Color.WHITE : Color.BLACK;
+		for (PieceType type : PieceType.values()){
+			if ((bb.getPieces(c, type) & square) != 0){
+				return color | type.ordinal();
+			}
+		}
+		return color;
+	}
+
+	/**
+	 * Sets the result of the game in a record
+	 * @param buffer buffer holding the record
+	 * @param offset index of the first byte of the record
+	 * @param result BLACK_WINS, DRAW or WHITE_WINS
+	 */
+	public static void setResult(ByteBuffer buffer, int offset, int result){
+		buffer.put(offset + RESULT, (byte) result);
+	}
+
+	/**
+	 * Returns the result of the game of a record
+	 * @param buffer buffer holding the record
+	 * @param offset index of the first byte of the record
+	 * @return BLACK_WINS, DRAW or WHITE_WINS
+	 */
+	public static int getResult(ByteBuffer buffer, int offset){
+		return buffer.get(offset + RESULT);
+	}
+
+	/**
+	 * Returns the score of a record
+	 * @param buffer little-endian buffer holding the record
+	 * @param offset index of the first byte of the record
+	 * @return the score in centipawns from the point of view of the side to move
+	 */
+	public static int getScore(ByteBuffer buffer, int offset){
+		return buffer.getShort(offset + SCORE);
+	}
+
+	/**
+	 * Returns the position of a record in Forsyth-Edwards Notation
+	 * @param buffer little-endian buffer holding the record
+	 * @param offset index of the first byte of the record
+	 * @return the FEN string of the position
+	 */
+	public static String toFen(ByteBuffer buffer, int offset){
+		long occupied = buffer.getLong(offset);
+		char[] squares = new char[64];
+		int i = 0;
+		for (long rest = occupied; rest != 0; rest &= rest - 1, i++){
+			long nibble = buffer.getLong(offset + (i < 16 ? 8 : 16)) >>> (4 * (i & 15)) & 15;
+			char c = "PNBRQK".charAt((int) (nibble & 7));
+			squares[Long.numberOfTrailingZeros(rest)] = (nibble & 8) != 0 ? c : Character.toLowerCase(c);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--){
+			int empty = 0;
+			for (int file = 0; file < 8; file++){
+				char c = squares[rank * 8 + file];
+				if (c == 0){
+					empty++;
+					continue;
+				}
+				if (empty > 0){
+					sb.append(empty);
+					empty = 0;
+				}
+				sb.append(c);
+			}
+			if (empty > 0){
+				sb.append(empty);
+			}
+			if (rank > 0){
+				sb.append('/');
+			}
+		}
+		int flags = buffer.get(offset + FLAGS);
+		sb.append((flags & 1) != 0 ? " w " : " b ");
+		int rights = flags >>> 1 & 15;
+		if (rights == 0){
+			sb.append('-');
+		}
+		sb.append((rights & Zobrist.WHITE_KING_SIDE) != 0 ? "K" : "").append((rights & Zobrist.WHITE_QUEEN_SIDE) != 0 ? "Q" : "")
+				.append((rights & Zobrist.BLACK_KING_SIDE) != 0 ? "k" : "").append((rights & Zobrist.BLACK_QUEEN_SIDE) != 0 ? "q" : "");
+		sb.append(" - ").append(buffer.get(offset + HALFMOVE) & 0xFF).append(' ').append(buffer.getShort(offset + FULLMOVE));
+		return sb.toString();
+	}
+}
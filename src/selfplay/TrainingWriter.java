@@ -0,0 +1,88 @@
+package selfplay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes training data to a file through a file channel. The file starts with a header of 12 bytes,
+ * MAGIC, VERSION and the record size, followed by TrainingRecords.
+ * Several threads may write to the same file: each fills its own buffer with the records of whole games
+ * and hands the buffer over with write, so the records of a game are never interleaved with another's.
+ *
+ */
+public class TrainingWriter implements Closeable {
+
+	/**
+	 * First four bytes of a training data file, "C48T" in little-endian order
+	 */
+	public static final int MAGIC = 0x54383443;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 12;
+
+	private FileChannel channel;
+	private long records;
+
+	/**
+	 * Constructor for a writer to a new file, replacing any file at that path
+	 * @param path path of the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public TrainingWriter(Path path) throws IOException{
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = newBuffer(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(TrainingRecord.RECORD_SIZE);
+		header.flip();
+		writeFully(header);
+	}
+
+	/**
+	 * Creates a buffer in the byte order of the file
+	 * @param capacity capacity of the buffer in bytes
+	 * @return the buffer
+	 */
+	public static ByteBuffer newBuffer(int capacity){
+		return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Writes the records held in a buffer, from its position to its limit
+	 * @param buffer buffer of whole records, it is left with no bytes remaining
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void write(ByteBuffer buffer) throws IOException{
+		records += buffer.remaining() / TrainingRecord.RECORD_SIZE;
+		writeFully(buffer);
+	}
+
+	/**
+	 * Returns the number of records written
+	 * @return the number of records
+	 */
+	public synchronized long getRecords(){
+		return records;
+	}
+
+	/**
+	 * Writes a buffer to the channel until it has no bytes remaining
+	 * @param buffer buffer to write
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException{
+		while (buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Closes the file
+	 */
+	@Override
+	public synchronized void close() throws IOException{
+		channel.close();
+	}
+}
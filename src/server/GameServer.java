@@ -0,0 +1,153 @@
+package server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Fen;
+
+/**
+ * Hosts any number of games in one process. Every game is a GameSession, and all of the sessions share
+ * a fixed pool of worker threads, one per processor: a session only takes a thread while it has moves to play,
+ * so thousands of games waiting for their players cost their boards and nothing more.
+ * Moves are submitted through submit, which returns at once with a future of the reply.
+ *
+ */
+public class GameServer {
+
+	/**
+	 * Default number of games that may be hosted at once
+	 */
+	public static final int DEFAULT_MAX_SESSIONS = 100000;
+
+	private final ExecutorService workers;
+	private final ConcurrentHashMap<Long, GameSession> sessions;
+	private final AtomicInteger reserved;
+	private final AtomicLong nextId;
+	private final int maxSessions;
+
+	/**
+	 * Constructor for a server with one worker thread per processor and the default limit of games
+	 */
+	public GameServer(){
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_SESSIONS);
+	}
+
+	/**
+	 * Constructor for a server with a given number of worker threads and limit of games
+	 * @param threads number of worker threads
+	 * @param maxSessions most games that may be hosted at once
+	 */
+	public GameServer(int threads, int maxSessions){
+		final AtomicInteger count = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "game-worker-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.sessions = new ConcurrentHashMap<Long, GameSession>();
+		this.reserved = new AtomicInteger();
+		this.nextId = new AtomicLong(1);
+		this.maxSessions = maxSessions;
+	}
+
+	/**
+	 * Starts a game from the standard starting position
+	 * @return the new session
+	 * @throws IllegalStateException if the server already hosts its limit of games
+	 */
+	public GameSession newGame(){
+		return newGame(Fen.START_POSITION);
+	}
+
+	/**
+	 * Starts a game from a given position
+	 * @param fen the position in Forsyth-Edwards Notation
+	 * @return the new session
+	 * @throws IllegalArgumentException if the FEN string is malformed
+	 * @throws IllegalStateException if the server already hosts its limit of games
+	 */
+	public GameSession newGame(String fen){
+		// A slot is reserved before the session is made, so concurrent callers cannot go past the limit
+		int count;
+		do{
+			count = reserved.get();
+			if (count >= maxSessions){
+				throw new IllegalStateException("Too many games: " + maxSessions);
+			}
+		}while (!reserved.compareAndSet(count, count + 1));
+		GameSession session;
+		try{
+			session = new GameSession(nextId.getAndIncrement(), fen, workers);
+		}catch (RuntimeException e){
+			reserved.decrementAndGet();
+			throw e;
+		}
+		sessions.put(session.getId(), session);
+		return session;
+	}
+
+	/**
+	 * Returns a session
+	 * @param id identifier of the session
+	 * @return the session, null if there is no session with that identifier
+	 */
+	public GameSession getSession(long id){
+		return sessions.get(id);
+	}
+
+	/**
+	 * Submits a move to a game
+	 * @param id identifier of the session
+	 * @param move the move in coordinate notation, such as e2e4 or e7e8q
+	 * @return a future of the reply, as by GameSession.play, or "unknown" if there is no such session
+	 */
+	public CompletableFuture<String> submit(long id, String move){
+		GameSession session = sessions.get(id);
+		if (session == null){
+			return CompletableFuture.completedFuture("unknown");
+		}
+		return session.play(move);
+	}
+
+	/**
+	 * Ends a game and frees its session
+	 * @param id identifier of the session
+	 * @return the session removed, null if there was no session with that identifier
+	 */
+	public GameSession close(long id){
+		GameSession session = sessions.remove(id);
+		if (session != null){
+			reserved.decrementAndGet();
+		}
+		return session;
+	}
+
+	/**
+	 * Returns the number of games hosted
+	 * @return the number of sessions
+	 */
+	public int getSessionCount(){
+		return sessions.size();
+	}
+
+	/**
+	 * Stops the worker threads once the moves already submitted are played and closes every session
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	public void shutdown() throws InterruptedException{
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+		for (Long id : sessions.keySet()){
+			close(id);
+		}
+	}
+}
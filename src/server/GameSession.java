@@ -0,0 +1,235 @@
+package server;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import chess.GameController;
+import chess.GameEvent;
+import model.Board;
+import model.FileRank;
+import pgn.PgnGame;
+
+/**
+ * One game hosted by a GameServer, played by a GameController.
+ * Commands for a session are queued and run one at a time on the server's worker threads,
+ * so a session never needs a thread of its own while it waits for a move, and its board is only
+ * ever touched by one thread at a time.
+ * A game is limited to MAX_PLIES moves, so the memory a session uses is bounded.
+ *
+ */
+public class GameSession {
+
+	/**
+	 * Most moves a game may have, the game is drawn when it is reached
+	 */
+	public static final int MAX_PLIES = 1024;
+
+	private final long id;
+	private final GameController game;
+	private final Executor executor;
+	private final Queue<Command> commands;
+	private final AtomicBoolean scheduled;
+	private final SessionMetrics metrics;
+
+	/**
+	 * Constructor for a session starting from a given position
+	 * @param id identifier of the session
+	 * @param startFen position the game starts from
+	 * @param executor threads the commands of the session run on
+	 * @throws IllegalArgumentException if the FEN string is malformed
+	 */
+	GameSession(long id, String startFen, Executor executor){
+		this.id = id;
+		this.game = new GameController(startFen);
+		this.executor = executor;
+		this.commands = new ConcurrentLinkedQueue<Command>();
+		this.scheduled = new AtomicBoolean();
+		this.metrics = new SessionMetrics();
+	}
+
+	/**
+	 * Returns the identifier of the session
+	 * @return the identifier
+	 */
+	public long getId(){
+		return id;
+	}
+
+	/**
+	 * Returns the result of the game
+	 * @return PgnGame.WHITE_WINS, BLACK_WINS, DRAW or UNFINISHED
+	 */
+	public String getResult(){
+		return game.getResult();
+	}
+
+	/**
+	 * Returns the latency metrics of the session
+	 * @return the metrics
+	 */
+	public SessionMetrics getMetrics(){
+		return metrics;
+	}
+
+	/**
+	 * Submits a move in coordinate notation, such as e2e4 or e7e8q
+	 * @param move the move
+	 * @return a future completed with the reply: "ok", "ok" followed by the result if the move ended the game,
+	 * or "illegal" or "over" if the move was not played
+	 */
+	public CompletableFuture<String> play(final String move){
+		final long submitted = System.nanoTime();
+		final CompletableFuture<String> reply = new CompletableFuture<String>();
+		submit(new Command(reply){
+			@Override
+			void execute() {
+				String answer;
+				try{
+					answer = apply(move);
+				}catch (RuntimeException e){
+					answer = "illegal";
+				}
+				metrics.record(System.nanoTime() - submitted);
+				reply.complete(answer);
+			}
+		});
+		return reply;
+	}
+
+	/**
+	 * Submits a request for the current position
+	 * @return a future completed with the position in Forsyth-Edwards Notation
+	 */
+	public CompletableFuture<String> fen(){
+		final CompletableFuture<String> reply = new CompletableFuture<String>();
+		submit(new Command(reply){
+			@Override
+			void execute() {
+				reply.complete(game.getBoard().toFen());
+			}
+		});
+		return reply;
+	}
+
+	/**
+	 * Submits a request for the game in Portable Game Notation
+	 * @return a future completed with the game
+	 */
+	public CompletableFuture<PgnGame> game(){
+		final CompletableFuture<PgnGame> reply = new CompletableFuture<PgnGame>();
+		submit(new Command(reply){
+			@Override
+			void execute() {
+				reply.complete(game.toPgn());
+			}
+		});
+		return reply;
+	}
+
+	/**
+	 * Plays a move if it is legal and ends the game as a draw under the fifty-move rule, on a threefold repetition or when it is too long
+	 * @param move the move in coordinate notation
+	 * @return the reply to send
+	 */
+	private String apply(String move){
+		if (game.isOver()){
+			return "over";
+		}
+		if (move.length() != 4 && move.length() != 5){
+			return "illegal";
+		}
+		Board board = game.getBoard();
+		FileRank from = board.getFileRankAt(move.charAt(0), move.charAt(1) - '0');
+		FileRank to = board.getFileRankAt(move.charAt(2), move.charAt(3) - '0');
+		if (game.play(from, to, move.length() == 5 ? move.charAt(4) : (char) 0) == GameEvent.ILLEGAL){
+			return "illegal";
+		}
+		if (!game.isOver() && (game.canClaimDraw() || game.getPlies() >= MAX_PLIES)){
+			game.adjudicateDraw();
+		}
+		return game.isOver() ? "ok " + game.getResult() : "ok";
+	}
+
+	/**
+	 * Queues a command and makes sure the session is scheduled to run its queue
+	 * @param command command to run
+	 */
+	private void submit(Command command){
+		commands.add(command);
+		schedule();
+	}
+
+	/**
+	 * Schedules the session on the executor unless it is already scheduled or running
+	 * If the executor no longer takes work, every queued command is failed instead of being left waiting
+	 */
+	private void schedule(){
+		if (!commands.isEmpty() && scheduled.compareAndSet(false, true)){
+			try{
+				executor.execute(new Runnable(){
+					@Override
+					public void run() {
+						drain();
+					}
+				});
+			}catch (RejectedExecutionException e){
+				Command command;
+				while ((command = commands.poll()) != null){
+					command.reply.completeExceptionally(e);
+				}
+				scheduled.set(false);
+				schedule();
+			}
+		}
+	}
+
+	/**
+	 * Runs the queued commands one at a time, then gives up the worker thread
+	 */
+	private void drain(){
+		try{
+			Command command;
+			while ((command = commands.poll()) != null){
+				command.run();
+			}
+		}finally{
+			scheduled.set(false);
+		}
+		// A command queued after the last poll but before the flag was cleared must not be left waiting
+		schedule();
+	}
+
+	/**
+	 * A queued command with the future of its reply, which is completed exceptionally if the command throws
+	 */
+	private abstract static class Command implements Runnable {
+
+		private final CompletableFuture<?> reply;
+
+		/**
+		 * Constructor for a command answering through a given future
+		 * @param reply future of the reply
+		 */
+		Command(CompletableFuture<?> reply){
+			this.reply = reply;
+		}
+
+		/**
+		 * Does the work of the command and completes its reply
+		 */
+		abstract void execute();
+
+		@Override
+		public void run(){
+			try{
+				execute();
+			}catch (RuntimeException e){
+				reply.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import model.Fen;
+
+/**
+ * Serves a GameServer over a socket on the loopback interface, so that players in other processes can take part.
+ * A single thread multiplexes every connection with a selector, and a connection may drive any number of games.
+ * The protocol is one command per line, each answered by one line, though answers to moves
+ * of different games may come back in a different order than the moves were sent:
+ *
+ * NEW [fen] - starts a game, answered by "game id"
+ * MOVE id move - plays a move in coordinate notation, answered by "id ok", "id ok result", "id illegal" or "id over"
+ * FEN id - answered by "id" and the position
+ * STATS id - answered by "id" and the latency metrics of the game
+ * CLOSE id - ends a game, answered by "id closed"
+ *
+ * The games a connection started are ended when the connection is closed.
+ */
+public class LoopbackServer implements Runnable {
+
+	/**
+	 * Default port to listen on
+	 */
+	public static final int DEFAULT_PORT = 4848;
+
+	private static final int MAX_LINE = 256;
+
+	private final GameServer games;
+	private final Selector selector;
+	private final ServerSocketChannel listener;
+	private final Queue<Connection> pending;
+	private volatile boolean running;
+
+	/**
+	 * Constructor for a server listening on a given port of the loopback interface
+	 * @param games server hosting the games
+	 * @param port port to listen on, 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public LoopbackServer(GameServer games, int port) throws IOException{
+		this.games = games;
+		this.selector = Selector.open();
+		this.listener = ServerSocketChannel.open();
+		this.pending = new ConcurrentLinkedQueue<Connection>();
+		listener.bind(new InetSocketAddress("127.0.0.1", port));
+		listener.configureBlocking(false);
+		listener.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 * @return the port
+	 * @throws IOException if the socket is closed
+	 */
+	public int getPort() throws IOException{
+		return ((InetSocketAddress) listener.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Accepts connections and handles their commands until stop is called
+	 */
+	@Override
+	public void run(){
+		running = true;
+		try{
+			while (running){
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					try{
+						if (!key.isValid()){
+							continue;
+						}
+						if (key.isAcceptable()){
+							accept();
+						}
+						if (key.isValid() && key.isReadable()){
+							read(key);
+						}
+						if (key.isValid() && key.isWritable()){
+							write(key);
+						}
+					}catch (IOException e){
+						disconnect(key);
+					}
+				}
+				// Only the connections answered since the last pass are waiting to write
+				Connection connection;
+				while ((connection = pending.poll()) != null){
+					connection.queued.set(false);
+					if (connection.key.isValid() && !connection.replies.isEmpty()){
+						connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+			}
+		}catch (IOException e){
+			System.out.println("Server stopped: " + e.getMessage());
+		}finally{
+			for (SelectionKey key : selector.keys()){
+				disconnect(key);
+			}
+			close(selector);
+			close(listener);
+		}
+	}
+
+	/**
+	 * Stops the server, closing every connection
+	 */
+	public void stop(){
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Closes a connection and ends the games it started
+	 * @param key key of the connection, or of the listening socket
+	 */
+	private void disconnect(SelectionKey key){
+		key.cancel();
+		close(key.channel());
+		Connection connection = (Connection) key.attachment();
+		if (connection != null){
+			for (long id : connection.games){
+				games.close(id);
+			}
+			connection.games.clear();
+		}
+	}
+
+	/**
+	 * Closes a connection, the listening socket or the selector
+	 * @param closeable what to close
+	 */
+	private static void close(Closeable closeable){
+		try{
+			closeable.close();
+		}catch (IOException e){
+			System.out.println("Cannot close " + closeable + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Accepts a pending connection
+	 * @throws IOException if the connection cannot be set up
+	 */
+	private void accept() throws IOException{
+		SocketChannel channel = listener.accept();
+		if (channel == null){
+			return;
+		}
+		channel.configureBlocking(false);
+		Connection connection = new Connection();
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	/**
+	 * Reads from a connection and handles every complete line
+	 * @param key key of the connection
+	 * @throws IOException if the connection is closed or broken
+	 */
+	private void read(SelectionKey key) throws IOException{
+		Connection connection = (Connection) key.attachment();
+		int n = ((SocketChannel) key.channel()).read(connection.in);
+		if (n < 0){
+			throw new IOException("Connection closed");
+		}
+		ByteBuffer in = connection.in;
+		in.flip();
+		int start = 0;
+		for (int i = 0; i < in.limit(); i++){
+			if (in.get(i) == '\n'){
+				byte[] line = new byte[i - start];
+				for (int j = 0; j < line.length; j++){
+					line[j] = in.get(start + j);
+				}
+				handle(connection, new String(line, StandardCharsets.US_ASCII).trim());
+				start = i + 1;
+			}
+		}
+		in.position(start);
+		in.compact();
+		if (!in.hasRemaining()){
+			throw new IOException("Line too long");
+		}
+	}
+
+	/**
+	 * Writes as many queued answers to a connection as it takes
+	 * @param key key of the connection
+	 * @throws IOException if the connection is closed or broken
+	 */
+	private void write(SelectionKey key) throws IOException{
+		Connection connection = (Connection) key.attachment();
+		SocketChannel channel = (SocketChannel) key.channel();
+		while (true){
+			if (connection.out == null || !connection.out.hasRemaining()){
+				String reply = connection.replies.poll();
+				if (reply == null){
+					key.interestOps(SelectionKey.OP_READ);
+					return;
+				}
+				connection.out = ByteBuffer.wrap((reply + "\n").getBytes(StandardCharsets.US_ASCII));
+			}
+			channel.write(connection.out);
+			if (connection.out.hasRemaining()){
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Handles one command of a connection
+	 * @param connection connection the command came from
+	 * @param line the command
+	 */
+	private void handle(final Connection connection, String line){
+		if (line.isEmpty()){
+			return;
+		}
+		String[] tokens = line.split("\\s+", 3);
+		try{
+			switch(tokens[0].toUpperCase()){
+			case "NEW":
+				GameSession session = games.newGame(line.length() > 3 ? line.substring(3).trim() : Fen.START_POSITION);
+				connection.games.add(session.getId());
+				reply(connection, "game " + session.getId());
+				break;
+			case "MOVE":
+				final long id = Long.parseLong(tokens[1]);
+				later(connection, games.submit(id, tokens[2]), id);
+				break;
+			case "FEN":
+				GameSession position = find(tokens[1]);
+				later(connection, position.fen(), position.getId());
+				break;
+			case "STATS":
+				GameSession stats = find(tokens[1]);
+				reply(connection, stats.getId() + " " + stats.getResult() + " " + stats.getMetrics());
+				break;
+			case "CLOSE":
+				long closed = Long.parseLong(tokens[1]);
+				games.close(closed);
+				connection.games.remove(closed);
+				reply(connection, tokens[1] + " closed");
+				break;
+			default:
+				reply(connection, "error Unknown command: " + tokens[0]);
+				break;
+			}
+		}catch (RuntimeException e){
+			reply(connection, "error " + (e.getMessage() == null ? line : e.getMessage()));
+		}
+	}
+
+	/**
+	 * Returns the session named by a command
+	 * @param id the identifier as written in the command
+	 * @return the session
+	 * @throws IllegalArgumentException if there is no such session
+	 */
+	private GameSession find(String id){
+		GameSession session = games.getSession(Long.parseLong(id));
+		if (session == null){
+			throw new IllegalArgumentException("Unknown game: " + id);
+		}
+		return session;
+	}
+
+	/**
+	 * Queues the answer of a command once a worker has completed it
+	 * @param connection connection to answer
+	 * @param future future of the answer
+	 * @param id identifier of the game, written before the answer
+	 */
+	private void later(final Connection connection, CompletableFuture<String> future, final long id){
+		future.whenComplete(new BiConsumer<String, Throwable>(){
+			@Override
+			public void accept(String answer, Throwable error) {
+				reply(connection, id + " " + (error == null ? answer : "error " + error.getMessage()));
+			}
+		});
+	}
+
+	/**
+	 * Queues an answer and, unless the connection is already waiting for the selector, queues the connection and wakes the selector
+	 * May be called from any thread
+	 * @param connection connection to answer
+	 * @param answer the answer
+	 */
+	private void reply(Connection connection, String answer){
+		connection.replies.add(answer);
+		if (connection.queued.compareAndSet(false, true)){
+			pending.add(connection);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * The buffers of one connection and the games it started, only touched by the selector thread,
+	 * and the answers queued for it by any thread
+	 */
+	private static class Connection {
+		private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+		private final Set<Long> games = new HashSet<Long>();
+		private final Queue<String> replies = new ConcurrentLinkedQueue<String>();
+		private final AtomicBoolean queued = new AtomicBoolean();
+		private SelectionKey key;
+		private ByteBuffer out;
+	}
+
+	/**
+	 * Runs a game server on the loopback interface
+	 * @param args optional port, DEFAULT_PORT if not given
+	 * @throws IOException if the port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		LoopbackServer server = new LoopbackServer(new GameServer(), port);
+		System.out.println("Listening on 127.0.0.1:" + server.getPort());
+		server.run();
+	}
+}
@@ -0,0 +1,91 @@
+package server;
+
+/**
+ * Latency figures of the moves handled by one game session, from the moment a move is submitted
+ * until its reply is ready, so time spent waiting for a worker thread is included.
+ * Latencies are counted in a fixed histogram of power-of-two microsecond buckets,
+ * so the memory used does not grow with the number of moves.
+ *
+ */
+public class SessionMetrics {
+
+	private static final int BUCKETS = 32;
+
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+	private long[] histogram;
+
+	/**
+	 * Constructor for empty metrics
+	 */
+	public SessionMetrics(){
+		histogram = new long[BUCKETS];
+	}
+
+	/**
+	 * Records the latency of one move
+	 * @param nanos latency in nanoseconds
+	 */
+	public synchronized void record(long nanos){
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+		long micros = Math.max(1, nanos / 1000);
+		histogram[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros))]++;
+	}
+
+	/**
+	 * Returns the number of moves recorded
+	 * @return the number of moves
+	 */
+	public synchronized long getCount(){
+		return count;
+	}
+
+	/**
+	 * Returns the mean latency
+	 * @return the mean latency in microseconds, 0 if no moves were recorded
+	 */
+	public synchronized long getMeanMicros(){
+		return count == 0 ? 0 : totalNanos / count / 1000;
+	}
+
+	/**
+	 * Returns the highest latency
+	 * @return the highest latency in microseconds
+	 */
+	public synchronized long getMaxMicros(){
+		return maxNanos / 1000;
+	}
+
+	/**
+	 * Returns an upper bound of a percentile of the latencies
+	 * @param percentile percentile between 0 and 100
+	 * @return the upper edge, in microseconds, of the bucket that holds the percentile, 0 if no moves were recorded
+	 */
+	public synchronized long getPercentileMicros(double percentile){
+		if (count == 0){
+			return 0;
+		}
+		long wanted = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++){
+			seen += histogram[i];
+			if (seen >= wanted){
+				return Math.min(2L << i, Math.max(1, maxNanos / 1000));
+			}
+		}
+		return maxNanos / 1000;
+	}
+
+	/**
+	 * Returns the metrics on one line
+	 * @return count, mean, 50th and 99th percentiles and maximum
+	 */
+	@Override
+	public synchronized String toString(){
+		return "moves " + count + " mean " + getMeanMicros() + "us p50 " + getPercentileMicros(50)
+				+ "us p99 " + getPercentileMicros(99) + "us max " + getMaxMicros() + "us";
+	}
+}
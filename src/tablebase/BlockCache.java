@@ -0,0 +1,114 @@
+package tablebase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of decompressed tablebase blocks, shared by all tablebases of a directory.
+ * Only the blocks probed recently are held in memory, however large the tablebases are.
+ *
+ * The cache is split into stripes by block id, each with its own lock and its own share of the capacity,
+ * so searching threads probing different blocks do not wait for each other.
+ *
+ */
+public class BlockCache {
+
+	/**
+	 * Number of stripes, a power of two
+	 */
+	private static final int STRIPES = 16;
+
+	private final Stripe[] stripes;
+
+	/**
+	 * Constructor for a cache holding a given number of blocks
+	 * @param capacity most blocks held at once, at least 1, divided evenly between the stripes
+	 */
+	public BlockCache(int capacity){
+		int count = Math.min(STRIPES, Integer.highestOneBit(Math.max(1, capacity)));
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++){
+			stripes[i] = new Stripe((Math.max(1, capacity) + i) / count);
+		}
+	}
+
+	/**
+	 * Returns a block if it is cached
+	 * @param id identifier of the tablebase in the high 32 bits and of the block in the low 32 bits
+	 * @return the decompressed block, null if it is not cached
+	 */
+	public byte[] get(long id){
+		Stripe stripe = stripe(id);
+		synchronized (stripe){
+			stripe.probes++;
+			byte[] block = stripe.blocks.get(id);
+			if (block != null){
+				stripe.hits++;
+			}
+			return block;
+		}
+	}
+
+	/**
+	 * Adds a block, evicting the least recently used block of its stripe if the stripe is full
+	 * @param id identifier of the tablebase in the high 32 bits and of the block in the low 32 bits
+	 * @param block the decompressed block
+	 */
+	public void put(long id, byte[] block){
+		Stripe stripe = stripe(id);
+		synchronized (stripe){
+			stripe.blocks.put(id, block);
+		}
+	}
+
+	/**
+	 * Returns the share of lookups that found their block in the cache
+	 * @return the hit rate, from 0 to 1
+	 */
+	public double getHitRate(){
+		long probes = 0;
+		long hits = 0;
+		for (Stripe stripe : stripes){
+			synchronized (stripe){
+				probes += stripe.probes;
+				hits += stripe.hits;
+			}
+		}
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	/**
+	 * Returns the stripe holding a block
+	 * Consecutive blocks of a tablebase and the same block of different tablebases land in different stripes
+	 * @param id identifier of the block
+	 * @return the stripe
+	 */
+	private Stripe stripe(long id){
+		return stripes[(int) ((id ^ id >>> 32) * 0x9E3779B97F4A7C15L >>> 32) & (stripes.length - 1)];
+	}
+
+	/**
+	 * One part of the cache, with its own blocks in least recently used order, guarded by its own lock
+	 */
+	private static final class Stripe {
+
+		private final LinkedHashMap<Long, byte[]> blocks;
+		private long probes;
+		private long hits;
+
+		/**
+		 * Constructor for an empty stripe
+		 * @param capacity most blocks held by the stripe, at least 1
+		 */
+		Stripe(final int capacity){
+			this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+	}
+}
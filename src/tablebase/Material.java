@@ -0,0 +1,281 @@
+package tablebase;
+
+import java.util.Arrays;
+
+import model.Bitboards;
+import model.Board;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * The pieces of an endgame, such as KRvK: the pieces of the first side, then those of the second side,
+ * each in the order King, Queen, Rook, Bishop, Knight, Pawn. A tablebase is made for one material, with
+ * the first side playing White. Positions where the sides are the other way round are probed with
+ * the colors swapped and the board mirrored.
+ *
+ * Positions are indexed by the side to move and the squares of the pieces in the order of the material,
+ * pieces of the same type by ascending square: index = (first side to move ? 0 : 1) + 2 * sum of square_k * 64^k.
+ *
+ */
+public class Material {
+
+	private static final String LETTERS = "PNBRQK";
+	private static final PieceType[] ORDER = {PieceType.KING, PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN};
+
+	private final int[] counts;
+
+	/**
+	 * Constructor for a material from its piece counts
+	 * @param counts number of pieces of each side and type, indexed by 6 * side + PieceType ordinal, side 0 being the first
+	 */
+	private Material(int[] counts){
+		this.counts = counts;
+	}
+
+	/**
+	 * Reads a material from its name
+	 * @param name name such as KRvK, each side having exactly one King
+	 * @return the material
+	 * @throws IllegalArgumentException if the name is malformed
+	 */
+	public static Material parse(String name){
+		String[] sides = name.toUpperCase().split("V");
+		if (sides.length != 2){
+			throw new IllegalArgumentException("Invalid material: " + name);
+		}
+		int[] counts = new int[12];
+		for (int side = 0; side < 2; side++){
+			for (char c : sides[side].toCharArray()){
+				int type = LETTERS.indexOf(c);
+				if (type < 0){
+					throw new IllegalArgumentException("Invalid material: " + name);
+				}
+				counts[6 * side + type]++;
+			}
+			if (counts[6 * side + PieceType.KING.ordinal()] != 1){
+				throw new IllegalArgumentException("Each side needs one King: " + name);
+			}
+		}
+		return new Material(counts);
+	}
+
+	/**
+	 * Returns the material on a board
+	 * @param board board holding the position
+	 * @param first color of the side to put first
+	 * @return the material
+	 */
+	public static Material of(Board board, Color first){
+		Bitboards bb = board.getBitboards();
+		int[] counts = new int[12];
+		for (PieceType type : PieceType.values()){
+			counts[type.ordinal()] = Long.bitCount(bb.getPieces(first, type));
+			counts[6 + type.ordinal()] = Long.bitCount(bb.getPieces(other(first), type));
+		}
+		return new Material(counts);
+	}
+
+	/**
+	 * Returns the signature of the material on a board, the same as getSignature of Material.of(board, first)
+	 * without building the material
+	 * @param board board holding the position
+	 * @param first color of the side to put first
+	 * @return the signature
+	 */
+	public static long signature(Board board, Color first){
+		Bitboards bb = board.getBitboards();
+		long signature = 0L;
+		for (PieceType type : PieceType.values()){
+			signature |= (long) Long.bitCount(bb.getPieces(first, type)) << (4 * type.ordinal());
+			signature |= (long) Long.bitCount(bb.getPieces(other(first), type)) << (4 * (6 + type.ordinal()));
+		}
+		return signature;
+	}
+
+	/**
+	 * Returns a number identifying the material: four bits per piece count, in the order of the counts
+	 * Two materials have the same signature exactly when they are equal
+	 * @return the signature, never 0 since both sides have a King
+	 */
+	public long getSignature(){
+		long signature = 0L;
+		for (int i = 0; i < counts.length; i++){
+			signature |= (long) counts[i] << (4 * i);
+		}
+		return signature;
+	}
+
+	/**
+	 * Returns the number of pieces of a side and type
+	 * @param side 0 for the first side, 1 for the second
+	 * @param type type of the pieces
+	 * @return the number of pieces
+	 */
+	public int getCount(int side, PieceType type){
+		return counts[6 * side + type.ordinal()];
+	}
+
+	/**
+	 * Returns the number of pieces of both sides
+	 * @return the number of pieces
+	 */
+	public int getPieceCount(){
+		int n = 0;
+		for (int count : counts){
+			n += count;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of positions of a tablebase of this material, for both sides to move
+	 * @return 2 * 64^n
+	 */
+	public long getSize(){
+		return 2L << (6 * getPieceCount());
+	}
+
+	/**
+	 * Returns the material with the sides swapped
+	 * @return the swapped material
+	 */
+	public Material swap(){
+		int[] swapped = new int[12];
+		System.arraycopy(counts, 6, swapped, 0, 6);
+		System.arraycopy(counts, 0, swapped, 6, 6);
+		return new Material(swapped);
+	}
+
+	/**
+	 * Returns the index of the position on a board in a tablebase of this material
+	 * @param board board holding the position, which must have this material
+	 * @param first color of the side that plays White in the tablebase
+	 * @return the index
+	 */
+	public long index(Board board, Color first){
+		Bitboards bb = board.getBitboards();
+		// The board is mirrored when Black plays the first side, so that its pieces stand where White's would
+		boolean mirror = first == Color.BLACK;
+		long index = board.getSideToMove() == first ? 0 : 1;
+		int shift = 0;
+		for (int side = 0; side < 2; side++){
+			Color color = side == 0 ? first : other(first);
+			for (PieceType type : ORDER){
+				long pieces = bb.getPieces(color, type);
+				if (mirror){
+					pieces = Long.reverseBytes(pieces);
+				}
+				for (; pieces != 0; pieces &= pieces - 1){
+					index |= (long) Long.numberOfTrailingZeros(pieces) << (shift + 1);
+					shift += 6;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of a position given by its pieces and their squares
+	 * Pieces of the same type may be given in any order, the tablebase holds every order
+	 * @param pieces for each piece, its side (0 or 1) times 8 plus its PieceType ordinal, matching this material
+	 * @param squares square of each piece, in the same order
+	 * @param count number of pieces
+	 * @param firstToMove true if the first side is to move
+	 * @return the index
+	 */
+	public long index(int[] pieces, int[] squares, int count, boolean firstToMove){
+		long index = firstToMove ? 0 : 1;
+		int shift = 1;
+		for (int side = 0; side < 2; side++){
+			for (PieceType type : ORDER){
+				int code = side * 8 + type.ordinal();
+				for (int i = 0; i < count; i++){
+					if (pieces[i] == code){
+						index |= (long) squares[i] << shift;
+						shift += 6;
+					}
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the material of a set of pieces
+	 * @param pieces for each piece, its side (0 or 1) times 8 plus its PieceType ordinal
+	 * @param count number of pieces
+	 * @return the material
+	 */
+	public static Material of(int[] pieces, int count){
+		int[] counts = new int[12];
+		for (int i = 0; i < count; i++){
+			counts[6 * (pieces[i] >>> 3) + (pieces[i] & 7)]++;
+		}
+		return new Material(counts);
+	}
+
+	/**
+	 * Returns the pieces of the material in index order
+	 * @return for each piece, its side (0 or 1) times 8 plus its PieceType ordinal
+	 */
+	public int[] getPieces(){
+		int[] pieces = new int[getPieceCount()];
+		int k = 0;
+		for (int side = 0; side < 2; side++){
+			for (PieceType type : ORDER){
+				for (int i = 0; i < counts[6 * side + type.ordinal()]; i++){
+					pieces[k++] = side * 8 + type.ordinal();
+				}
+			}
+		}
+		return pieces;
+	}
+
+	/**
+	 * Returns the color opposite to a given one
+	 * @param color a color
+	 * @return the other color
+	 */
+	private static Color other(Color color){
+		return color == Color.WHITE ? Color.BLACK : Color.WHITE;
+	}
+
+	/**
+	 * Returns whether another object is the same material
+	 * @param o object to compare to
+	 * @return true if o is a Material with the same pieces on the same sides
+	 */
+	@Override
+	public boolean equals(Object o){
+		return o instanceof Material && Arrays.equals(counts, ((Material) o).counts);
+	}
+
+	/**
+	 * Returns a hash code of the material
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode(){
+		return Arrays.hashCode(counts);
+	}
+
+	/**
+	 * Returns the name of the material
+	 * @return the name, such as KRvK
+	 */
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		for (int side = 0; side < 2; side++){
+			if (side == 1){
+				sb.append('v');
+			}
+			for (PieceType type : ORDER){
+				for (int i = 0; i < counts[6 * side + type.ordinal()]; i++){
+					sb.append(LETTERS.charAt(type.ordinal()));
+				}
+			}
+		}
+		return sb.toString();
+	}
+}
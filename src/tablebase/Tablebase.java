@@ -0,0 +1,227 @@
+package tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The tablebase of one material, read from a file that is memory mapped. The value of every position
+ * is one byte: 0 for a draw, n from 1 to 127 for a win of the side to move with n plies to the next capture,
+ * Pawn move or mate (DTZ), -n-1 for a loss with n plies to go (-1 when checkmated), and ILLEGAL for
+ * index values that are not positions the side to move can be in.
+ *
+ * The values are split into blocks of BLOCK_SIZE positions, each compressed on its own with Deflate,
+ * so a probe only inflates the block it needs. Inflated blocks are kept in a BlockCache.
+ * Every thread that probes gets its own Inflater and input buffer, reused for every block it inflates
+ * and released when the tablebase is closed.
+ *
+ * The file is little endian: the magic number "C48B", a version, the length and ASCII name of the material,
+ * the block size, the number of blocks, the file position of every block and of the end of the last one,
+ * then the blocks.
+ *
+ */
+public class Tablebase implements Closeable {
+
+	public static final int MAGIC = 0x42383443;
+	public static final int VERSION = 1;
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	/**
+	 * Extension of tablebase files
+	 */
+	public static final String EXTENSION = ".c48tb";
+
+	/**
+	 * Value of an index that is not a legal position
+	 */
+	public static final byte ILLEGAL = -128;
+
+	private final Material material;
+	private final int id;
+	private final BlockCache cache;
+	private final FileChannel channel;
+	private final MappedByteBuffer data;
+	private final int blockSize;
+	private final int blockCount;
+	private final int offsets;
+	private final List<Decoder> decoders;
+	private final ThreadLocal<Decoder> decoder;
+
+	/**
+	 * Constructor for a tablebase read from a file
+	 * @param path path of the file
+	 * @param id number identifying the tablebase in the cache
+	 * @param cache cache of inflated blocks
+	 * @throws IOException if the file cannot be mapped or is not a tablebase
+	 */
+	public Tablebase(Path path, int id, BlockCache cache) throws IOException{
+		this.id = id;
+		this.cache = cache;
+		this.decoders = new ArrayList<Decoder>();
+		this.decoder = new ThreadLocal<Decoder>(){
+			@Override
+			protected Decoder initialValue() {
+				Decoder created = new Decoder();
+				synchronized (decoders){
+					decoders.add(created);
+				}
+				return created;
+			}
+		};
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			data.order(ByteOrder.LITTLE_ENDIAN);
+			if (data.getInt() != MAGIC || data.getInt() != VERSION){
+				throw new IOException("Not a tablebase: " + path);
+			}
+			byte[] name = new byte[data.getInt()];
+			data.get(name);
+			this.material = Material.parse(new String(name, StandardCharsets.US_ASCII));
+			this.blockSize = data.getInt();
+			this.blockCount = data.getInt();
+			this.offsets = data.position();
+			if ((long) blockSize * blockCount < material.getSize()){
+				throw new IOException("Truncated tablebase: " + path);
+			}
+		}catch (IOException | RuntimeException e){
+			channel.close();
+			throw e instanceof IOException ? (IOException) e : new IOException("Not a tablebase: " + path, e);
+		}
+	}
+
+	/**
+	 * Returns the material of the tablebase
+	 * @return the material
+	 */
+	public Material getMaterial(){
+		return material;
+	}
+
+	/**
+	 * Returns the value of a position
+	 * @param index index of the position, as by Material.index
+	 * @return the value as described above
+	 * @throws IllegalStateException if the block holding the position is corrupt
+	 */
+	public int get(long index){
+		int block = (int) (index / blockSize);
+		long key = (long) id << 32 | block;
+		byte[] values = cache.get(key);
+		if (values == null){
+			values = inflate(block);
+			cache.put(key, values);
+		}
+		return values[(int) (index % blockSize)];
+	}
+
+	/**
+	 * Decompresses a block from the mapped file
+	 * @param block number of the block
+	 * @return the values of the block
+	 */
+	private byte[] inflate(int block){
+		int start = (int) data.getLong(offsets + 8 * block);
+		int end = (int) data.getLong(offsets + 8 * (block + 1));
+		Decoder decoder = this.decoder.get();
+		if (decoder.input.length < end - start){
+			decoder.input = new byte[end - start];
+		}
+		ByteBuffer slice = data.duplicate();
+		slice.position(start);
+		slice.get(decoder.input, 0, end - start);
+		byte[] values = new byte[blockSize];
+		Inflater inflater = decoder.inflater;
+		inflater.reset();
+		try{
+			inflater.setInput(decoder.input, 0, end - start);
+			int n = 0;
+			while (n < blockSize && !inflater.finished()){
+				n += inflater.inflate(values, n, blockSize - n);
+				if (inflater.needsInput()){
+					break;
+				}
+			}
+		}catch (DataFormatException e){
+			throw new IllegalStateException("Corrupt block " + block + " of " + material, e);
+		}
+		return values;
+	}
+
+	/**
+	 * Writes a tablebase file
+	 * @param path path of the file
+	 * @param material material of the tablebase
+	 * @param values value of every position, Material.getSize of them
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, Material material, byte[] values) throws IOException{
+		int blockCount = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		byte[] name = material.toString().getBytes(StandardCharsets.US_ASCII);
+		int headerSize = 20 + name.length + 8 * (blockCount + 1);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(name.length).put(name).putInt(BLOCK_SIZE).putInt(blockCount);
+			long position = headerSize;
+			channel.position(position);
+			Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+			byte[] out = new byte[BLOCK_SIZE + BLOCK_SIZE / 8 + 64];
+			try{
+				for (int block = 0; block < blockCount; block++){
+					header.putLong(position);
+					deflater.reset();
+					deflater.setInput(values, block * BLOCK_SIZE, Math.min(BLOCK_SIZE, values.length - block * BLOCK_SIZE));
+					deflater.finish();
+					int length = deflater.deflate(out);
+					ByteBuffer compressed = ByteBuffer.wrap(out, 0, length);
+					while (compressed.hasRemaining()){
+						channel.write(compressed);
+					}
+					position += length;
+				}
+			}finally{
+				deflater.end();
+			}
+			header.putLong(position);
+			header.flip();
+			while (header.hasRemaining()){
+				channel.write(header, header.position());
+			}
+		}
+	}
+
+	/**
+	 * Closes the file and releases the Inflaters of the threads that probed it, the tablebase must not be probed afterwards
+	 */
+	@Override
+	public void close() throws IOException{
+		synchronized (decoders){
+			for (Decoder d : decoders){
+				d.inflater.end();
+			}
+			decoders.clear();
+		}
+		channel.close();
+	}
+
+	/**
+	 * The Inflater and input buffer of one probing thread
+	 */
+	private static final class Decoder {
+
+		private final Inflater inflater = new Inflater();
+		private byte[] input = new byte[BLOCK_SIZE / 4];
+	}
+}
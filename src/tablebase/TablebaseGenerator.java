@@ -0,0 +1,702 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Attacks;
+import model.Board;
+import model.Fen;
+import model.Move;
+import model.MoveStack;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * Generates the tablebase of a material by retrograde analysis over every placement of its pieces.
+ * Moves are made with the model's attack tables, the same rules the MoveGenerator uses. Captures and promotions
+ * lead to smaller materials, whose tablebases must have been generated first and are looked up.
+ * Pawn moves lead to positions of the same material with the Pawns further advanced, so the placements
+ * of the Pawns are solved from the most advanced to the least, each solved in turn by levels:
+ * level 1 finds the positions won with a capture, Pawn move or mate in one, level n the positions won by
+ * moving to a position lost at level n - 1 and those lost because every move reaches a position won by level n - 1.
+ * Positions never decided are draws.
+ *
+ * The work of every level is split over index ranges with fork-join. Every worker only writes the values
+ * of its own range and only reads values decided at earlier levels, so no locking is needed.
+ * Two bytes are kept per position, the value and a flag.
+ *
+ * EnPassant and the fifty-move rule are not taken into account.
+ *
+ */
+public class TablebaseGenerator {
+
+	private static final PieceType[] TYPES = PieceType.values();
+	private static final int SPLIT = 4096;
+
+	/**
+	 * Flag of a position that can move to a drawn position with a capture or Pawn move, so it cannot be lost
+	 */
+	private static final byte CANNOT_LOSE = 1;
+
+	private final Material material;
+	private final int[] pieces;
+	private final int count;
+	private final Tablebases smaller;
+	private final ForkJoinPool pool;
+	private byte[] values;
+	private byte[] flags;
+	private int[] pawnSlots;
+	private int[] freeSlots;
+	private int[] pawnSquares;
+
+	/**
+	 * Constructor for a generator of a given material
+	 * @param material the material, the first side plays White
+	 * @param smaller tablebases of the materials captures and promotions lead to, null if there are none
+	 * @param threads number of threads to generate with
+	 * @throws IllegalArgumentException if the material has more than 4 pieces
+	 */
+	public TablebaseGenerator(Material material, Tablebases smaller, int threads){
+		if (material.getPieceCount() > 4){
+			throw new IllegalArgumentException("Too many pieces: " + material);
+		}
+		this.material = material;
+		this.pieces = material.getPieces();
+		this.count = pieces.length;
+		this.smaller = smaller;
+		this.pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	/**
+	 * Generates the values of every position
+	 * @return the value of every position as described by Tablebase, indexed as by Material
+	 * @throws IllegalStateException if the tablebase of a smaller material is missing
+	 */
+	public byte[] generate(){
+		long size = material.getSize();
+		values = new byte[(int) size];
+		flags = new byte[(int) size];
+		List<Integer> pawns = new ArrayList<Integer>();
+		List<Integer> free = new ArrayList<Integer>();
+		for (int k = 0; k < count; k++){
+			((pieces[k] & 7) == PieceType.PAWN.ordinal() ? pawns : free).add(k);
+		}
+		pawnSlots = toArray(pawns);
+		freeSlots = toArray(free);
+		try{
+			for (int[] placement : pawnPlacements()){
+				pawnSquares = placement;
+				solve();
+			}
+		}finally{
+			pool.shutdown();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns every placement of the Pawns, the most advanced first
+	 * @return the squares of the Pawns, in the order of pawnSlots
+	 */
+	private List<int[]> pawnPlacements(){
+		List<int[]> placements = new ArrayList<int[]>();
+		int n = pawnSlots.length;
+		for (int code = 0; code < 1 << (6 * n); code++){
+			int[] squares = new int[n];
+			for (int i = 0; i < n; i++){
+				squares[i] = (code >>> (6 * i)) & 63;
+			}
+			placements.add(squares);
+		}
+		Collections.sort(placements, new Comparator<int[]>(){
+			@Override
+			public int compare(int[] a, int[] b) {
+				return advancement(b) - advancement(a);
+			}
+		});
+		return placements;
+	}
+
+	/**
+	 * Returns how far the Pawns of a placement have advanced, a Pawn move always increases it
+	 * @param squares squares of the Pawns
+	 * @return the sum of the ranks advanced by every Pawn
+	 */
+	private int advancement(int[] squares){
+		int sum = 0;
+		for (int i = 0; i < squares.length; i++){
+			int rank = squares[i] >>> 3;
+			sum += (pieces[pawnSlots[i]] >>> 3) == 0 ? rank : 7 - rank;
+		}
+		return sum;
+	}
+
+	/**
+	 * Solves the positions of the current placement of the Pawns, level after level until a level decides nothing
+	 * @throws IllegalStateException if a distance does not fit in a value
+	 */
+	private void solve(){
+		int positions = 2 << (6 * freeSlots.length);
+		pool.invoke(new Task(0, positions, 0));
+		for (int level = 1; ; level++){
+			if (level > 126){
+				throw new IllegalStateException("Distance too long for " + material);
+			}
+			Task task = new Task(0, positions, level);
+			pool.invoke(task);
+			// Setting up already decides positions of level 1, so the search only stops after a later level
+			if (task.decided.get() == 0 && level > 1){
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Solves a range of positions of the current placement of the Pawns for one level, level 0 setting them up
+	 */
+	private class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int level;
+		private final AtomicLong decided;
+
+		/**
+		 * Constructor for a task over a range of positions
+		 * @param from first position of the range, in the numbering of the current placement
+		 * @param to position after the last of the range
+		 * @param level level to solve
+		 */
+		Task(int from, int to, int level){
+			this(from, to, level, new AtomicLong());
+		}
+
+		/**
+		 * Constructor for a part of a task, counting the positions it decides with the whole task
+		 * @param from first position of the range
+		 * @param to position after the last of the range
+		 * @param level level to solve
+		 * @param decided count of positions decided
+		 */
+		private Task(int from, int to, int level, AtomicLong decided){
+			this.from = from;
+			this.to = to;
+			this.level = level;
+			this.decided = decided;
+		}
+
+		/**
+		 * Splits the range until it is small, then solves every position of it
+		 */
+		@Override
+		protected void compute(){
+			if (to - from > SPLIT){
+				int mid = (from + to) >>> 1;
+				invokeAll(new Task(from, mid, level, decided), new Task(mid, to, level, decided));
+				return;
+			}
+			int[] squares = new int[count];
+			int[] childPieces = new int[count];
+			int[] childSquares = new int[count];
+			long n = 0;
+			for (int local = from; local < to; local++){
+				int side = local & 1;
+				for (int i = 0; i < freeSlots.length; i++){
+					squares[freeSlots[i]] = (local >>> (1 + 6 * i)) & 63;
+				}
+				for (int i = 0; i < pawnSlots.length; i++){
+					squares[pawnSlots[i]] = pawnSquares[i];
+				}
+				int index = (int) material.index(pieces, squares, count, side == 0);
+				if (level == 0){
+					setUp(index, squares, side, childPieces, childSquares);
+				}else if (values[index] == 0 && solve(index, squares, side, level)){
+					n++;
+				}
+			}
+			decided.addAndGet(n);
+		}
+	}
+
+	/**
+	 * Sets up a position: marks it illegal, or decides it if it is mated, stalemated or won or lost with a capture
+	 * or Pawn move, otherwise flags it if such a move draws
+	 * @param index index of the position
+	 * @param squares squares of the pieces
+	 * @param side side to move
+	 * @param childPieces space for the pieces after a capture or promotion
+	 * @param childSquares space for their squares
+	 */
+	private void setUp(int index, int[] squares, int side, int[] childPieces, int[] childSquares){
+		long occupied = 0;
+		for (int k = 0; k < count; k++){
+			occupied |= 1L << squares[k];
+			int type = pieces[k] & 7;
+			if (type == PieceType.PAWN.ordinal() && (squares[k] < 8 || squares[k] >= 56)){
+				values[index] = Tablebase.ILLEGAL;
+				return;
+			}
+		}
+		if (Long.bitCount(occupied) != count || attacked(squares, occupied, side, 1 - side)){
+			values[index] = Tablebase.ILLEGAL;
+			return;
+		}
+		int moves = 0;
+		boolean inSlice = false;
+		boolean win = false;
+		boolean draw = false;
+		for (int k = 0; k < count; k++){
+			if ((pieces[k] >>> 3) != side){
+				continue;
+			}
+			int type = pieces[k] & 7;
+			int from = squares[k];
+			if (type == PieceType.PAWN.ordinal()){
+				int forward = side == 0 ? 8 : -8;
+				long targets = pawnAttacks(side, from) & occupiedBy(squares, occupied, 1 - side);
+				int push = from + forward;
+				if ((occupied & 1L << push) == 0){
+					targets |= 1L << push;
+					int start = side == 0 ? 1 : 6;
+					if (from >>> 3 == start && (occupied & 1L << (push + forward)) == 0){
+						targets |= 1L << (push + forward);
+					}
+				}
+				for (; targets != 0; targets &= targets - 1){
+					int to = Long.numberOfTrailingZeros(targets);
+					boolean last = to < 8 || to >= 56;
+					for (int promotion = last ? PieceType.QUEEN.ordinal() : 0; promotion >= (last ? PieceType.KNIGHT.ordinal() : 0); promotion--){
+						int value = exit(k, to, last ? promotion : -1, squares, side, childPieces, childSquares);
+						if (value == Integer.MIN_VALUE){
+							continue;
+						}
+						moves++;
+						win |= value < 0;
+						draw |= value == 0;
+					}
+				}
+				continue;
+			}
+			long targets = attacks(type, from, occupied) & ~occupiedBy(squares, occupied, side);
+			for (; targets != 0; targets &= targets - 1){
+				int to = Long.numberOfTrailingZeros(targets);
+				if ((occupied & 1L << to) != 0){
+					int value = exit(k, to, -1, squares, side, childPieces, childSquares);
+					if (value == Integer.MIN_VALUE){
+						continue;
+					}
+					moves++;
+					win |= value < 0;
+					draw |= value == 0;
+				}else{
+					squares[k] = to;
+					boolean legal = !attacked(squares, occupied ^ (1L << from | 1L << to), 1 - side, side);
+					squares[k] = from;
+					if (legal){
+						moves++;
+						inSlice = true;
+					}
+				}
+			}
+		}
+		if (moves == 0){
+			if (attacked(squares, occupied, 1 - side, side)){
+				values[index] = -1;
+			}else{
+				flags[index] = CANNOT_LOSE;
+			}
+		}else if (win){
+			values[index] = 1;
+		}else if (draw){
+			flags[index] = CANNOT_LOSE;
+		}else if (!inSlice){
+			values[index] = -2;
+		}
+	}
+
+	/**
+	 * Looks up the value after a capture or Pawn move
+	 * @param k piece that moves
+	 * @param to square it moves to
+	 * @param promotion PieceType ordinal of the piece a Pawn is promoted to, -1 if there is no promotion
+	 * @param squares squares of the pieces
+	 * @param side side to move
+	 * @param childPieces space for the pieces after the move
+	 * @param childSquares space for their squares
+	 * @return the value of the position after the move for the other side, Integer.MIN_VALUE if the move is not legal
+	 * @throws IllegalStateException if the tablebase of a smaller material is missing
+	 */
+	private int exit(int k, int to, int promotion, int[] squares, int side, int[] childPieces, int[] childSquares){
+		int n = 0;
+		for (int i = 0; i < count; i++){
+			if (squares[i] == to){
+				continue;
+			}
+			childPieces[n] = i == k && promotion >= 0 ? (pieces[i] & 8) | promotion : pieces[i];
+			childSquares[n] = i == k ? to : squares[i];
+			n++;
+		}
+		long occupied = 0;
+		for (int i = 0; i < n; i++){
+			occupied |= 1L << childSquares[i];
+		}
+		if (attackedChild(childPieces, childSquares, n, occupied, 1 - side, side)){
+			return Integer.MIN_VALUE;
+		}
+		if (n == count && promotion < 0){
+			// A Pawn move without a capture stays in this tablebase, in a placement of the Pawns solved before
+			return values[(int) material.index(childPieces, childSquares, n, side == 1)];
+		}
+		if (n == 2){
+			return 0;
+		}
+		Material child = Material.of(childPieces, n);
+		Tablebase table = smaller == null ? null : smaller.get(child);
+		boolean firstToMove = side == 1;
+		if (table == null){
+			table = smaller == null ? null : smaller.get(child.swap());
+			if (table == null){
+				throw new IllegalStateException("Generate " + child + " before " + material);
+			}
+			// The other tablebase has the sides the other way round, seen from the other end of the board
+			for (int i = 0; i < n; i++){
+				childPieces[i] ^= 8;
+				childSquares[i] ^= 56;
+			}
+			firstToMove = !firstToMove;
+		}
+		return table.get(table.getMaterial().index(childPieces, childSquares, n, firstToMove));
+	}
+
+	/**
+	 * Decides a position at a level if it can be
+	 * @param index index of the position
+	 * @param squares squares of the pieces
+	 * @param side side to move
+	 * @param level the level
+	 * @return true if the position was decided
+	 */
+	private boolean solve(int index, int[] squares, int side, int level){
+		long occupied = 0;
+		for (int k = 0; k < count; k++){
+			occupied |= 1L << squares[k];
+		}
+		boolean allWon = (flags[index] & CANNOT_LOSE) == 0;
+		for (int k = 0; k < count; k++){
+			int type = pieces[k] & 7;
+			if ((pieces[k] >>> 3) != side || type == PieceType.PAWN.ordinal()){
+				continue;
+			}
+			int from = squares[k];
+			// Captures were settled when the position was set up, only quiet moves stay in this placement
+			long targets = attacks(type, from, occupied) & ~occupied;
+			for (; targets != 0; targets &= targets - 1){
+				int to = Long.numberOfTrailingZeros(targets);
+				squares[k] = to;
+				long after = occupied ^ (1L << from | 1L << to);
+				int value = attacked(squares, after, 1 - side, side) ? Tablebase.ILLEGAL
+						: values[(int) material.index(pieces, squares, count, side == 1)];
+				squares[k] = from;
+				if (value == Tablebase.ILLEGAL){
+					continue;
+				}
+				if (value == -level){
+					values[index] = (byte) level;
+					return true;
+				}
+				if (value < 1 || value >= level){
+					allWon = false;
+				}
+			}
+		}
+		// Positions without quiet moves were decided or flagged when they were set up
+		if (allWon){
+			values[index] = (byte) (-level - 1);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the King of a side is attacked
+	 * @param squares squares of the pieces
+	 * @param occupied bitboard of the occupied squares
+	 * @param by side attacking
+	 * @param king side whose King is checked
+	 * @return true if the King is attacked
+	 */
+	private boolean attacked(int[] squares, long occupied, int by, int king){
+		return attackedChild(pieces, squares, count, occupied, by, king);
+	}
+
+	/**
+	 * Returns whether the King of a side is attacked, for any set of pieces
+	 * @param pieces codes of the pieces
+	 * @param squares squares of the pieces
+	 * @param n number of pieces
+	 * @param occupied bitboard of the occupied squares
+	 * @param by side attacking
+	 * @param king side whose King is checked
+	 * @return true if the King is attacked
+	 */
+	private static boolean attackedChild(int[] pieces, int[] squares, int n, long occupied, int by, int king){
+		int target = -1;
+		for (int i = 0; i < n; i++){
+			if (pieces[i] == king * 8 + PieceType.KING.ordinal()){
+				target = squares[i];
+			}
+		}
+		for (int i = 0; i < n; i++){
+			if ((pieces[i] >>> 3) != by || (occupied & 1L << squares[i]) == 0){
+				continue;
+			}
+			int type = pieces[i] & 7;
+			long attacks = type == PieceType.PAWN.ordinal() ? pawnAttacks(by, squares[i]) : attacks(type, squares[i], occupied);
+			if ((attacks & 1L << target) != 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the squares occupied by a side
+	 * @param squares squares of the pieces
+	 * @param occupied bitboard of the occupied squares, pieces not on it have been captured
+	 * @param side the side
+	 * @return bitboard of the side's pieces
+	 */
+	private long occupiedBy(int[] squares, long occupied, int side){
+		long own = 0;
+		for (int k = 0; k < count; k++){
+			if ((pieces[k] >>> 3) == side){
+				own |= 1L << squares[k];
+			}
+		}
+		return own & occupied;
+	}
+
+	/**
+	 * Returns the squares a piece other than a Pawn attacks
+	 * @param type PieceType ordinal of the piece
+	 * @param square square of the piece
+	 * @param occupied bitboard of the occupied squares
+	 * @return bitboard of the attacked squares
+	 */
+	private static long attacks(int type, int square, long occupied){
+		switch(TYPES[type]){
+		case KNIGHT:
+			return Attacks.knightAttacks(square);
+		case BISHOP:
+			return Attacks.bishopAttacks(square, occupied);
+		case ROOK:
+			return Attacks.rookAttacks(square, occupied);
+		case QUEEN:
+			return Attacks.queenAttacks(square, occupied);
+		default:
+			return Attacks.kingAttacks(square);
+		}
+	}
+
+	/**
+	 * Returns the squares a Pawn attacks
+	 * @param side side of the Pawn, 0 playing White
+	 * @param square square of the Pawn
+	 * @return bitboard of the attacked squares
+	 */
+	private static long pawnAttacks(int side, int square){
+		return Attacks.pawnAttacks(side == 0 ? Color.WHITE : Color.BLACK, square);
+	}
+
+	/**
+	 * Converts a list of integers to an array
+	 * @param list the list
+	 * @return the array
+	 */
+	private static int[] toArray(List<Integer> list){
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++){
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Checks the values of random positions of a tablebase against the moves the model's MoveGenerator allows:
+	 * the value of every position must follow from the values of the positions its legal moves lead to
+	 * @param tablebases tablebases holding the material and every smaller one
+	 * @param material material to check
+	 * @param samples number of positions to check
+	 * @param seed seed of the random positions
+	 * @return the number of positions whose value does not follow
+	 */
+	public static int verify(Tablebases tablebases, Material material, int samples, long seed){
+		Random random = new Random(seed);
+		int[] pieces = material.getPieces();
+		MoveStack moves = new MoveStack(1);
+		int wrong = 0;
+		int checked = 0;
+		while (checked < samples){
+			char[] board = new char[64];
+			boolean valid = true;
+			for (int piece : pieces){
+				int square = random.nextInt(64);
+				char c = "PNBRQK".charAt(piece & 7);
+				if (board[square] != 0 || (c == 'P' && (square < 8 || square >= 56))){
+					valid = false;
+					break;
+				}
+				board[square] = (piece >>> 3) == 0 ? c : Character.toLowerCase(c);
+			}
+			if (!valid){
+				continue;
+			}
+			Board position = Fen.load(toFen(board, random.nextBoolean()), false);
+			int value = tablebases.probeDtz(position);
+			Color them = position.getSideToMove() == Color.WHITE ? Color.BLACK : Color.WHITE;
+			if (value == Tablebases.UNKNOWN || position.isKingAttacked(them)){
+				continue;
+			}
+			int n = position.getMoveGenerator().generate(moves, 0);
+			int bestWin = Integer.MAX_VALUE;
+			int worstLoss = 0;
+			boolean draw = false;
+			boolean unknown = false;
+			for (int i = 0; i < n; i++){
+				int move = moves.get(0, i);
+				boolean zeroing = Move.hasFlag(move, Move.CAPTURE)
+						|| position.getFileRankAt(Move.getFrom(move)).getCurrentPiece().getType() == PieceType.PAWN;
+				position.makeMove(position.getFileRankAt(Move.getFrom(move)), position.getFileRankAt(Move.getTo(move)),
+						Move.getPromotionChar(move));
+				int child = tablebases.probeDtz(position);
+				position.unmakeMove();
+				if (child == Tablebases.UNKNOWN){
+					unknown = true;
+				}else if (child < 0){
+					bestWin = Math.min(bestWin, zeroing ? 1 : -child);
+				}else if (child == 0){
+					draw = true;
+				}else{
+					worstLoss = Math.max(worstLoss, zeroing ? 1 : child + 1);
+				}
+			}
+			if (unknown){
+				continue;
+			}
+			int expected;
+			if (n == 0){
+				expected = position.isKingAttacked(position.getSideToMove()) ? -1 : 0;
+			}else if (bestWin != Integer.MAX_VALUE){
+				expected = bestWin;
+			}else if (draw){
+				expected = 0;
+			}else{
+				expected = -worstLoss - 1;
+			}
+			checked++;
+			if (expected != value){
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	/**
+	 * Writes a placement of pieces in Forsyth-Edwards Notation, without castling rights or EnPassant square
+	 * @param board piece letter of every square, 0 for an empty square
+	 * @param whiteToMove true if White is to move
+	 * @return the FEN string
+	 */
+	private static String toFen(char[] board, boolean whiteToMove){
+		StringBuilder sb = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--){
+			int empty = 0;
+			for (int file = 0; file < 8; file++){
+				char c = board[rank * 8 + file];
+				if (c == 0){
+					empty++;
+					continue;
+				}
+				if (empty > 0){
+					sb.append(empty);
+					empty = 0;
+				}
+				sb.append(c);
+			}
+			if (empty > 0){
+				sb.append(empty);
+			}
+			if (rank > 0){
+				sb.append('/');
+			}
+		}
+		return sb.append(whiteToMove ? " w - - 0 1" : " b - - 0 1").toString();
+	}
+
+	/**
+	 * Generates tablebases from the command line, each one checked against the model's rules once written
+	 * @param args directory to write to, then the materials in the order to generate them, such as KQvK KRvK KPvK,
+	 * optionally followed by -threads n
+	 * @throws IOException if a tablebase cannot be written or read back
+	 */
+	public static void main(String[] args) throws IOException{
+		if (args.length < 2){
+			System.out.println("Usage: TablebaseGenerator directory material... [-threads n]");
+			return;
+		}
+		Path directory = Paths.get(args[0]);
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> materials = new ArrayList<String>();
+		for (int i = 1; i < args.length; i++){
+			if (args[i].equals("-threads") && i + 1 < args.length){
+				threads = Integer.parseInt(args[++i]);
+			}else{
+				materials.add(args[i]);
+			}
+		}
+		for (String name : materials){
+			Material material = Material.parse(name);
+			long start = System.nanoTime();
+			byte[] values;
+			try (Tablebases smaller = new Tablebases(directory)){
+				values = new TablebaseGenerator(material, smaller, threads).generate();
+			}
+			Path path = directory.resolve(material + Tablebase.EXTENSION);
+			Tablebase.write(path, material, values);
+			long millis = (System.nanoTime() - start) / 1000000L;
+			int wins = 0, losses = 0, draws = 0, longest = 0;
+			for (byte value : values){
+				if (value == Tablebase.ILLEGAL){
+					continue;
+				}
+				if (value > 0){
+					wins++;
+					longest = Math.max(longest, value);
+				}else if (value < 0){
+					losses++;
+				}else{
+					draws++;
+				}
+			}
+			int wrong;
+			try (Tablebases written = new Tablebases(directory)){
+				wrong = verify(written, material, 10000, 0);
+			}
+			System.out.println(material + ": " + wins + " wins, " + draws + " draws, " + losses + " losses, longest win "
+					+ longest + " plies, " + millis + " ms, " + (values.length * 2 / 1024) + " KB, "
+					+ Files.size(path) / 1024 + " KB on disk, " + wrong + " wrong of 10000 checked");
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.Attacks;
+import model.Board;
+import model.Utils.Color;
+import model.Utils.PieceType;
+
+/**
+ * The endgame tablebases found in a directory, probed for positions with few enough pieces.
+ * A position can be probed when the number of pieces in play of both players is at most getMaxPieces,
+ * there is a tablebase of its material, neither side can castle and the side to move cannot capture EnPassant.
+ * Positions with only the two Kings are draws without a tablebase.
+ * The tablebase of a position is found by the signature of its material, in a table filled when the directory is read,
+ * so a probe does not build a Material.
+ *
+ */
+public class Tablebases implements Closeable {
+
+	/**
+	 * Result of a probe of a position the side to move wins
+	 */
+	public static final int WIN = 1;
+
+	/**
+	 * Result of a probe of a drawn position
+	 */
+	public static final int DRAW = 0;
+
+	/**
+	 * Result of a probe of a position the side to move loses
+	 */
+	public static final int LOSS = -1;
+
+	/**
+	 * Result of a probe of a position that is not in the tablebases
+	 */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/**
+	 * Default number of inflated blocks kept in memory, 64 kilobytes each
+	 */
+	public static final int DEFAULT_CACHE_BLOCKS = 256;
+
+	private final Map<Material, Tablebase> tables;
+	private final BlockCache cache;
+	private int maxPieces;
+	private long[] signatures;
+	private Tablebase[] bySignature;
+	private boolean[] swapped;
+
+	/**
+	 * Constructor for the tablebases of a directory, with the default cache size
+	 * @param directory directory holding the tablebase files
+	 * @throws IOException if the directory or a tablebase file cannot be read
+	 */
+	public Tablebases(Path directory) throws IOException{
+		this(directory, DEFAULT_CACHE_BLOCKS);
+	}
+
+	/**
+	 * Constructor for the tablebases of a directory
+	 * @param directory directory holding the tablebase files
+	 * @param cacheBlocks number of inflated blocks kept in memory
+	 * @throws IOException if the directory or a tablebase file cannot be read
+	 */
+	public Tablebases(Path directory, int cacheBlocks) throws IOException{
+		this.tables = new HashMap<Material, Tablebase>();
+		this.cache = new BlockCache(cacheBlocks);
+		this.maxPieces = 2;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Tablebase.EXTENSION)){
+			for (Path file : files){
+				Tablebase table = new Tablebase(file, tables.size(), cache);
+				tables.put(table.getMaterial(), table);
+				maxPieces = Math.max(maxPieces, table.getMaterial().getPieceCount());
+			}
+		}
+		// Open addressing with at least half of the slots free, each material found with White first or second
+		int slots = Integer.highestOneBit(Math.max(1, tables.size()) * 4) * 2;
+		signatures = new long[slots];
+		bySignature = new Tablebase[slots];
+		swapped = new boolean[slots];
+		for (Tablebase table : tables.values()){
+			addSignature(table.getMaterial().getSignature(), table, false);
+		}
+		for (Tablebase table : tables.values()){
+			addSignature(table.getMaterial().swap().getSignature(), table, true);
+		}
+	}
+
+	/**
+	 * Adds a tablebase to the signature table, unless its signature is already there
+	 * @param signature signature of the material with White first
+	 * @param table tablebase of the material or of the material with the sides swapped
+	 * @param swap true if Black plays White in the tablebase
+	 */
+	private void addSignature(long signature, Tablebase table, boolean swap){
+		int slot = slot(signature);
+		if (signatures[slot] == 0L){
+			signatures[slot] = signature;
+			bySignature[slot] = table;
+			swapped[slot] = swap;
+		}
+	}
+
+	/**
+	 * Finds the slot of a signature in the signature table
+	 * @param signature signature of a material with White first
+	 * @return the slot holding the signature, or the empty slot where it would go
+	 */
+	private int slot(long signature){
+		int mask = signatures.length - 1;
+		int slot = (int) (signature * 0x9E3779B97F4A7C15L >>> 40) & mask;
+		while (signatures[slot] != 0L && signatures[slot] != signature){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the number of tablebases found
+	 * @return the number of tablebases
+	 */
+	public int size(){
+		return tables.size();
+	}
+
+	/**
+	 * Returns the most pieces of any tablebase found, the threshold at which probing starts
+	 * @return the number of pieces, Kings included
+	 */
+	public int getMaxPieces(){
+		return maxPieces;
+	}
+
+	/**
+	 * Returns the tablebase of a material
+	 * @param material the material, with the sides in the order of the tablebase
+	 * @return the tablebase, null if there is none
+	 */
+	public Tablebase get(Material material){
+		return tables.get(material);
+	}
+
+	/**
+	 * Returns the cache of inflated blocks
+	 * @return the cache
+	 */
+	public BlockCache getCache(){
+		return cache;
+	}
+
+	/**
+	 * Returns whether a position is worth probing, which is cheap enough to ask at every node of a search
+	 * @param board board holding the position
+	 * @return true if there are at most getMaxPieces pieces and no castling rights, false otherwise
+	 */
+	public boolean canProbe(Board board){
+		return Long.bitCount(board.getBitboards().getOccupied()) <= maxPieces && board.getCastlingRights() == 0;
+	}
+
+	/**
+	 * Probes the win, draw or loss of a position
+	 * @param board board holding the position
+	 * @return WIN, DRAW or LOSS for the side to move, UNKNOWN if the position is not in the tablebases
+	 */
+	public int probeWdl(Board board){
+		int value = probeDtz(board);
+		if (value == UNKNOWN){
+			return UNKNOWN;
+		}
+		return value > 0 ? WIN : value < 0 ? LOSS : DRAW;
+	}
+
+	/**
+	 * Probes the distance to the next capture, Pawn move or mate of a position
+	 * @param board board holding the position
+	 * @return the value of the position as described by Tablebase, UNKNOWN if the position is not in the tablebases
+	 */
+	public int probeDtz(Board board){
+		if (!canProbe(board) || canCaptureEnPassant(board)){
+			return UNKNOWN;
+		}
+		if (Long.bitCount(board.getBitboards().getOccupied()) == 2){
+			return 0;
+		}
+		int slot = slot(Material.signature(board, Color.WHITE));
+		Tablebase table = bySignature[slot];
+		if (table == null){
+			return UNKNOWN;
+		}
+		int value = table.get(table.getMaterial().index(board, swapped[slot] ? Color.BLACK : Color.WHITE));
+		return value == Tablebase.ILLEGAL ? UNKNOWN : value;
+	}
+
+	/**
+	 * Returns whether the side to move has a Pawn that can capture EnPassant, which the tablebases do not know about
+	 * @param board board holding the position
+	 * @return true if a Pawn attacks the EnPassant square, false otherwise
+	 */
+	private static boolean canCaptureEnPassant(Board board){
+		long ep = board.getEnPassantSquares();
+		if (ep == 0){
+			return false;
+		}
+		Color us = board.getSideToMove();
+		Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+		// A Pawn of ours attacks the square exactly when a Pawn of theirs on it would attack ours
+		return (Attacks.pawnAttacks(them, Long.numberOfTrailingZeros(ep)) & board.getBitboards().getPieces(us, PieceType.PAWN)) != 0;
+	}
+
+	/**
+	 * Closes every tablebase file
+	 */
+	@Override
+	public void close() throws IOException{
+		for (Tablebase table : tables.values()){
+			table.close();
+		}
+		tables.clear();
+		Arrays.fill(signatures, 0L);
+		Arrays.fill(bySignature, null);
+	}
+}
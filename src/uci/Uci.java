@@ -0,0 +1,445 @@
+package uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import book.PolyglotBook;
+import eval.Network;
+import eval.NnueEvaluator;
+
+import model.Board;
+import model.Fen;
+import model.Move;
+import model.MoveStack;
+import model.Utils.Color;
+import search.ParallelSearch;
+import search.Search;
+import search.SearchListener;
+import search.TranspositionTable;
+import tablebase.Tablebases;
+
+/**
+ * A front end that speaks the Universal Chess Interface protocol on standard input and output.
+ * Commands are read on the calling thread and every search runs on a separate worker thread,
+ * so that stop and isready are answered while the engine is thinking. The process can play any number of games.
+ *
+ * Supported commands: uci, isready, setoption (Hash, Threads, EvalFile, BookFile, TablebasePath), ucinewgame, position, go, stop, quit.
+ * When a book is set, positions found in it are answered with a book move at once instead of being searched.
+ *
+ */
+public class Uci {
+
+	private static final String NAME = "Chess48";
+	private static final int DEFAULT_HASH = 64;
+
+	/**
+	 * Centipawns reported for a tablebase win at the root
+	 */
+	private static final int TB_SCORE = 20000;
+
+	private PrintStream out;
+	private Board board;
+	private TranspositionTable table;
+	private int hash;
+	private int threads;
+	private Network network;
+	private PolyglotBook book;
+	private Random random;
+	private Tablebases tablebases;
+	private Thread worker;
+	private volatile ParallelSearch search;
+	private boolean infinite;
+	private boolean stopRequested;
+
+	/**
+	 * Constructor for a front end writing to a given stream
+	 * @param out stream the engine's responses are written to
+	 */
+	public Uci(PrintStream out){
+		this.out = out;
+		this.board = Fen.load(Fen.START_POSITION, false);
+		this.hash = DEFAULT_HASH;
+		this.threads = 1;
+		this.table = new TranspositionTable(hash);
+		this.random = new Random();
+	}
+
+	/**
+	 * Reads and handles commands until quit is received or the input ends
+	 * @param in reader to read commands from
+	 * @throws IOException if the input cannot be read
+	 */
+	public void run(BufferedReader in) throws IOException{
+		String line;
+		while ((line = in.readLine()) != null){
+			if (!handle(line.trim())){
+				break;
+			}
+		}
+		stopSearch();
+	}
+
+	/**
+	 * Handles a single command
+	 * @param line the command with its arguments
+	 * @return false if the command was quit, true otherwise
+	 */
+	public boolean handle(String line){
+		String[] tokens = line.split("\\s+");
+		switch(tokens[0]){
+		case "uci":
+			send("id name " + NAME);
+			send("id author jmm754 and yuky");
+			send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max 1024");
+			send("option name Threads type spin default 1 min 1 max " + Runtime.getRuntime().availableProcessors());
+			send("option name EvalFile type string default <empty>");
+			send("option name BookFile type string default <empty>");
+			send("option name TablebasePath type string default <empty>");
+			send("uciok");
+			break;
+		case "isready":
+			send("readyok");
+			break;
+		case "setoption":
+			setOption(tokens);
+			break;
+		case "ucinewgame":
+			stopSearch();
+			table.clear();
+			board = Fen.load(Fen.START_POSITION, false);
+			break;
+		case "position":
+			stopSearch();
+			try{
+				board = position(tokens);
+			}catch (IllegalArgumentException e){
+				send("info string " + e.getMessage());
+			}
+			break;
+		case "go":
+			stopSearch();
+			go(tokens);
+			break;
+		case "stop":
+			stopSearch();
+			break;
+		case "quit":
+			return false;
+		default:
+			if (!line.isEmpty()){
+				send("info string Unknown command: " + line);
+			}
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Handles setoption name [name] value [value]
+	 * The name is every word between name and value, and the value the rest of the line,
+	 * so both may contain spaces, as paths often do. Words are joined with single spaces.
+	 * @param tokens the command split into words
+	 */
+	private void setOption(String[] tokens){
+		int i = 1;
+		if (i >= tokens.length || !tokens[i].equals("name")){
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (i++; i < tokens.length && !tokens[i].equals("value"); i++){
+			sb.append(sb.length() == 0 ? "" : " ").append(tokens[i]);
+		}
+		String name = sb.toString();
+		if (i >= tokens.length || name.isEmpty()){
+			return;
+		}
+		sb.setLength(0);
+		for (i++; i < tokens.length; i++){
+			sb.append(sb.length() == 0 ? "" : " ").append(tokens[i]);
+		}
+		String value = sb.toString();
+		if (value.isEmpty()){
+			return;
+		}
+		try{
+			if (name.equalsIgnoreCase("Hash")){
+				stopSearch();
+				hash = Math.max(1, Math.min(1024, Integer.parseInt(value)));
+				table = new TranspositionTable(hash);
+			}else if (name.equalsIgnoreCase("Threads")){
+				threads = Math.max(1, Integer.parseInt(value));
+			}else if (name.equalsIgnoreCase("EvalFile")){
+				stopSearch();
+				network = value.equals("<empty>") ? null : Network.load(Paths.get(value));
+			}else if (name.equalsIgnoreCase("BookFile")){
+				stopSearch();
+				if (book != null){
+					book.close();
+					book = null;
+				}
+				if (!value.equals("<empty>")){
+					book = new PolyglotBook(Paths.get(value));
+				}
+			}else if (name.equalsIgnoreCase("TablebasePath")){
+				stopSearch();
+				if (tablebases != null){
+					tablebases.close();
+					tablebases = null;
+				}
+				if (!value.equals("<empty>")){
+					tablebases = new Tablebases(Paths.get(value));
+					send("info string " + tablebases.size() + " tablebases, up to " + tablebases.getMaxPieces() + " pieces");
+				}
+			}
+		}catch (NumberFormatException e){
+			send("info string Invalid value for " + name + ": " + value);
+		}catch (IOException e){
+			send("info string Cannot load " + value + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Handles position [startpos | fen ...] [moves ...]
+	 * @param tokens the command split into words
+	 * @return the board with the position set up and the moves played
+	 * @throws IllegalArgumentException if the position or a move is invalid
+	 */
+	static Board position(String[] tokens){
+		int i = 1;
+		String fen;
+		if (i < tokens.length && tokens[i].equals("startpos")){
+			fen = Fen.START_POSITION;
+			i++;
+		}else if (i < tokens.length && tokens[i].equals("fen")){
+			StringBuilder sb = new StringBuilder();
+			for (i++; i < tokens.length && !tokens[i].equals("moves"); i++){
+				sb.append(tokens[i]).append(' ');
+			}
+			fen = sb.toString();
+		}else{
+			throw new IllegalArgumentException("Invalid position command");
+		}
+		Board board = Fen.load(fen, false);
+		if (i < tokens.length && tokens[i].equals("moves")){
+			for (i++; i < tokens.length; i++){
+				playMove(board, tokens[i]);
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Plays a move in coordinate notation, such as e2e4 or e7e8q
+	 * The move is matched against the legal moves of the position, so a move the GUI got wrong
+	 * is reported instead of being played and leaving the board in a state no game can reach
+	 * @param board board to play the move on
+	 * @param move the move, a promotion ends with n, b, r or q
+	 * @throws IllegalArgumentException if the move is malformed or not legal in the position
+	 */
+	private static void playMove(Board board, String move){
+		if ((move.length() != 4 && move.length() != 5) || (move.length() == 5 && "nbrq".indexOf(move.charAt(4)) < 0)){
+			throw new IllegalArgumentException("Invalid move: " + move);
+		}
+		MoveStack legal = new MoveStack(1);
+		int count = board.getMoveGenerator().generate(legal, 0);
+		for (int i = 0; i < count; i++){
+			int m = legal.get(0, i);
+			if (Move.toString(m).equals(move)){
+				board.makeMove(board.getFileRankAt(Move.getFrom(m)), board.getFileRankAt(Move.getTo(m)), Move.getPromotionChar(m));
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Illegal move: " + move);
+	}
+
+	/**
+	 * Handles go, starting a search of the current position on a worker thread
+	 * @param tokens the command split into words
+	 */
+	private void go(String[] tokens){
+		long wtime = -1, btime = -1, winc = 0, binc = 0, movetime = -1;
+		int movestogo = 0;
+		int depth = Search.MAX_PLY - 1;
+		boolean infinite = false;
+		try{
+			for (int i = 1; i < tokens.length; i++){
+				String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+				switch(tokens[i]){
+				case "wtime":
+					wtime = Long.parseLong(value);
+					i++;
+					break;
+				case "btime":
+					btime = Long.parseLong(value);
+					i++;
+					break;
+				case "winc":
+					winc = Long.parseLong(value);
+					i++;
+					break;
+				case "binc":
+					binc = Long.parseLong(value);
+					i++;
+					break;
+				case "movestogo":
+					movestogo = Integer.parseInt(value);
+					i++;
+					break;
+				case "movetime":
+					movetime = Long.parseLong(value);
+					i++;
+					break;
+				case "depth":
+					depth = Integer.parseInt(value);
+					i++;
+					break;
+				case "infinite":
+					infinite = true;
+					break;
+				default:
+					break;
+				}
+			}
+		}catch (NumberFormatException e){
+			send("info string Invalid go command");
+			return;
+		}
+		boolean white = board.getSideToMove() == Color.WHITE;
+		long time = white ? wtime : btime;
+		long inc = white ? winc : binc;
+		long budget = 0;
+		if (movetime >= 0){
+			budget = Math.max(1, movetime);
+		}else if (time >= 0){
+			// Spread the remaining time over the moves left, keeping a margin for communication
+			budget = Math.max(1, Math.min(time / (movestogo > 0 ? movestogo : 30) + inc / 2, time - 50));
+		}
+		if (infinite){
+			budget = 0;
+		}
+
+		if (book != null && !infinite){
+			int move = book.probe(board, random);
+			if (move != Move.NONE){
+				send("info string book move");
+				send("bestmove " + Move.toString(move));
+				return;
+			}
+		}
+
+		Board searched = board.copy();
+		final ParallelSearch search = new ParallelSearch(searched, threads, table);
+		final NnueEvaluator evaluator = network == null ? null : new NnueEvaluator(network, searched);
+		if (evaluator != null){
+			search.setEvaluator(evaluator);
+		}
+		search.setTablebases(tablebases);
+		search.setTimeLimit(budget);
+		search.setMaxDepth(depth);
+		search.setListener(new SearchListener(){
+			@Override
+			public void iterationCompleted(int depth, int score, long nodes, long millis, int bestMove) {
+				send("info depth " + depth + " score " + score(score) + " nodes " + nodes + " nps "
+						+ (nodes * 1000 / Math.max(millis, 1)) + " time " + millis
+						+ " hashfull " + table.getPermill() + " pv " + Move.toString(bestMove));
+			}
+		});
+		synchronized (this){
+			this.search = search;
+			this.infinite = infinite;
+			this.stopRequested = false;
+		}
+		worker = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				int move = search.search();
+				if (evaluator != null){
+					evaluator.detach();
+				}
+				// In infinite mode the best move may only be sent once the GUI says stop
+				synchronized (Uci.this){
+					while (Uci.this.infinite && !stopRequested){
+						try{
+							Uci.this.wait();
+						}catch (InterruptedException e){
+							break;
+						}
+					}
+				}
+				send("bestmove " + Move.toString(move));
+			}
+		}, "uci-search");
+		worker.start();
+	}
+
+	/**
+	 * Stops the running search, if any, and waits for it to send its best move
+	 */
+	private void stopSearch(){
+		ParallelSearch running;
+		synchronized (this){
+			running = search;
+			stopRequested = true;
+			notifyAll();
+		}
+		if (running != null){
+			running.stop();
+		}
+		if (worker != null){
+			try{
+				worker.join();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			worker = null;
+		}
+		search = null;
+	}
+
+	/**
+	 * Formats a score for an info line
+	 * A position the tablebases say is won is not a mate the search has seen, so it is reported in centipawns:
+	 * TB_SCORE less the distance from the root, far above any evaluation and below any mate
+	 * @param score score in centipawns, a tablebase score or a mate score
+	 * @return "cp x" or "mate n", n being in moves and negative if the engine is getting mated
+	 */
+	private static String score(int score){
+		if (score >= Search.MATE - Search.MAX_PLY){
+			return "mate " + (Search.MATE - score + 1) / 2;
+		}
+		if (score <= -Search.MATE + Search.MAX_PLY){
+			return "mate -" + (Search.MATE + score) / 2;
+		}
+		if (score >= Search.TB_WIN - Search.MAX_PLY){
+			return "cp " + (TB_SCORE - (Search.TB_WIN - score));
+		}
+		if (score <= -Search.TB_WIN + Search.MAX_PLY){
+			return "cp " + -(TB_SCORE - (Search.TB_WIN + score));
+		}
+		return "cp " + score;
+	}
+
+	/**
+	 * Writes a line of output
+	 * @param line the line to write
+	 */
+	private void send(String line){
+		synchronized (out){
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Runs the engine on standard input and output
+	 * @param args not used
+	 * @throws IOException if standard input cannot be read
+	 */
+	public static void main(String[] args) throws IOException{
+		new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+	}
+}